@@ -0,0 +1,3617 @@
+package kernel;
+
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.*;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Comprehensive Java I/O Streams demonstration
+ * Covers all major stream types and patterns
+ */
+public class IOStreamExample {
+    
+    // MARK: - Byte Stream Fundamentals
+    
+    public static void demonstrateByteStreams() throws IOException {
+        System.out.println("=== Byte Streams Demonstration ===");
+        
+        String testData = "Hello, Java I/O Streams! 🚀\nThis is a test message.";
+        String filename = "byte_stream_demo.dat";
+        
+        // Writing bytes to file
+        try (FileOutputStream fos = new FileOutputStream(filename)) {
+            byte[] bytes = testData.getBytes(StandardCharsets.UTF_8);
+            fos.write(bytes);
+            System.out.println("Written " + bytes.length + " bytes to " + filename);
+        }
+        
+        // Reading bytes from file
+        try (FileInputStream fis = new FileInputStream(filename)) {
+            byte[] buffer = new byte[1024];
+            int bytesRead = fis.read(buffer);
+            String readData = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
+            System.out.println("Read data: " + readData);
+        }
+        
+        // Buffered streams for better performance
+        copyBuffered(Paths.get(filename), Paths.get("buffered_copy.dat"));
+        System.out.println("Buffered copy completed");
+        
+        // Channel transfer: the kernel moves the bytes, no user-space buffer
+        copyFile(Paths.get(filename), Paths.get("channel_copy.dat"));
+        System.out.println("Zero-copy channel transfer completed");
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(filename));
+        Files.deleteIfExists(Paths.get("buffered_copy.dat"));
+        Files.deleteIfExists(Paths.get("channel_copy.dat"));
+    }
+    
+    /** Copies source to target through buffered streams and returns the bytes copied. */
+    public static long copyBuffered(Path source, Path target) throws IOException {
+        try (BufferedInputStream bis = new BufferedInputStream(
+                Files.newInputStream(source));
+             BufferedOutputStream bos = new BufferedOutputStream(
+                Files.newOutputStream(target))) {
+            
+            byte[] buffer = new byte[8192]; // 8KB buffer
+            long total = 0;
+            int bytesRead;
+            while ((bytesRead = bis.read(buffer)) != -1) {
+                bos.write(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+            return total;
+        }
+    }
+    
+    // MARK: - Zero-Copy File Transfer
+    
+    private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+    
+    // One direct buffer per thread for the fallback path, reused across copies
+    private static final ThreadLocal<ByteBuffer> TRANSFER_BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE));
+    
+    /**
+     * Copies source to target with FileChannel.transferTo, which the JDK turns into
+     * sendfile on Linux: bytes move inside the kernel instead of being copied
+     * into and out of a Java array. Returns the bytes copied.
+     */
+    public static long copyFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return transfer(in, out);
+        }
+    }
+    
+    /**
+     * Copies everything remaining in source to target and returns the byte count.
+     * Uses transferTo when source is a file and transferFrom when only target is;
+     * any other pair, or a transfer that stops making progress, continues through
+     * a reused direct ByteBuffer, so the bytes still skip the Java heap.
+     */
+    public static long transfer(ReadableByteChannel source, WritableByteChannel target)
+            throws IOException {
+        long copied = 0;
+        if (source instanceof FileChannel) {
+            FileChannel in = (FileChannel) source;
+            long position = in.position();
+            long size = in.size();
+            // transferTo moves at most ~2GB per call on Linux, so loop
+            while (position < size) {
+                long moved = in.transferTo(position, size - position, target);
+                if (moved <= 0) break;
+                position += moved;
+                copied += moved;
+            }
+            in.position(position);
+        } else if (target instanceof FileChannel) {
+            FileChannel out = (FileChannel) target;
+            long position = out.position();
+            long moved;
+            while ((moved = out.transferFrom(source, position, TRANSFER_BUFFER_SIZE)) > 0) {
+                position += moved;
+                copied += moved;
+            }
+            out.position(position);
+            // transferFrom also returns 0 when a non-blocking source is momentarily
+            // empty; the buffered loop below reads until end of stream
+        }
+        return copied + copyDirect(source, target);
+    }
+    
+    /** Copies source to target through a reused direct ByteBuffer until end of stream. */
+    public static long copyDirect(ReadableByteChannel source, WritableByteChannel target)
+            throws IOException {
+        ByteBuffer buffer = TRANSFER_BUFFER.get();
+        long copied = 0;
+        buffer.clear();
+        while (source.read(buffer) >= 0 || buffer.position() > 0) {
+            buffer.flip();
+            copied += target.write(buffer);
+            buffer.compact();
+        }
+        return copied;
+    }
+    
+    // MARK: - Character Streams and Text Processing
+    
+    public static void demonstrateCharacterStreams() throws IOException {
+        System.out.println("\n=== Character Streams Demonstration ===");
+        
+        String textFile = "text_demo.txt";
+        List<String> lines = Arrays.asList(
+            "Line 1: Character streams handle text efficiently",
+            "Line 2: They automatically handle character encoding",
+            "Line 3: UTF-8, UTF-16, and other encodings are supported",
+            "Line 4: 中文测试 - Chinese characters",
+            "Line 5: 🎉 Emoji and special symbols"
+        );
+        
+        // Writing text with FileWriter
+        try (FileWriter writer = new FileWriter(textFile, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line + "\n");
+            }
+            System.out.println("Written " + lines.size() + " lines to " + textFile);
+        }
+        
+        // Reading text with FileReader
+        try (FileReader reader = new FileReader(textFile, StandardCharsets.UTF_8);
+             BufferedReader bufferedReader = new BufferedReader(reader)) {
+            
+            System.out.println("File content:");
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                System.out.println("  " + line);
+            }
+        }
+        
+        // Using PrintWriter for formatted output
+        try (PrintWriter pw = new PrintWriter(new FileWriter("formatted_output.txt"))) {
+            pw.printf("Formatted output at %tF %<tT%n", new Date());
+            pw.printf("Price: $%.2f%n", 19.999);
+            pw.printf("Hex: 0x%X, Scientific: %E%n", 255, 1234567.89);
+            System.out.println("Formatted output written");
+        }
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(textFile));
+        Files.deleteIfExists(Paths.get("formatted_output.txt"));
+    }
+    
+    // MARK: - Data Streams for Primitive Types
+    
+    public static void demonstrateDataStreams() throws IOException {
+        System.out.println("\n=== Data Streams Demonstration ===");
+        
+        String dataFile = "primitives.dat";
+        
+        // Writing primitive types
+        try (DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(dataFile)))) {
+            
+            writePrimitives(dos);
+            System.out.println("Primitive types written to " + dataFile);
+        }
+        
+        // Reading primitive types
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(dataFile)))) {
+            
+            System.out.println("Reading primitive types:");
+            System.out.println("  Boolean: " + dis.readBoolean());
+            byte b = dis.readByte();
+            System.out.println("  Byte: " + b + " (char: " + (char) b + ")");
+            System.out.println("  Char: " + dis.readChar());
+            System.out.println("  Double: " + dis.readDouble());
+            System.out.println("  Float: " + dis.readFloat());
+            System.out.println("  Int: " + dis.readInt());
+            System.out.println("  Long: " + dis.readLong());
+            System.out.println("  UTF: " + dis.readUTF());
+        }
+        
+        // The same record through a schema-driven codec into a reusable buffer
+        RecordCodec codec = new RecordCodec(PRIMITIVES_SCHEMA);
+        RecordCodec.Record record = codec.newRecord()
+            .setBoolean(0, true).setByte(1, (byte) 65).setChar(2, 'J')
+            .setDouble(3, Math.PI).setFloat(4, 2.718f).setInt(5, 42)
+            .setLong(6, 123456789L).setString(7, "Hello Data Stream!");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(record, buffer);
+        System.out.printf("Record codec: %d bytes (DataOutputStream: %d bytes)%n",
+            buffer.position(), Files.size(Paths.get(dataFile)));
+        RecordCodec.Record decoded = codec.decode(buffer.flip(), codec.newRecord());
+        for (int i = 0; i < PRIMITIVES_SCHEMA.fieldCount(); i++) {
+            System.out.println("  " + PRIMITIVES_SCHEMA.name(i) + ": " + fieldValue(decoded, PRIMITIVES_SCHEMA.type(i), i));
+        }
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(dataFile));
+    }
+    
+    /** The writePrimitives record as a RecordSchema, with the int and long as varints. */
+    public static final RecordSchema PRIMITIVES_SCHEMA = new RecordSchema()
+        .field("Boolean", FieldType.BOOLEAN)
+        .field("Byte", FieldType.BYTE)
+        .field("Char", FieldType.CHAR)
+        .field("Double", FieldType.DOUBLE)
+        .field("Float", FieldType.FLOAT)
+        .field("Int", FieldType.VARINT)
+        .field("Long", FieldType.VARLONG)
+        .field("UTF", FieldType.STRING);
+    
+    private static Object fieldValue(RecordCodec.Record record, FieldType type, int field) {
+        return switch (type) {
+            case BOOLEAN -> record.getBoolean(field);
+            case BYTE -> record.getByte(field);
+            case CHAR -> record.getChar(field);
+            case SHORT -> record.getShort(field);
+            case INT, VARINT -> record.getInt(field);
+            case LONG, VARLONG -> record.getLong(field);
+            case FLOAT -> record.getFloat(field);
+            case DOUBLE -> record.getDouble(field);
+            case STRING -> record.getString(field);
+        };
+    }
+    
+    /** Writes the sample record of primitive types read back by demonstrateDataStreams. */
+    public static void writePrimitives(DataOutput out) throws IOException {
+        out.writeBoolean(true);
+        out.writeByte(65); // 'A'
+        out.writeChar('J');
+        out.writeDouble(Math.PI);
+        out.writeFloat(2.718f);
+        out.writeInt(42);
+        out.writeLong(123456789L);
+        out.writeUTF("Hello Data Stream!");
+    }
+    
+    /** Field types a RecordSchema can declare. */
+    public enum FieldType {
+        BOOLEAN, BYTE, CHAR, SHORT, INT, LONG, FLOAT, DOUBLE,
+        /** int as a zigzag varint: 1 byte for -64..63, at most 5 */
+        VARINT,
+        /** long as a zigzag varint: 1 byte for -64..63, at most 10 */
+        VARLONG,
+        /** UTF-8 bytes after a varint length */
+        STRING
+    }
+    
+    /** Ordered, named fields of a binary record; fields are addressed by index. */
+    public static class RecordSchema {
+        private final List<String> names = new ArrayList<>();
+        private final List<FieldType> types = new ArrayList<>();
+        
+        public RecordSchema field(String name, FieldType type) {
+            if (names.contains(name)) throw new IllegalArgumentException("Duplicate field " + name);
+            names.add(Objects.requireNonNull(name));
+            types.add(Objects.requireNonNull(type));
+            return this;
+        }
+        
+        public int fieldCount() { return names.size(); }
+        public String name(int field) { return names.get(field); }
+        public FieldType type(int field) { return types.get(field); }
+        
+        public int indexOf(String name) {
+            int field = names.indexOf(name);
+            if (field < 0) throw new IllegalArgumentException("No field " + name);
+            return field;
+        }
+    }
+    
+    /**
+     * Encodes whole records of a RecordSchema straight into and out of a
+     * ByteBuffer. Fixed-width fields use the buffer's unaligned put/get, VARINT and
+     * VARLONG fields use zigzag varints, and strings are written as UTF-8 in one
+     * pass, after a varint of their byte length + 1 (0 encodes null, the value of an
+     * unset string field). Records are mutable holders meant to be reused, so a batch encode
+     * allocates nothing per record.
+     *
+     * A codec is immutable and can be shared between threads; Records cannot.
+     */
+    public static class RecordCodec {
+        private final RecordSchema schema;
+        private final FieldType[] types;
+        
+        public RecordCodec(RecordSchema schema) {
+            this.schema = schema;
+            this.types = new FieldType[schema.fieldCount()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = schema.type(i);
+            }
+        }
+        
+        public RecordSchema getSchema() { return schema; }
+        
+        public Record newRecord() { return new Record(types.length); }
+        
+        /**
+         * Values of one record. Primitive fields are held as raw long bits, so a
+         * getter must match the field's declared type.
+         */
+        public static final class Record {
+            private final long[] values;
+            private final String[] strings;
+            
+            Record(int fields) {
+                values = new long[fields];
+                strings = new String[fields];
+            }
+            
+            public Record setBoolean(int field, boolean value) { values[field] = value ? 1 : 0; return this; }
+            public Record setByte(int field, byte value) { values[field] = value; return this; }
+            public Record setChar(int field, char value) { values[field] = value; return this; }
+            public Record setShort(int field, short value) { values[field] = value; return this; }
+            public Record setInt(int field, int value) { values[field] = value; return this; }
+            public Record setLong(int field, long value) { values[field] = value; return this; }
+            public Record setFloat(int field, float value) { values[field] = Float.floatToRawIntBits(value); return this; }
+            public Record setDouble(int field, double value) { values[field] = Double.doubleToRawLongBits(value); return this; }
+            public Record setString(int field, String value) { strings[field] = value; return this; }
+            
+            public boolean getBoolean(int field) { return values[field] != 0; }
+            public byte getByte(int field) { return (byte) values[field]; }
+            public char getChar(int field) { return (char) values[field]; }
+            public short getShort(int field) { return (short) values[field]; }
+            public int getInt(int field) { return (int) values[field]; }
+            public long getLong(int field) { return values[field]; }
+            public float getFloat(int field) { return Float.intBitsToFloat((int) values[field]); }
+            public double getDouble(int field) { return Double.longBitsToDouble(values[field]); }
+            public String getString(int field) { return strings[field]; }
+        }
+        
+        /**
+         * Appends record to buffer. If it does not fit, throws
+         * BufferOverflowException with the buffer's position unchanged.
+         */
+        public void encode(Record record, ByteBuffer buffer) {
+            int start = buffer.position();
+            try {
+                for (int i = 0; i < types.length; i++) {
+                    long value = record.values[i];
+                    switch (types[i]) {
+                        case BOOLEAN, BYTE -> buffer.put((byte) value);
+                        case CHAR, SHORT -> buffer.putShort((short) value);
+                        case INT, FLOAT -> buffer.putInt((int) value);
+                        case LONG, DOUBLE -> buffer.putLong(value);
+                        case VARINT -> putVarLong(buffer, zigzag((int) value));
+                        case VARLONG -> putVarLong(buffer, zigzag(value));
+                        case STRING -> putString(buffer, record.strings[i]);
+                    }
+                }
+            } catch (BufferOverflowException e) {
+                buffer.position(start);
+                throw e;
+            }
+        }
+        
+        /**
+         * Reads the next record from buffer into record. If the buffer holds only
+         * part of it, throws BufferUnderflowException with the position unchanged.
+         */
+        public Record decode(ByteBuffer buffer, Record record) {
+            int start = buffer.position();
+            try {
+                for (int i = 0; i < types.length; i++) {
+                    switch (types[i]) {
+                        case BOOLEAN, BYTE -> record.values[i] = buffer.get();
+                        case CHAR -> record.values[i] = buffer.getChar();
+                        case SHORT -> record.values[i] = buffer.getShort();
+                        case INT, FLOAT -> record.values[i] = buffer.getInt();
+                        case LONG, DOUBLE -> record.values[i] = buffer.getLong();
+                        case VARINT -> record.values[i] = (int) unzigzag(getVarLong(buffer));
+                        case VARLONG -> record.values[i] = unzigzag(getVarLong(buffer));
+                        case STRING -> record.strings[i] = getString(buffer);
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                buffer.position(start);
+                throw e;
+            }
+            return record;
+        }
+        
+        /** Batched encoding to a channel through one reusable buffer. */
+        public Writer newWriter(WritableByteChannel channel, int bufferSize) {
+            return new Writer(channel, bufferSize);
+        }
+        
+        /** Batched decoding from a channel through one reusable buffer. */
+        public Reader newReader(ReadableByteChannel channel, int bufferSize) {
+            return new Reader(channel, bufferSize);
+        }
+        
+        public final class Writer implements Closeable {
+            private final WritableByteChannel channel;
+            private ByteBuffer buffer;
+            
+            Writer(WritableByteChannel channel, int bufferSize) {
+                this.channel = channel;
+                this.buffer = ByteBuffer.allocate(bufferSize);
+            }
+            
+            public void write(Record record) throws IOException {
+                try {
+                    encode(record, buffer);
+                } catch (BufferOverflowException full) {
+                    flush();
+                    while (true) {
+                        try {
+                            encode(record, buffer);
+                            return;
+                        } catch (BufferOverflowException tooLarge) {
+                            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                        }
+                    }
+                }
+            }
+            
+            public void flush() throws IOException {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            
+            @Override
+            public void close() throws IOException {
+                try {
+                    flush();
+                } finally {
+                    channel.close();
+                }
+            }
+        }
+        
+        public final class Reader implements Closeable {
+            private final ReadableByteChannel channel;
+            private ByteBuffer buffer;
+            private boolean eof;
+            
+            Reader(ReadableByteChannel channel, int bufferSize) {
+                this.channel = channel;
+                this.buffer = ByteBuffer.allocate(bufferSize).flip();
+            }
+            
+            /** Decodes the next record into record; false at a clean end of input. */
+            public boolean read(Record record) throws IOException {
+                while (true) {
+                    if (buffer.hasRemaining()) {
+                        try {
+                            decode(buffer, record);
+                            return true;
+                        } catch (BufferUnderflowException partial) {
+                            if (eof) throw new EOFException("Truncated record");
+                        }
+                    } else if (eof) {
+                        return false;
+                    }
+                    if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                        // A record larger than the whole buffer
+                        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                        buffer = larger.put(buffer).flip();
+                    }
+                    buffer.compact();
+                    eof = channel.read(buffer) < 0;
+                    buffer.flip();
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        }
+        
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+        
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+        
+        private static void putVarLong(ByteBuffer buffer, long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+        
+        private static long getVarLong(ByteBuffer buffer) {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+        
+        // Writes a varint of the byte length + 1 (0 for null), then UTF-8, in one pass
+        // over the string: the length slot is sized for the worst case (3 bytes per
+        // char) and filled in afterwards, padded with continuation bytes if the actual
+        // length is shorter.
+        private static void putString(ByteBuffer buffer, String value) {
+            if (value == null) {
+                buffer.put((byte) 0);
+                return;
+            }
+            int length = value.length();
+            int slot = varLongSize(3L * length + 1);
+            int lengthAt = buffer.position();
+            if (buffer.remaining() < slot + length) throw new BufferOverflowException();
+            buffer.position(lengthAt + slot);
+            int start = buffer.position();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer.put((byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | c >> 6));
+                    buffer.put((byte) (0x80 | c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                           && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xF0 | cp >> 18));
+                    buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+                    buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+                    buffer.put((byte) (0x80 | cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?'); // unpaired, as String.getBytes does
+                } else {
+                    buffer.put((byte) (0xE0 | c >> 12));
+                    buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                    buffer.put((byte) (0x80 | c & 0x3F));
+                }
+            }
+            int bytes = buffer.position() - start + 1;
+            for (int i = 0; i < slot - 1; i++) {
+                buffer.put(lengthAt + i, (byte) ((bytes >>> (7 * i) & 0x7F) | 0x80));
+            }
+            buffer.put(lengthAt + slot - 1, (byte) (bytes >>> (7 * (slot - 1))));
+        }
+        
+        private static String getString(ByteBuffer buffer) {
+            long length = getVarLong(buffer) - 1;
+            if (length < 0) return null;
+            if (length > buffer.remaining()) throw new BufferUnderflowException();
+            int bytes = (int) length;
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                   bytes, StandardCharsets.UTF_8);
+            } else {
+                byte[] copy = new byte[bytes];
+                buffer.get(buffer.position(), copy);
+                value = new String(copy, StandardCharsets.UTF_8);
+            }
+            buffer.position(buffer.position() + bytes);
+            return value;
+        }
+        
+        private static int varLongSize(long value) {
+            return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+        }
+    }
+    
+    // MARK: - Object Serialization Streams
+    
+    public static class Person implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final String name;
+        private final int age;
+        private final transient String password; // transient = not serialized
+        private final Date birthDate;
+        
+        public Person(String name, int age, String password, Date birthDate) {
+            this.name = name;
+            this.age = age;
+            this.password = password;
+            this.birthDate = birthDate;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Person{name='%s', age=%d, password=%s, birthDate=%s}",
+                name, age, (password != null ? "***" : "null"), birthDate);
+        }
+    }
+    
+    public static void demonstrateObjectStreams() throws IOException, ClassNotFoundException {
+        System.out.println("\n=== Object Streams Demonstration ===");
+        
+        String objectFile = "person.ser";
+        Person originalPerson = new Person("Alice", 30, "secret123", new Date());
+        
+        // Serialize object
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new FileOutputStream(objectFile))) {
+            oos.writeObject(originalPerson);
+            System.out.println("Serialized: " + originalPerson);
+        }
+        
+        // Deserialize object
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new FileInputStream(objectFile))) {
+            Person deserializedPerson = (Person) ois.readObject();
+            System.out.println("Deserialized: " + deserializedPerson);
+        }
+        
+        // Same object through the MethodHandle-based serializer; password stays transient
+        String fastFile = "person.fast";
+        try (FastObjectOutput out = new FastObjectOutput(
+                new BufferedOutputStream(new FileOutputStream(fastFile)))) {
+            out.writeObject(originalPerson);
+        }
+        try (FastObjectInput in = new FastObjectInput(
+                new BufferedInputStream(new FileInputStream(fastFile)), Person.class)) {
+            System.out.println("Fast deserialized: " + in.readObject(Person.class));
+        }
+        System.out.printf("Serialized size: %d bytes (fast), %d bytes (ObjectOutputStream)%n",
+            Files.size(Paths.get(fastFile)), Files.size(Paths.get(objectFile)));
+        
+        // Batches write each class descriptor once, then only field values
+        ByteArrayOutputStream javaBatch = new ByteArrayOutputStream();
+        ByteArrayOutputStream fastBatch = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(javaBatch);
+             FastObjectOutput out = new FastObjectOutput(fastBatch)) {
+            for (int i = 0; i < 1000; i++) {
+                Person person = new Person("Person " + i, 20 + i % 50, "secret", new Date(i * 86_400_000L));
+                oos.writeObject(person);
+                out.writeObject(person);
+            }
+        }
+        System.out.printf("1000 Persons: %.1f bytes/object (fast), %.1f bytes/object (ObjectOutputStream)%n",
+            fastBatch.size() / 1000.0, javaBatch.size() / 1000.0);
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(objectFile));
+        Files.deleteIfExists(Paths.get(fastFile));
+    }
+    
+    /**
+     * Field accessors for one class, built once with MethodHandles and cached per
+     * class. Serializable fields are the non-static, non-transient instance fields
+     * of the class and its superclasses, superclass first, or the components of a
+     * record. Supported field types are primitives, String, Date and nested
+     * Serializable classes of the same kind; object graphs must be trees.
+     *
+     * Instances are created the way the class allows: the canonical constructor of
+     * a record, a no-argument constructor followed by field writes, or a
+     * constructor taking every instance field in declaration order (Person's), in
+     * which case transient fields are passed their default value.
+     */
+    public static final class FastSerializer<T> {
+        static final byte BOOLEAN = 1, BYTE = 2, CHAR = 3, SHORT = 4, INT = 5, LONG = 6,
+                          FLOAT = 7, DOUBLE = 8, STRING = 9, DATE = 10, OBJECT = 11;
+        
+        private static final ClassValue<Object> SERIALIZERS = new ClassValue<>() {
+            @Override
+            protected Object computeValue(Class<?> type) {
+                try {
+                    return new FastSerializer<>(type);
+                } catch (InvalidClassException e) {
+                    return e; // cached too, so unsupported classes fail fast
+                }
+            }
+        };
+        
+        final Class<T> type;
+        final String[] names;
+        final byte[] kinds;
+        private final MethodHandle[] getters;    // (Object)<field type>
+        private final MethodHandle[] setters;    // (Object, <field type>)void, null unless no-arg
+        private final MethodHandle constructor;  // ()Object or (Object[])Object
+        private final int[] argumentIndex;       // serialized field -> constructor argument
+        private final Object[] defaultArguments; // constructor arguments for absent fields
+        
+        @SuppressWarnings("unchecked")
+        public static <T> FastSerializer<T> forClass(Class<T> type) throws InvalidClassException {
+            Object serializer = SERIALIZERS.get(type);
+            if (serializer instanceof InvalidClassException e) {
+                throw new InvalidClassException(e.getMessage());
+            }
+            return (FastSerializer<T>) serializer;
+        }
+        
+        private FastSerializer(Class<T> type) throws InvalidClassException {
+            if (!Serializable.class.isAssignableFrom(type) || type.isInterface()
+                    || type.isArray() || type.isEnum() || type.isPrimitive()) {
+                throw new InvalidClassException(type.getName(), "not a Serializable class");
+            }
+            this.type = type;
+            try {
+                if (type.isRecord()) {
+                    java.lang.reflect.RecordComponent[] components = type.getRecordComponents();
+                    int n = components.length;
+                    names = new String[n];
+                    kinds = new byte[n];
+                    getters = new MethodHandle[n];
+                    Class<?>[] parameterTypes = new Class<?>[n];
+                    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                    for (int i = 0; i < n; i++) {
+                        names[i] = components[i].getName();
+                        parameterTypes[i] = components[i].getType();
+                        kinds[i] = kindOf(parameterTypes[i]);
+                        getters[i] = getterType(lookup.unreflect(components[i].getAccessor()), parameterTypes[i]);
+                    }
+                    setters = null;
+                    constructor = spreader(findConstructor(lookup, type, parameterTypes), n);
+                    argumentIndex = identity(n);
+                    defaultArguments = defaults(parameterTypes);
+                    return;
+                }
+                
+                List<Field> all = new ArrayList<>();
+                for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                    List<Field> declared = new ArrayList<>();
+                    for (Field f : c.getDeclaredFields()) {
+                        if (!Modifier.isStatic(f.getModifiers())) declared.add(f);
+                    }
+                    all.addAll(0, declared);
+                }
+                List<Field> serialized = new ArrayList<>();
+                for (Field f : all) {
+                    if (!Modifier.isTransient(f.getModifiers())) serialized.add(f);
+                }
+                int n = serialized.size();
+                names = new String[n];
+                kinds = new byte[n];
+                getters = new MethodHandle[n];
+                for (int i = 0; i < n; i++) {
+                    Field f = serialized.get(i);
+                    names[i] = f.getName();
+                    kinds[i] = kindOf(f.getType());
+                    getters[i] = getterType(lookupFor(f).unreflectGetter(f), f.getType());
+                }
+                
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                Class<?>[] allTypes = all.stream().map(Field::getType).toArray(Class<?>[]::new);
+                MethodHandle noArg = findConstructor(lookup, type);
+                if (noArg != null) {
+                    constructor = noArg.asType(MethodType.methodType(Object.class));
+                    setters = new MethodHandle[n];
+                    for (int i = 0; i < n; i++) {
+                        Field f = serialized.get(i);
+                        f.setAccessible(true); // final fields are writable only through an accessible Field
+                        setters[i] = lookupFor(f).unreflectSetter(f).asType(MethodType.methodType(
+                            void.class, Object.class, f.getType().isPrimitive() ? f.getType() : Object.class));
+                    }
+                    argumentIndex = null;
+                    defaultArguments = null;
+                } else {
+                    MethodHandle fieldConstructor = findConstructor(lookup, type, allTypes);
+                    if (fieldConstructor == null) {
+                        throw new InvalidClassException(type.getName(),
+                            "needs a no-argument constructor or one taking its fields in declaration order");
+                    }
+                    constructor = spreader(fieldConstructor, allTypes.length);
+                    setters = null;
+                    argumentIndex = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        argumentIndex[i] = all.indexOf(serialized.get(i));
+                    }
+                    defaultArguments = defaults(allTypes);
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                InvalidClassException failure = new InvalidClassException(type.getName(), e.toString());
+                failure.initCause(e);
+                throw failure;
+            }
+        }
+        
+        void write(FastObjectOutput out, Object value) throws IOException {
+            try {
+                for (int i = 0; i < kinds.length; i++) {
+                    MethodHandle getter = getters[i];
+                    switch (kinds[i]) {
+                        case BOOLEAN -> out.writeByte((boolean) getter.invokeExact(value) ? 1 : 0);
+                        case BYTE -> out.writeByte((byte) getter.invokeExact(value));
+                        case CHAR -> out.writeVarLong((char) getter.invokeExact(value));
+                        case SHORT -> out.writeVarLong(zigzag((short) getter.invokeExact(value)));
+                        case INT -> out.writeVarLong(zigzag((int) getter.invokeExact(value)));
+                        case LONG -> out.writeVarLong(zigzag((long) getter.invokeExact(value)));
+                        case FLOAT -> out.writeFixed(Float.floatToRawIntBits((float) getter.invokeExact(value)), 4);
+                        case DOUBLE -> out.writeFixed(Double.doubleToRawLongBits((double) getter.invokeExact(value)), 8);
+                        case STRING -> out.writeString((String) (Object) getter.invokeExact(value));
+                        case DATE -> out.writeDate((Date) (Object) getter.invokeExact(value));
+                        default -> out.writeObject((Object) getter.invokeExact(value));
+                    }
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IOException(t);
+            }
+        }
+        
+        // fieldMap: stream field -> local field, or -1 to skip a field this class no longer has
+        T read(FastObjectInput in, byte[] streamKinds, int[] fieldMap) throws IOException {
+            try {
+                if (setters != null) {
+                    Object instance = (Object) constructor.invokeExact();
+                    for (int s = 0; s < streamKinds.length; s++) {
+                        int i = fieldMap[s];
+                        if (i < 0) {
+                            in.readValue(streamKinds[s]);
+                            continue;
+                        }
+                        MethodHandle setter = setters[i];
+                        switch (kinds[i]) {
+                            case BOOLEAN -> setter.invokeExact(instance, in.readByte() != 0);
+                            case BYTE -> setter.invokeExact(instance, in.readByte());
+                            case CHAR -> setter.invokeExact(instance, (char) in.readVarLong());
+                            case SHORT -> setter.invokeExact(instance, (short) unzigzag(in.readVarLong()));
+                            case INT -> setter.invokeExact(instance, (int) unzigzag(in.readVarLong()));
+                            case LONG -> setter.invokeExact(instance, unzigzag(in.readVarLong()));
+                            case FLOAT -> setter.invokeExact(instance, Float.intBitsToFloat((int) in.readFixed(4)));
+                            case DOUBLE -> setter.invokeExact(instance, Double.longBitsToDouble(in.readFixed(8)));
+                            default -> setter.invokeExact(instance, in.readValue(kinds[i]));
+                        }
+                    }
+                    return type.cast(instance);
+                }
+                Object[] arguments = defaultArguments.clone();
+                for (int s = 0; s < streamKinds.length; s++) {
+                    int i = fieldMap[s];
+                    Object value = in.readValue(streamKinds[s]);
+                    if (i >= 0) arguments[argumentIndex[i]] = value;
+                }
+                return type.cast((Object) constructor.invokeExact(arguments));
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IOException(t);
+            }
+        }
+        
+        static byte kindOf(Class<?> fieldType) {
+            if (fieldType == boolean.class) return BOOLEAN;
+            if (fieldType == byte.class) return BYTE;
+            if (fieldType == char.class) return CHAR;
+            if (fieldType == short.class) return SHORT;
+            if (fieldType == int.class) return INT;
+            if (fieldType == long.class) return LONG;
+            if (fieldType == float.class) return FLOAT;
+            if (fieldType == double.class) return DOUBLE;
+            if (fieldType == String.class) return STRING;
+            if (fieldType == Date.class) return DATE;
+            return OBJECT;
+        }
+        
+        private MethodHandles.Lookup lookupFor(Field f) throws IllegalAccessException {
+            return MethodHandles.privateLookupIn(f.getDeclaringClass(), MethodHandles.lookup());
+        }
+        
+        private static MethodHandle getterType(MethodHandle getter, Class<?> fieldType) {
+            return getter.asType(MethodType.methodType(
+                fieldType.isPrimitive() ? fieldType : Object.class, Object.class));
+        }
+        
+        private static MethodHandle findConstructor(MethodHandles.Lookup lookup, Class<?> type,
+                                                    Class<?>... parameterTypes) throws IllegalAccessException {
+            try {
+                return lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        
+        private static MethodHandle spreader(MethodHandle constructor, int arity) {
+            return constructor.asType(MethodType.genericMethodType(arity)).asSpreader(Object[].class, arity);
+        }
+        
+        private static Object[] defaults(Class<?>[] types) {
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (types[i].isPrimitive()) values[i] = java.lang.reflect.Array.get(
+                    java.lang.reflect.Array.newInstance(types[i], 1), 0);
+            }
+            return values;
+        }
+        
+        private static int[] identity(int n) {
+            int[] indices = new int[n];
+            for (int i = 0; i < n; i++) indices[i] = i;
+            return indices;
+        }
+        
+        static long zigzag(long value) { return (value << 1) ^ (value >> 63); }
+        static long unzigzag(long value) { return (value >>> 1) ^ -(value & 1); }
+    }
+    
+    /**
+     * Writes objects in FastSerializer's tagged format. Each class's descriptor
+     * (name, field names and kinds) goes into the stream once, the first time an
+     * instance is written; later instances are a tag, a class number and the
+     * field values, so a batch of N objects carries its type metadata once.
+     *
+     * Values: ints, shorts, longs and chars as (zigzag) varints, floats and
+     * doubles as 4/8 big-endian bytes, strings as varint (UTF-8 length + 1) with 0
+     * for null, dates as a presence byte and a zigzag varint of getTime().
+     *
+     * Bytes collect in a heap buffer and go to the underlying stream whenever a
+     * written object leaves more than DRAIN_THRESHOLD of them, as BufferedOutputStream
+     * does, so a long batch does not accumulate in memory.
+     */
+    public static final class FastObjectOutput implements Closeable, Flushable {
+        static final int MAGIC = 0xFA57;
+        static final byte TAG_NULL = 0, TAG_OBJECT = 1, TAG_CLASS = 2;
+        static final int DRAIN_THRESHOLD = 8192;
+        private static final int MAX_BUFFER = Integer.MAX_VALUE - 8;
+        
+        private final OutputStream out;
+        private final Map<Class<?>, Integer> classNumbers = new HashMap<>();
+        private byte[] buffer = new byte[512];
+        private int count;
+        
+        public FastObjectOutput(OutputStream out) throws IOException {
+            this.out = out;
+            writeFixed(MAGIC, 2);
+        }
+        
+        public void writeObject(Object value) throws IOException {
+            if (value == null) {
+                writeByte(TAG_NULL);
+                return;
+            }
+            FastSerializer<?> serializer = FastSerializer.forClass(value.getClass());
+            Integer number = classNumbers.get(serializer.type);
+            if (number == null) {
+                classNumbers.put(serializer.type, classNumbers.size());
+                writeByte(TAG_CLASS);
+                writeString(serializer.type.getName());
+                writeVarLong(serializer.names.length);
+                for (int i = 0; i < serializer.names.length; i++) {
+                    writeString(serializer.names[i]);
+                    writeByte(serializer.kinds[i]);
+                }
+            } else {
+                writeByte(TAG_OBJECT);
+                writeVarLong(number);
+            }
+            serializer.write(this, value);
+            if (count >= DRAIN_THRESHOLD) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+        
+        void writeByte(int b) {
+            ensure(1);
+            buffer[count++] = (byte) b;
+        }
+        
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[count++] = (byte) value;
+        }
+        
+        void writeFixed(long value, int bytes) {
+            ensure(bytes);
+            for (int shift = 8 * (bytes - 1); shift >= 0; shift -= 8) {
+                buffer[count++] = (byte) (value >>> shift);
+            }
+        }
+        
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            int length = value.length();
+            int start = count;
+            writeVarLong(length + 1L);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // Not ASCII: back out and encode through the charset
+                    count = start;
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(utf8.length + 1L);
+                    ensure(utf8.length);
+                    System.arraycopy(utf8, 0, buffer, count, utf8.length);
+                    count += utf8.length;
+                    return;
+                }
+                buffer[count + i] = (byte) c;
+            }
+            count += length;
+        }
+        
+        void writeDate(Date value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) writeVarLong(FastSerializer.zigzag(value.getTime()));
+        }
+        
+        private void ensure(int bytes) {
+            long needed = (long) count + bytes;
+            if (needed > buffer.length) {
+                // Only a single object larger than the threshold grows the buffer this far
+                if (needed > MAX_BUFFER) throw new OutOfMemoryError("Object too large to buffer");
+                buffer = Arrays.copyOf(buffer, (int) Math.min(MAX_BUFFER, Math.max(2L * buffer.length, needed)));
+            }
+        }
+        
+        /** Writes buffered objects to the underlying stream. */
+        @Override
+        public void flush() throws IOException {
+            out.write(buffer, 0, count);
+            count = 0;
+            out.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+    
+    /**
+     * Reads objects written by FastObjectOutput, mapping stream fields to local ones by
+     * name. Instances are built without readObject or other validation, so the reader
+     * only accepts the classes it is given: a class name in the stream is looked up in
+     * that allowlist and never loaded, and any other name fails with
+     * InvalidClassException. Classes of nested object fields must be listed too.
+     */
+    public static final class FastObjectInput implements Closeable {
+        private final InputStream in;
+        private final Map<String, Class<?>> allowed = new HashMap<>();
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private final List<StreamClass> classes = new ArrayList<>();
+        
+        private static final class StreamClass {
+            final FastSerializer<?> serializer;
+            final byte[] kinds;
+            final int[] fieldMap;
+            
+            StreamClass(FastSerializer<?> serializer, byte[] kinds, int[] fieldMap) {
+                this.serializer = serializer;
+                this.kinds = kinds;
+                this.fieldMap = fieldMap;
+            }
+        }
+        
+        public FastObjectInput(InputStream in, Class<?>... allowed) throws IOException {
+            this.in = in;
+            for (Class<?> type : allowed) {
+                this.allowed.put(type.getName(), type);
+            }
+            if (readFixed(2) != FastObjectOutput.MAGIC) {
+                throw new StreamCorruptedException("Not a FastObjectOutput stream");
+            }
+        }
+        
+        /** True if another object follows. */
+        public boolean hasMore() throws IOException {
+            return position < limit || fill();
+        }
+        
+        public Object readObject() throws IOException {
+            int tag = readByte();
+            StreamClass streamClass;
+            if (tag == FastObjectOutput.TAG_NULL) {
+                return null;
+            } else if (tag == FastObjectOutput.TAG_OBJECT) {
+                long number = readVarLong();
+                if (number < 0 || number >= classes.size()) {
+                    throw new StreamCorruptedException("Unknown class number " + number);
+                }
+                streamClass = classes.get((int) number);
+            } else if (tag == FastObjectOutput.TAG_CLASS) {
+                streamClass = readClass();
+                classes.add(streamClass);
+            } else {
+                throw new StreamCorruptedException("Bad tag " + tag);
+            }
+            return streamClass.serializer.read(this, streamClass.kinds, streamClass.fieldMap);
+        }
+        
+        public <T> T readObject(Class<T> type) throws IOException {
+            Object value = readObject();
+            if (value != null && !type.isInstance(value)) {
+                throw new InvalidClassException(value.getClass().getName(), "expected " + type.getName());
+            }
+            return type.cast(value);
+        }
+        
+        private StreamClass readClass() throws IOException {
+            String name = readString();
+            Class<?> type = allowed.get(name);
+            if (type == null) {
+                throw new InvalidClassException(name, "class not allowed");
+            }
+            FastSerializer<?> serializer = FastSerializer.forClass(type); // rejects non-Serializable
+            int fields = (int) readVarLong();
+            byte[] kinds = new byte[fields];
+            int[] fieldMap = new int[fields];
+            List<String> localNames = Arrays.asList(serializer.names);
+            for (int s = 0; s < fields; s++) {
+                String field = readString();
+                kinds[s] = readByte();
+                int local = localNames.indexOf(field);
+                if (local >= 0 && serializer.kinds[local] != kinds[s]) {
+                    throw new InvalidClassException(name, "field " + field + " changed type");
+                }
+                fieldMap[s] = local;
+            }
+            return new StreamClass(serializer, kinds, fieldMap);
+        }
+        
+        // Reads a value of a reference kind, or any kind boxed when it is skipped or a constructor argument
+        Object readValue(byte kind) throws IOException {
+            return switch (kind) {
+                case FastSerializer.BOOLEAN -> readByte() != 0;
+                case FastSerializer.BYTE -> readByte();
+                case FastSerializer.CHAR -> (char) readVarLong();
+                case FastSerializer.SHORT -> (short) FastSerializer.unzigzag(readVarLong());
+                case FastSerializer.INT -> (int) FastSerializer.unzigzag(readVarLong());
+                case FastSerializer.LONG -> FastSerializer.unzigzag(readVarLong());
+                case FastSerializer.FLOAT -> Float.intBitsToFloat((int) readFixed(4));
+                case FastSerializer.DOUBLE -> Double.longBitsToDouble(readFixed(8));
+                case FastSerializer.STRING -> readString();
+                case FastSerializer.DATE -> readByte() == 0 ? null : new Date(FastSerializer.unzigzag(readVarLong()));
+                case FastSerializer.OBJECT -> readObject();
+                default -> throw new StreamCorruptedException("Bad field kind " + kind);
+            };
+        }
+        
+        byte readByte() throws IOException {
+            if (position == limit && !fill()) throw new EOFException();
+            return buffer[position++];
+        }
+        
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new StreamCorruptedException("Malformed varint");
+        }
+        
+        long readFixed(int bytes) throws IOException {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+        
+        String readString() throws IOException {
+            long encoded = readVarLong();
+            if (encoded == 0) return null;
+            if (encoded - 1 > Integer.MAX_VALUE - 8) throw new StreamCorruptedException("String too long");
+            int length = (int) (encoded - 1);
+            if (length <= limit - position) {
+                String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            int filled = 0;
+            while (filled < length) {
+                if (position == limit && !fill()) throw new EOFException();
+                int n = Math.min(length - filled, limit - position);
+                System.arraycopy(buffer, position, bytes, filled, n);
+                position += n;
+                filled += n;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        private boolean fill() throws IOException {
+            int n = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(n, 0);
+            return n > 0;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+    
+    // MARK: - Advanced Stream Operations
+    
+    public static void demonstrateAdvancedStreams() throws IOException {
+        System.out.println("\n=== Advanced Stream Operations ===");
+        
+        // Ring-buffer pipe for inter-thread communication (replaces Piped streams)
+        RingBufferPipe pipe = new RingBufferPipe();
+        OutputStream pos = pipe.newOutputStream();
+        InputStream pis = pipe.getInputStream();
+        
+        Thread writerThread = new Thread(() -> {
+            try (DataOutputStream dos = new DataOutputStream(pos)) {
+                for (int i = 0; i < 5; i++) {
+                    dos.writeUTF("Message " + i);
+                    Thread.sleep(100);
+                }
+                dos.writeUTF("END");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        
+        Thread readerThread = new Thread(() -> {
+            try (DataInputStream dis = new DataInputStream(pis)) {
+                String message;
+                while (!(message = dis.readUTF()).equals("END")) {
+                    System.out.println("Piped stream received: " + message);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        
+        readerThread.start();
+        writerThread.start();
+        
+        try {
+            writerThread.join();
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // Several writers into one multi-producer pipe; each writeUTF arrives whole
+        RingBufferPipe shared = new RingBufferPipe(4096, RingBufferPipe.WaitStrategy.PARK, true);
+        List<Thread> producers = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            int writer = w;
+            OutputStream out = shared.newOutputStream();
+            producers.add(new Thread(() -> {
+                try (DataOutputStream dos = new DataOutputStream(out)) {
+                    for (int i = 0; i < 3; i++) {
+                        dos.writeUTF("Writer " + writer + " message " + i);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        try (DataInputStream dis = new DataInputStream(shared.getInputStream())) {
+            while (true) {
+                System.out.println("Multi-producer pipe received: " + dis.readUTF());
+            }
+        } catch (EOFException e) {
+            // End of stream: every writer has closed
+        }
+        for (Thread producer : producers) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        // Concatenating files (replaces SequenceInputStream + InputStreamReader)
+        String file1 = "seq1.txt";
+        String file2 = "seq2.txt";
+        
+        Files.write(Paths.get(file1), "Content from file 1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(Paths.get(file2), "Content from file 2\n".getBytes(StandardCharsets.UTF_8));
+        
+        try (ConcatenatedFileReader reader = new ConcatenatedFileReader(
+                List.of(Paths.get(file1), Paths.get(file2)))) {
+            
+            System.out.println("Concatenated files output:");
+            reader.forEachLine(line -> System.out.println("  " + line));
+        }
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(file1));
+        Files.deleteIfExists(Paths.get(file2));
+    }
+    
+    
+    /**
+     * In-memory pipe over a lock-free byte ring buffer; a replacement for
+     * PipedOutputStream/PipedInputStream without their synchronized 1KB buffer and
+     * wait(1000) polling. Each bulk write is copied in and published with a single
+     * release store; single-byte writes (DataOutputStream.writeInt etc.) are
+     * staged in the writer and published with the next bulk write, flush() or
+     * close().
+     *
+     * In single-producer mode there is one writer. In multi-producer mode any
+     * number of writers claim space with a CAS and publish in claim order, so a
+     * write of up to capacity bytes (a whole writeUTF, say) is never interleaved
+     * with another writer's bytes. The reader sees end of stream once every
+     * writer has been closed; create the writers before starting the reader.
+     */
+    public static class RingBufferPipe {
+        public static final int DEFAULT_CAPACITY = 64 * 1024;
+        private static final int STAGING_SIZE = 256;
+        private static final int SPIN_ROUNDS = 128;
+        private static final int YIELD_ROUNDS = 64;
+        private static final long PARK_NANOS = 50_000;
+        
+        /** How a reader or writer waits for data or space. */
+        public enum WaitStrategy {
+            /** Busy-spin: lowest latency; only for threads that each have their own core */
+            SPIN,
+            /** Spin briefly, then Thread.yield() */
+            YIELD,
+            /** Spin, yield, then park; a parked reader is unparked by the next publish */
+            PARK;
+            
+            void idle(int round) {
+                if (this == SPIN || round < SPIN_ROUNDS) {
+                    Thread.onSpinWait();
+                } else if (this == YIELD || round < SPIN_ROUNDS + YIELD_ROUNDS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+        }
+        
+        // AtomicLong padded so the reader's and writers' counters sit on different cache lines
+        @SuppressWarnings("unused")
+        private static final class Sequence extends AtomicLong {
+            long p1, p2, p3, p4, p5, p6, p7;
+        }
+        
+        private final byte[] buffer;
+        private final int mask;
+        private final WaitStrategy waitStrategy;
+        private final boolean multiProducer;
+        private final Sequence head = new Sequence();    // next byte to read; written by the reader
+        private final Sequence tail = new Sequence();    // end of published bytes
+        private final Sequence claimed = new Sequence(); // end of claimed bytes (multi-producer)
+        private final AtomicInteger openWriters = new AtomicInteger();
+        private volatile boolean writersDone;
+        private volatile boolean readerClosed;
+        private volatile Thread parkedReader;
+        private boolean readerCreated;
+        private boolean writerCreated;
+        
+        public RingBufferPipe() {
+            this(DEFAULT_CAPACITY, WaitStrategy.PARK, false);
+        }
+        
+        /** capacity is rounded up to a power of two. */
+        public RingBufferPipe(int capacity, WaitStrategy waitStrategy, boolean multiProducer) {
+            if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("capacity: " + capacity);
+            this.buffer = new byte[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+            this.mask = buffer.length - 1;
+            this.waitStrategy = Objects.requireNonNull(waitStrategy);
+            this.multiProducer = multiProducer;
+        }
+        
+        public int capacity() { return buffer.length; }
+        
+        /** The read end; there is exactly one. */
+        public synchronized InputStream getInputStream() {
+            if (readerCreated) throw new IllegalStateException("Pipe already has a reader");
+            readerCreated = true;
+            return new RingInputStream();
+        }
+        
+        /** A new write end: one in single-producer mode, any number in multi-producer mode. */
+        public synchronized OutputStream newOutputStream() {
+            if (writerCreated && !multiProducer) throw new IllegalStateException("Single-producer pipe already has a writer");
+            if (writersDone) throw new IllegalStateException("All writers of this pipe are closed");
+            writerCreated = true;
+            openWriters.incrementAndGet();
+            return new RingOutputStream();
+        }
+        
+        private final class RingOutputStream extends OutputStream {
+            private final byte[] staging = new byte[STAGING_SIZE];
+            private int staged;
+            private long cachedHead;
+            private boolean closed;
+            
+            @Override
+            public void write(int b) throws IOException {
+                ensureOpen();
+                staging[staged++] = (byte) b;
+                if (staged == staging.length) {
+                    drain();
+                }
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                ensureOpen();
+                drain();
+                publish(b, off, len);
+            }
+            
+            @Override
+            public void flush() throws IOException {
+                ensureOpen();
+                drain();
+            }
+            
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    if (!readerClosed) drain();
+                } finally {
+                    if (openWriters.decrementAndGet() == 0) {
+                        writersDone = true;
+                        wakeReader();
+                    }
+                }
+            }
+            
+            private void drain() throws IOException {
+                if (staged > 0) {
+                    int count = staged;
+                    staged = 0;
+                    publish(staging, 0, count);
+                }
+            }
+            
+            private void publish(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int count = Math.min(len, buffer.length);
+                    long start = multiProducer ? claim(count) : awaitSpace(tail.get(), count);
+                    copyIn(start, b, off, count);
+                    boolean interrupted = false;
+                    if (multiProducer) {
+                        // Publish in claim order: wait for writers that claimed earlier. The
+                        // claimed space must be published or every later writer waits
+                        // forever, so only a closed reader ends this wait; an interrupt is
+                        // recorded and re-asserted once the bytes are out
+                        for (int round = 0; tail.getAcquire() != start; round++) {
+                            if (readerClosed) throw new IOException("Pipe closed");
+                            if (Thread.interrupted()) interrupted = true;
+                            waitStrategy.idle(round);
+                        }
+                    }
+                    tail.setRelease(start + count);
+                    wakeReader();
+                    if (interrupted) Thread.currentThread().interrupt();
+                    off += count;
+                    len -= count;
+                }
+            }
+            
+            private long awaitSpace(long start, int count) throws IOException {
+                for (int round = 0; start + count - cachedHead > buffer.length; round++) {
+                    cachedHead = head.getAcquire();
+                    if (start + count - cachedHead <= buffer.length) break;
+                    checkWaiting();
+                    waitStrategy.idle(round);
+                }
+                return start;
+            }
+            
+            private long claim(int count) throws IOException {
+                for (int round = 0; ; ) {
+                    long start = claimed.get();
+                    if (start + count - cachedHead > buffer.length) {
+                        cachedHead = head.getAcquire();
+                        if (start + count - cachedHead > buffer.length) {
+                            checkWaiting();
+                            waitStrategy.idle(round++);
+                            continue;
+                        }
+                    }
+                    if (claimed.compareAndSet(start, start + count)) return start;
+                }
+            }
+            
+            private void ensureOpen() throws IOException {
+                if (closed) throw new IOException("Stream closed");
+                if (readerClosed) throw new IOException("Pipe closed");
+            }
+        }
+        
+        private final class RingInputStream extends InputStream {
+            private long cachedTail;
+            
+            @Override
+            public int read() throws IOException {
+                long position = head.get();
+                if (cachedTail == position && awaitData(position) < 0) return -1;
+                int b = buffer[(int) position & mask] & 0xFF;
+                head.setRelease(position + 1);
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                if (len == 0) return 0;
+                long position = head.get();
+                long available = cachedTail - position;
+                if (available == 0 && (available = awaitData(position)) < 0) return -1;
+                int count = (int) Math.min(len, available);
+                copyOut(position, b, off, count);
+                head.setRelease(position + count);
+                return count;
+            }
+            
+            @Override
+            public int available() {
+                cachedTail = tail.getAcquire();
+                return (int) (cachedTail - head.get());
+            }
+            
+            @Override
+            public void close() {
+                readerClosed = true;
+            }
+            
+            // Bytes readable at position, or -1 at end of stream
+            private long awaitData(long position) throws IOException {
+                if (readerClosed) throw new IOException("Stream closed");
+                for (int round = 0; ; round++) {
+                    cachedTail = tail.getAcquire();
+                    if (cachedTail != position) return cachedTail - position;
+                    if (writersDone) {
+                        // Writers may have published just before closing
+                        cachedTail = tail.getAcquire();
+                        return cachedTail != position ? cachedTail - position : -1;
+                    }
+                    if (Thread.interrupted()) throw new InterruptedIOException("Interrupted while reading pipe");
+                    if (waitStrategy == WaitStrategy.PARK && round >= SPIN_ROUNDS + YIELD_ROUNDS) {
+                        // The park is timed, so a publish racing this check delays us by at most PARK_NANOS
+                        parkedReader = Thread.currentThread();
+                        if (tail.get() == position && !writersDone) {
+                            LockSupport.parkNanos(PARK_NANOS);
+                        }
+                        parkedReader = null;
+                    } else {
+                        waitStrategy.idle(round);
+                    }
+                }
+            }
+        }
+        
+        private void checkWaiting() throws IOException {
+            if (readerClosed) throw new IOException("Pipe closed");
+            if (Thread.interrupted()) throw new InterruptedIOException("Interrupted while writing pipe");
+        }
+        
+        private void wakeReader() {
+            Thread reader = parkedReader;
+            if (reader != null) LockSupport.unpark(reader);
+        }
+        
+        private void copyIn(long position, byte[] b, int off, int len) {
+            int index = (int) position & mask;
+            int first = Math.min(len, buffer.length - index);
+            System.arraycopy(b, off, buffer, index, first);
+            System.arraycopy(b, off + first, buffer, 0, len - first);
+        }
+        
+        private void copyOut(long position, byte[] b, int off, int len) {
+            int index = (int) position & mask;
+            int first = Math.min(len, buffer.length - index);
+            System.arraycopy(buffer, index, b, off, first);
+            System.arraycopy(buffer, 0, b, off + first, len - first);
+        }
+    }
+    
+    
+    /**
+     * Reads the lines of several files as one concatenated text, replacing
+     * SequenceInputStream plus InputStreamReader. Bytes are read with scattering
+     * FileChannel reads into pooled direct buffers, one segment ahead on a
+     * background thread, so the next file is already being opened and read while
+     * the end of the current one is consumed. One CharsetDecoder (UTF-8 unless
+     * given, malformed input replaced as InputStreamReader does) decodes into a
+     * reused CharBuffer, and forEachLine hands out each line as a reused
+     * CharSequence view, so scanning lines allocates nothing per line.
+     *
+     * Lines end at '\n' or "\r\n". As with SequenceInputStream the files are
+     * concatenated byte for byte, so a file without a trailing newline runs into
+     * the next one.
+     */
+    public static class ConcatenatedFileReader implements Closeable {
+        public static final int BUFFER_SIZE = 16 * 1024;
+        private static final int BUFFERS_PER_READ = 4;
+        private static final int MAX_POOLED_BUFFERS = 64;
+        
+        private static final ConcurrentLinkedQueue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+        private static final ExecutorService READ_AHEAD = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "concatenated-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        private final List<Path> files;
+        private final CharsetDecoder decoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer carry = ByteBuffer.allocate(16); // a character split between buffers
+        private final StringBuilder partial = new StringBuilder();
+        private final LineView view = new LineView();
+        
+        // Touched only by the read-ahead task; one task runs at a time
+        private int nextFile;
+        private FileChannel channel;
+        
+        private ByteBuffer[] segment;
+        private int segmentIndex;
+        private ByteBuffer[] spare;
+        private CompletableFuture<ByteBuffer[]> pending;
+        private boolean endOfInput;
+        private boolean decoderFlushed;
+        private boolean closed;
+        
+        public ConcatenatedFileReader(List<Path> files) {
+            this(files, StandardCharsets.UTF_8);
+        }
+        
+        public ConcatenatedFileReader(List<Path> files, Charset charset) {
+            this.files = List.copyOf(files);
+            this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.chars.flip();
+            this.spare = takeBuffers();
+            this.pending = readAhead(takeBuffers());
+        }
+        
+        /** The next line without its terminator, or null at the end of the last file. */
+        public String readLine() throws IOException {
+            CharSequence line = nextLine();
+            return line == null ? null : line.toString();
+        }
+        
+        /**
+         * Passes every remaining line to action and returns how many there were.
+         * The CharSequence is only valid during the call; copy it to keep it.
+         */
+        public long forEachLine(Consumer<CharSequence> action) throws IOException {
+            long count = 0;
+            for (CharSequence line; (line = nextLine()) != null; count++) {
+                action.accept(line);
+            }
+            return count;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                // The read-ahead task owns its buffers and the channel until it finishes
+                ByteBuffer[] last = pending.handle((buffers, error) -> buffers).join();
+                if (last != null) releaseBuffers(last);
+            } finally {
+                releaseBuffers(segment);
+                releaseBuffers(spare);
+                if (channel != null) channel.close();
+            }
+        }
+        
+        private CharSequence nextLine() throws IOException {
+            if (closed) throw new IOException("Reader closed");
+            partial.setLength(0);
+            boolean spansChunks = false;
+            while (true) {
+                if (!chars.hasRemaining() && !decodeMore()) {
+                    return spansChunks ? trimCarriageReturn(partial) : null;
+                }
+                char[] array = chars.array();
+                int start = chars.position();
+                int limit = chars.limit();
+                for (int i = start; i < limit; i++) {
+                    if (array[i] != '\n') continue;
+                    chars.position(i + 1);
+                    if (spansChunks) {
+                        partial.append(array, start, i - start);
+                        return trimCarriageReturn(partial);
+                    }
+                    int end = i > start && array[i - 1] == '\r' ? i - 1 : i;
+                    return view.of(array, start, end - start);
+                }
+                partial.append(array, start, limit - start);
+                spansChunks = true;
+                chars.position(limit);
+            }
+        }
+        
+        private static CharSequence trimCarriageReturn(StringBuilder line) {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') line.setLength(length - 1);
+            return line;
+        }
+        
+        // Refills chars from the byte buffers; false once all input is decoded
+        private boolean decodeMore() throws IOException {
+            if (decoderFlushed) return false;
+            chars.clear();
+            while (chars.position() == 0) {
+                ByteBuffer in = nextBytes();
+                if (in == null) {
+                    carry.flip();
+                    decoder.decode(carry, chars, true);
+                    carry.clear();
+                    decoder.flush(chars);
+                    decoderFlushed = true;
+                    break;
+                }
+                // Finish a character whose bytes straddle two buffers, a byte at a time
+                while (carry.position() > 0 && in.hasRemaining() && chars.hasRemaining()) {
+                    carry.put(in.get()).flip();
+                    decoder.decode(carry, chars, false);
+                    carry.compact();
+                }
+                decoder.decode(in, chars, false);
+                if (in.hasRemaining() && chars.hasRemaining()) {
+                    carry.put(in); // an incomplete character at the end of the buffer
+                }
+            }
+            chars.flip();
+            return chars.hasRemaining();
+        }
+        
+        // The next unread bytes, or null at the end of the last file. Each direct
+        // buffer is bulk-copied into one heap buffer first: the JDK's decoders only
+        // take their array fast paths on heap buffers, and the copy costs far less.
+        private ByteBuffer nextBytes() throws IOException {
+            while (true) {
+                if (bytes.hasRemaining()) return bytes;
+                if (segment != null) {
+                    for (; segmentIndex < segment.length; segmentIndex++) {
+                        ByteBuffer direct = segment[segmentIndex];
+                        if (direct.hasRemaining()) {
+                            bytes.clear();
+                            bytes.put(direct).flip();
+                            return bytes;
+                        }
+                    }
+                }
+                if (endOfInput) return null;
+                
+                ByteBuffer[] next;
+                try {
+                    next = pending.join();
+                } catch (CompletionException e) {
+                    pending = CompletableFuture.completedFuture(null);
+                    endOfInput = true;
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw e;
+                }
+                ByteBuffer[] consumed = segment != null ? segment : spare;
+                segment = next;
+                segmentIndex = 0;
+                spare = null;
+                if (!next[0].hasRemaining()) {
+                    // An empty segment marks the end of the last file
+                    endOfInput = true;
+                    spare = consumed;
+                    pending = CompletableFuture.completedFuture(null);
+                } else {
+                    pending = readAhead(consumed);
+                }
+            }
+        }
+        
+        private CompletableFuture<ByteBuffer[]> readAhead(ByteBuffer[] buffers) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fill(buffers);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, READ_AHEAD);
+        }
+        
+        // One scattering read from the current file, moving on to the next file at its end
+        private ByteBuffer[] fill(ByteBuffer[] buffers) throws IOException {
+            for (ByteBuffer buffer : buffers) {
+                buffer.clear();
+            }
+            while (true) {
+                if (channel == null) {
+                    if (nextFile == files.size()) break;
+                    channel = FileChannel.open(files.get(nextFile++), StandardOpenOption.READ);
+                }
+                if (channel.read(buffers) > 0) break;
+                channel.close();
+                channel = null;
+            }
+            for (ByteBuffer buffer : buffers) {
+                buffer.flip();
+            }
+            return buffers;
+        }
+        
+        private static ByteBuffer[] takeBuffers() {
+            ByteBuffer[] buffers = new ByteBuffer[BUFFERS_PER_READ];
+            for (int i = 0; i < buffers.length; i++) {
+                ByteBuffer pooled = BUFFER_POOL.poll();
+                buffers[i] = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            return buffers;
+        }
+        
+        private static void releaseBuffers(ByteBuffer[] buffers) {
+            if (buffers == null) return;
+            for (ByteBuffer buffer : buffers) {
+                // Approximate bound; the pool only saves allocations, it never blocks
+                if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) BUFFER_POOL.offer(buffer);
+            }
+        }
+        
+        // A window onto the decoded chars; reused for every line
+        private static final class LineView implements CharSequence {
+            private char[] array;
+            private int offset;
+            private int length;
+            
+            LineView of(char[] array, int offset, int length) {
+                this.array = array;
+                this.offset = offset;
+                this.length = length;
+                return this;
+            }
+            
+            @Override public int length() { return length; }
+            
+            @Override
+            public char charAt(int index) {
+                Objects.checkIndex(index, length);
+                return array[offset + index];
+            }
+            
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                Objects.checkFromToIndex(start, end, length);
+                return new String(array, offset + start, end - start);
+            }
+            
+            @Override
+            public String toString() {
+                return new String(array, offset, length);
+            }
+        }
+    }
+    
+    // MARK: - Compression Streams
+    
+    public static void demonstrateCompressionStreams() throws IOException {
+        System.out.println("\n=== Compression Streams Demonstration ===");
+        
+        String originalFile = "large_content.txt";
+        String compressedFile = "compressed.gz";
+        
+        // Create a file with substantial content
+        try (PrintWriter pw = new PrintWriter(new FileWriter(originalFile))) {
+            for (int i = 0; i < 1000; i++) {
+                pw.printf("Line %04d: This is some repetitive content for compression testing.%n", i);
+            }
+        }
+        
+        long originalSize = Files.size(Paths.get(originalFile));
+        
+        // Compress with GZIP
+        try (FileInputStream fis = new FileInputStream(originalFile);
+             FileOutputStream fos = new FileOutputStream(compressedFile)) {
+            gzip(fis, fos);
+        }
+        
+        long compressedSize = Files.size(Paths.get(compressedFile));
+        double compressionRatio = (1.0 - (double) compressedSize / originalSize) * 100;
+        
+        System.out.printf("Compression results:%n");
+        System.out.printf("  Original size: %,d bytes%n", originalSize);
+        System.out.printf("  Compressed size: %,d bytes%n", compressedSize);
+        System.out.printf("  Compression ratio: %.1f%%%n", compressionRatio);
+        
+        // Same file through the block-parallel compressor; still one standard gzip member
+        String parallelFile = "compressed_parallel.gz";
+        try (FileInputStream fis = new FileInputStream(originalFile);
+             FileOutputStream fos = new FileOutputStream(parallelFile)) {
+            gzipParallel(fis, fos);
+        }
+        try (GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(parallelFile))) {
+            boolean identical = Arrays.equals(gzis.readAllBytes(),
+                                              Files.readAllBytes(Paths.get(originalFile)));
+            System.out.printf("  Parallel GZIP size: %,d bytes (round trip %s)%n",
+                Files.size(Paths.get(parallelFile)), identical ? "identical" : "MISMATCH");
+        }
+        
+        // Decompress
+        try (GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(compressedFile));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(gzis))) {
+            
+            System.out.println("First few lines after decompression:");
+            reader.lines().limit(3).forEach(line -> System.out.println("  " + line));
+        }
+        
+        // Indexed container: seek straight to line 500 instead of inflating from the start
+        Path indexedFile = Paths.get("compressed.icz");
+        try (InputStream in = Files.newInputStream(Paths.get(originalFile));
+             OutputStream out = new IndexedCompressedOutputStream(
+                 Files.newOutputStream(indexedFile), 8 * 1024, Deflater.DEFAULT_COMPRESSION)) {
+            in.transferTo(out);
+        }
+        try (IndexedCompressedReader reader = new IndexedCompressedReader(indexedFile)) {
+            System.out.printf("Indexed container: %,d bytes, %d chunks, %,d lines%n",
+                Files.size(indexedFile), reader.chunkCount(), reader.lineCount());
+            reader.readLines(500, 3).forEach(line -> System.out.println("  " + line));
+            System.out.printf("  (decompressed %d of %d chunks)%n",
+                reader.chunksInflated(), reader.chunkCount());
+            
+            try (InputStream all = reader.openStream(ForkJoinPool.commonPool())) {
+                boolean identical = Arrays.equals(all.readAllBytes(),
+                                                  Files.readAllBytes(Paths.get(originalFile)));
+                System.out.printf("  Parallel full scan %s%n", identical ? "identical" : "MISMATCH");
+            }
+        }
+        
+        // Clean up
+        Files.deleteIfExists(Paths.get(originalFile));
+        Files.deleteIfExists(Paths.get(compressedFile));
+        Files.deleteIfExists(Paths.get(parallelFile));
+        Files.deleteIfExists(indexedFile);
+    }
+    
+    /** Compresses in to out as one GZIP member, closes out, and returns the bytes read. */
+    public static long gzip(InputStream in, OutputStream out) throws IOException {
+        try (GZIPOutputStream gzos = new GZIPOutputStream(out)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                gzos.write(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * Compresses in to out with ParallelGZIPOutputStream on the common fork-join
+     * pool, closes out, and returns the bytes read.
+     */
+    public static long gzipParallel(InputStream in, OutputStream out) throws IOException {
+        try (ParallelGZIPOutputStream gzos = new ParallelGZIPOutputStream(out)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                gzos.write(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * pigz-style GZIP writer: input is cut into fixed-size blocks that are deflated
+     * concurrently on a ForkJoinPool. Each block is primed with the last 32KB of
+     * the block before it as a preset dictionary, so compression stays close to a
+     * single stream, and all but the last block end with a sync flush, so the raw
+     * deflate outputs concatenate into one valid stream. The result is a single
+     * standard gzip member that GZIPInputStream (or gunzip) reads as usual; the
+     * CRC-32 is computed per block and combined in order.
+     *
+     * Blocks are written in input order. At most two blocks per pool thread are in
+     * flight, which bounds memory at roughly 4 * parallelism * blockSize. Not
+     * thread-safe: one thread writes, the pool compresses.
+     */
+    public static class ParallelGZIPOutputStream extends FilterOutputStream {
+        public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+        private static final int DICTIONARY_SIZE = 32 * 1024;
+        private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+        };
+        
+        private final int level;
+        private final int blockSize;
+        private final ForkJoinPool pool;
+        private final int maxInFlight;
+        private final ArrayDeque<ForkJoinTask<Block>> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<Block> freeBlocks = new ArrayDeque<>();
+        private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        private final long[] gf2Even = new long[32];
+        private final long[] gf2Odd = new long[32];
+        
+        private Block current;
+        private Block previous;     // dictionary source for current
+        private Block lastWritten;  // dictionary of a block still in flight until the next write
+        private long crc;
+        private long totalLength;
+        private boolean finished;
+        
+        public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+            this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+        }
+        
+        public ParallelGZIPOutputStream(OutputStream out, int level, int blockSize,
+                                        ForkJoinPool pool) throws IOException {
+            super(out);
+            if (blockSize <= 0) throw new IllegalArgumentException("blockSize must be positive");
+            this.level = level;
+            this.blockSize = blockSize;
+            this.pool = pool;
+            this.maxInFlight = 2 * pool.getParallelism();
+            this.current = newBlock();
+            out.write(HEADER);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (finished) throw new IOException("Stream already finished");
+            while (len > 0) {
+                int count = Math.min(len, blockSize - current.length);
+                System.arraycopy(b, off, current.input, current.length, count);
+                current.length += count;
+                off += count;
+                len -= count;
+                if (current.length == blockSize) {
+                    dispatch(false);
+                }
+            }
+        }
+        
+        /** Writes the blocks already compressed; a partial block stays buffered. */
+        @Override
+        public void flush() throws IOException {
+            writeCompleted();
+            out.flush();
+        }
+        
+        /** Compresses the remaining input and writes the gzip trailer, leaving out open. */
+        public void finish() throws IOException {
+            if (finished) return;
+            dispatch(true);
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            finished = true;
+            byte[] trailer = new byte[8];
+            writeIntLE(trailer, 0, (int) crc);
+            writeIntLE(trailer, 4, (int) totalLength);
+            out.write(trailer);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                Deflater deflater;
+                while ((deflater = deflaters.poll()) != null) {
+                    deflater.end();
+                }
+                out.close();
+            }
+        }
+        
+        private void dispatch(boolean last) throws IOException {
+            Block block = current;
+            Block dictionary = previous;
+            block.last = last;
+            inFlight.add(pool.submit(() -> compress(block, dictionary)));
+            previous = block;
+            current = last ? null : newBlock();
+            
+            writeCompleted();
+            while (inFlight.size() > maxInFlight) {
+                writeOldest();
+            }
+        }
+        
+        private void writeCompleted() throws IOException {
+            while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                writeOldest();
+            }
+        }
+        
+        private void writeOldest() throws IOException {
+            Block block;
+            try {
+                block = inFlight.poll().join();
+            } catch (RuntimeException e) {
+                throw new IOException("Block compression failed", e);
+            }
+            out.write(block.output, 0, block.outputLength);
+            crc = crc32Combine(crc, block.crc, block.length);
+            totalLength += block.length;
+            
+            // The block before this one was its dictionary; nothing reads it any more
+            if (lastWritten != null) {
+                freeBlocks.add(lastWritten);
+            }
+            lastWritten = block;
+        }
+        
+        private Block compress(Block block, Block dictionary) {
+            CRC32 checksum = new CRC32();
+            checksum.update(block.input, 0, block.length);
+            block.crc = checksum.getValue();
+            
+            Deflater deflater = deflaters.poll();
+            if (deflater == null) {
+                deflater = new Deflater(level, true);
+            }
+            try {
+                if (dictionary != null) {
+                    int size = Math.min(DICTIONARY_SIZE, dictionary.length);
+                    deflater.setDictionary(dictionary.input, dictionary.length - size, size);
+                }
+                deflater.setInput(block.input, 0, block.length);
+                if (block.last) {
+                    deflater.finish();
+                }
+                int flush = block.last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+                block.outputLength = 0;
+                while (true) {
+                    if (block.outputLength == block.output.length) {
+                        block.output = Arrays.copyOf(block.output, block.output.length * 2);
+                    }
+                    int space = block.output.length - block.outputLength;
+                    int produced = deflater.deflate(block.output, block.outputLength, space, flush);
+                    block.outputLength += produced;
+                    // SYNC_FLUSH is complete once it leaves room in the buffer
+                    if (block.last ? deflater.finished() : produced < space) break;
+                }
+            } finally {
+                deflater.reset();
+                deflaters.add(deflater);
+            }
+            return block;
+        }
+        
+        private Block newBlock() {
+            Block block = freeBlocks.poll();
+            if (block == null) {
+                // Deflate output is at most slightly larger than its input
+                block = new Block(new byte[blockSize], new byte[blockSize + blockSize / 8 + 64]);
+            }
+            block.length = 0;
+            return block;
+        }
+        
+        // zlib's crc32_combine: the CRC of A+B from crc(A), crc(B) and len(B), by
+        // applying len(B) zero bytes to crc(A) as powers of a GF(2) operator
+        private long crc32Combine(long crc1, long crc2, long length2) {
+            if (length2 <= 0) return crc1;
+            long[] even = gf2Even;
+            long[] odd = gf2Odd;
+            odd[0] = 0xEDB88320L;   // operator for one zero bit
+            long row = 1;
+            for (int n = 1; n < 32; n++) {
+                odd[n] = row;
+                row <<= 1;
+            }
+            gf2MatrixSquare(even, odd); // two zero bits
+            gf2MatrixSquare(odd, even); // four zero bits
+            do {
+                gf2MatrixSquare(even, odd);
+                if ((length2 & 1) != 0) crc1 = gf2MatrixTimes(even, crc1);
+                length2 >>= 1;
+                if (length2 == 0) break;
+                gf2MatrixSquare(odd, even);
+                if ((length2 & 1) != 0) crc1 = gf2MatrixTimes(odd, crc1);
+                length2 >>= 1;
+            } while (length2 != 0);
+            return crc1 ^ crc2;
+        }
+        
+        private static long gf2MatrixTimes(long[] matrix, long vector) {
+            long sum = 0;
+            for (int i = 0; vector != 0; i++, vector >>>= 1) {
+                if ((vector & 1) != 0) sum ^= matrix[i];
+            }
+            return sum;
+        }
+        
+        private static void gf2MatrixSquare(long[] square, long[] matrix) {
+            for (int n = 0; n < 32; n++) {
+                square[n] = gf2MatrixTimes(matrix, matrix[n]);
+            }
+        }
+        
+        private static void writeIntLE(byte[] buffer, int offset, int value) {
+            buffer[offset] = (byte) value;
+            buffer[offset + 1] = (byte) (value >>> 8);
+            buffer[offset + 2] = (byte) (value >>> 16);
+            buffer[offset + 3] = (byte) (value >>> 24);
+        }
+        
+        private static final class Block {
+            final byte[] input;
+            byte[] output;
+            int length;
+            int outputLength;
+            long crc;
+            boolean last;
+            
+            Block(byte[] input, byte[] output) {
+                this.input = input;
+                this.output = output;
+            }
+        }
+    }
+    
+    /**
+     * Writer for an indexed, seekable compressed container: input is cut into
+     * independently deflated chunks (at the last line break when the chunk has
+     * one), and close() appends an index with each chunk's compressed offset, byte
+     * offset and first line. IndexedCompressedReader uses the index to decompress
+     * only the chunks a read needs, or many chunks at once for a full scan.
+     *
+     * Layout, big-endian:
+     *   int   magic "ICZ1"
+     *   ...   chunks, raw deflate each
+     *   index chunkCount x { long compressedOffset, long byteOffset, long firstLine,
+     *                        int compressedLength, int length, byte startsAtLineStart }
+     *   footer { long indexOffset, int chunkCount, int chunkSize, long totalBytes,
+     *            long lineCount, int reserved, int magic "ICZX" }
+     */
+    public static class IndexedCompressedOutputStream extends OutputStream {
+        public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+        static final int MAGIC = 0x49435A31;         // "ICZ1"
+        static final int FOOTER_MAGIC = 0x49435A58;  // "ICZX"
+        static final int ENTRY_BYTES = 3 * Long.BYTES + 2 * Integer.BYTES + 1;
+        static final int FOOTER_BYTES = 3 * Long.BYTES + 4 * Integer.BYTES;
+        
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final byte[] chunk;
+        private byte[] compressed;
+        private int chunkLength;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private long compressedOffset = Integer.BYTES;
+        private long byteOffset;
+        private long newlines;
+        private boolean atLineStart = true;
+        private int chunkCount;
+        private boolean closed;
+        
+        public IndexedCompressedOutputStream(OutputStream out) throws IOException {
+            this(out, DEFAULT_CHUNK_SIZE, Deflater.DEFAULT_COMPRESSION);
+        }
+        
+        public IndexedCompressedOutputStream(OutputStream out, int chunkSize, int level)
+                throws IOException {
+            if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+            this.out = out;
+            this.deflater = new Deflater(level, true);
+            this.chunk = new byte[chunkSize];
+            this.compressed = new byte[chunkSize + chunkSize / 8 + 64];
+            new DataOutputStream(out).writeInt(MAGIC);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (closed) throw new IOException("Stream closed");
+            while (len > 0) {
+                int count = Math.min(len, chunk.length - chunkLength);
+                System.arraycopy(b, off, chunk, chunkLength, count);
+                chunkLength += count;
+                off += count;
+                len -= count;
+                if (chunkLength == chunk.length) {
+                    // Cut after the last line break so lines rarely span chunks
+                    int cut = chunkLength;
+                    while (cut > 0 && chunk[cut - 1] != '\n') cut--;
+                    writeChunk(cut == 0 ? chunkLength : cut);
+                }
+            }
+        }
+        
+        /** Compresses the buffered input, then writes the index and footer. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            try {
+                if (chunkLength > 0) {
+                    writeChunk(chunkLength);
+                }
+                DataOutputStream footer = new DataOutputStream(out);
+                long indexOffset = compressedOffset;
+                index.writeTo(out);
+                long lineCount = byteOffset == 0 ? 0 : newlines + (atLineStart ? 0 : 1);
+                footer.writeLong(indexOffset);
+                footer.writeInt(chunkCount);
+                footer.writeInt(chunk.length);
+                footer.writeLong(byteOffset);
+                footer.writeLong(lineCount);
+                footer.writeInt(0);
+                footer.writeInt(FOOTER_MAGIC);
+                footer.flush();
+            } finally {
+                closed = true;
+                deflater.end();
+                out.close();
+            }
+        }
+        
+        private void writeChunk(int length) throws IOException {
+            deflater.reset();
+            deflater.setInput(chunk, 0, length);
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength,
+                                                     compressed.length - compressedLength);
+            }
+            out.write(compressed, 0, compressedLength);
+            
+            indexOut.writeLong(compressedOffset);
+            indexOut.writeLong(byteOffset);
+            indexOut.writeLong(atLineStart ? newlines : newlines + 1);
+            indexOut.writeInt(compressedLength);
+            indexOut.writeInt(length);
+            indexOut.writeByte(atLineStart ? 1 : 0);
+            chunkCount++;
+            
+            for (int i = 0; i < length; i++) {
+                if (chunk[i] == '\n') newlines++;
+            }
+            atLineStart = chunk[length - 1] == '\n';
+            compressedOffset += compressedLength;
+            byteOffset += length;
+            System.arraycopy(chunk, length, chunk, 0, chunkLength - length);
+            chunkLength -= length;
+        }
+    }
+    
+    /**
+     * Random-access reader for IndexedCompressedOutputStream files. Reads are
+     * positional, so one reader may serve several threads; each read
+     * decompresses only the chunks that overlap it.
+     */
+    public static class IndexedCompressedReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long[] compressedOffsets;
+        private final long[] byteOffsets;
+        private final long[] firstLines;
+        private final int[] compressedLengths;
+        private final int[] lengths;
+        private final boolean[] startsAtLineStart;
+        private final long totalBytes;
+        private final long lineCount;
+        private final LongAdder chunksInflated = new LongAdder();
+        
+        public IndexedCompressedReader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                int footerBytes = IndexedCompressedOutputStream.FOOTER_BYTES;
+                if (channel.size() < Integer.BYTES + footerBytes) {
+                    throw new IOException("Not an indexed compressed file: " + path);
+                }
+                ByteBuffer footer = readFully(channel.size() - footerBytes, footerBytes);
+                long indexOffset = footer.getLong();
+                int chunks = footer.getInt();
+                footer.getInt(); // chunk size, informational
+                totalBytes = footer.getLong();
+                lineCount = footer.getLong();
+                footer.getInt();
+                if (footer.getInt() != IndexedCompressedOutputStream.FOOTER_MAGIC
+                        || readFully(0, Integer.BYTES).getInt() != IndexedCompressedOutputStream.MAGIC) {
+                    throw new IOException("Not an indexed compressed file: " + path);
+                }
+                
+                compressedOffsets = new long[chunks];
+                byteOffsets = new long[chunks];
+                firstLines = new long[chunks];
+                compressedLengths = new int[chunks];
+                lengths = new int[chunks];
+                startsAtLineStart = new boolean[chunks];
+                ByteBuffer index = readFully(indexOffset,
+                    Math.multiplyExact(chunks, IndexedCompressedOutputStream.ENTRY_BYTES));
+                for (int i = 0; i < chunks; i++) {
+                    compressedOffsets[i] = index.getLong();
+                    byteOffsets[i] = index.getLong();
+                    firstLines[i] = index.getLong();
+                    compressedLengths[i] = index.getInt();
+                    lengths[i] = index.getInt();
+                    startsAtLineStart[i] = index.get() != 0;
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        public long size() { return totalBytes; }
+        public long lineCount() { return lineCount; }
+        public int chunkCount() { return lengths.length; }
+        
+        /** Chunks decompressed so far by this reader. */
+        public long chunksInflated() { return chunksInflated.sum(); }
+        
+        /** Decompresses chunk i. */
+        public byte[] readChunk(int i) throws IOException {
+            ByteBuffer input = readFully(compressedOffsets[i], compressedLengths[i]);
+            byte[] output = new byte[lengths[i]];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(input.array(), 0, compressedLengths[i]);
+                int produced = 0;
+                while (produced < output.length) {
+                    int n = inflater.inflate(output, produced, output.length - produced);
+                    if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IOException("Corrupt chunk " + i);
+                    }
+                    produced += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt chunk " + i, e);
+            } finally {
+                inflater.end();
+            }
+            chunksInflated.increment();
+            return output;
+        }
+        
+        /** Bytes [offset, offset + length) of the uncompressed data, clipped at its end. */
+        public byte[] readRange(long offset, int length) throws IOException {
+            if (offset < 0 || length < 0) throw new IllegalArgumentException("Negative offset or length");
+            int total = (int) Math.max(0, Math.min(length, totalBytes - offset));
+            byte[] result = new byte[total];
+            int filled = 0;
+            for (int i = chunkAt(byteOffsets, offset); filled < total; i++) {
+                byte[] data = readChunk(i);
+                int start = (int) (offset + filled - byteOffsets[i]);
+                int count = Math.min(total - filled, data.length - start);
+                System.arraycopy(data, start, result, filled, count);
+                filled += count;
+            }
+            return result;
+        }
+        
+        /** Up to count lines starting at line first (0-based), without line terminators. */
+        public List<String> readLines(long first, int count) throws IOException {
+            List<String> lines = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+            if (first < 0 || first >= lineCount || count <= 0) return lines;
+            
+            int i = chunkAt(firstLines, first);
+            long skip = first - firstLines[i] + (startsAtLineStart[i] ? 0 : 1);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            for (; i < lengths.length && lines.size() < count; i++) {
+                byte[] data = readChunk(i);
+                int start = 0;
+                for (int p = 0; p < data.length && lines.size() < count; p++) {
+                    if (data[p] != '\n') continue;
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        line.write(data, start, p - start);
+                        lines.add(decodeLine(line));
+                    }
+                    start = p + 1;
+                }
+                if (skip == 0 && lines.size() < count) {
+                    line.write(data, start, data.length - start);
+                }
+            }
+            if (line.size() > 0 && lines.size() < count) {
+                lines.add(decodeLine(line)); // last line without a trailing newline
+            }
+            return lines;
+        }
+        
+        /**
+         * The whole uncompressed content as a stream, decompressing up to two chunks
+         * per pool thread ahead of the reader, in order.
+         */
+        public InputStream openStream(ForkJoinPool pool) {
+            return new InputStream() {
+                private final ArrayDeque<ForkJoinTask<byte[]>> ahead = new ArrayDeque<>();
+                private final int window = 2 * pool.getParallelism();
+                private int nextChunk;
+                private byte[] current = new byte[0];
+                private int position;
+                
+                @Override
+                public int read() throws IOException {
+                    return fill() ? current[position++] & 0xff : -1;
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    Objects.checkFromIndexSize(off, len, b.length);
+                    if (len == 0) return 0;
+                    if (!fill()) return -1;
+                    int count = Math.min(len, current.length - position);
+                    System.arraycopy(current, position, b, off, count);
+                    position += count;
+                    return count;
+                }
+                
+                private boolean fill() throws IOException {
+                    while (position == current.length) {
+                        while (ahead.size() < window && nextChunk < lengths.length) {
+                            int chunk = nextChunk++;
+                            ahead.add(pool.submit(() -> {
+                                try {
+                                    return readChunk(chunk);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }));
+                        }
+                        if (ahead.isEmpty()) return false;
+                        try {
+                            current = ahead.poll().join();
+                        } catch (UncheckedIOException e) {
+                            throw e.getCause();
+                        }
+                        position = 0;
+                    }
+                    return true;
+                }
+                
+                @Override
+                public void close() {
+                    ahead.forEach(task -> task.cancel(false));
+                    ahead.clear();
+                }
+            };
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+        
+        // Index of the last chunk whose start (in starts) is <= value
+        private static int chunkAt(long[] starts, long value) {
+            int found = Arrays.binarySearch(starts, value);
+            if (found >= 0) {
+                // Equal starts (empty runs) resolve to the last of them
+                while (found + 1 < starts.length && starts[found + 1] == value) found++;
+                return found;
+            }
+            return Math.max(0, -found - 2);
+        }
+        
+        private static String decodeLine(ByteArrayOutputStream line) {
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length;
+            if (length > 0 && bytes[length - 1] == '\r') length--;
+            line.reset();
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        
+        private ByteBuffer readFully(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of indexed compressed file");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+    
+    // MARK: - NIO.2 Path and Files Integration
+    
+    public static void demonstrateNIO2Integration() throws IOException {
+        System.out.println("\n=== NIO.2 Integration Demonstration ===");
+        
+        // Using Paths with traditional streams
+        Path nioFile = Paths.get("nio_integration.txt");
+        
+        // Writing with Files.newBufferedWriter
+        try (BufferedWriter writer = Files.newBufferedWriter(nioFile, StandardCharsets.UTF_8)) {
+            writer.write("Line 1: NIO.2 integration\n");
+            writer.write("Line 2: Efficient file operations\n");
+            writer.write("Line 3: Better performance than traditional I/O\n");
+        }
+        
+        // Reading with Files.lines (Stream API)
+        System.out.println("Reading with Files.lines():");
+        try (Stream<String> lines = Files.lines(nioFile, StandardCharsets.UTF_8)) {
+            lines.map(line -> "  " + line)
+                 .forEach(System.out::println);
+        }
+        
+        // Copy with Files.copy
+        Path copyPath = Paths.get("nio_copy.txt");
+        Files.copy(nioFile, copyPath, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("File copied using Files.copy()");
+        
+        // Reading all bytes
+        byte[] allBytes = Files.readAllBytes(nioFile);
+        System.out.printf("Read %,d bytes using Files.readAllBytes()%n", allBytes.length);
+        
+        // Memory-mapped scan: lines are views onto the mapping until decoded
+        byte[] keyword = "performance".getBytes(StandardCharsets.US_ASCII);
+        try (MappedLineScanner scanner = new MappedLineScanner(nioFile);
+             Stream<MappedLineScanner.Line> lines = scanner.lines().parallel()) {
+            lines.filter(line -> line.contains(keyword))
+                 .map(line -> "  Mapped scan match at byte " + line.position() + ": " + line.decode())
+                 .forEachOrdered(System.out::println);
+        }
+        
+        // Clean up
+        Files.deleteIfExists(nioFile);
+        Files.deleteIfExists(copyPath);
+    }
+    
+    
+    /**
+     * Streams the lines of a file straight out of memory-mapped regions, as an
+     * alternative to Files.lines for large files. lines() is backed by a
+     * Spliterator that splits its byte range at the newline nearest the midpoint,
+     * so lines().parallel() spreads newline-aligned segments over the fork-join
+     * pool, and each line is a Line view onto the mapping: no String and no copy
+     * unless the caller asks for one. Files of any size work; at most
+     * MAX_MAPPING bytes are mapped per split at a time.
+     *
+     * Line views are reused: one per spliterator, valid only inside the stream
+     * operation that receives it. Materialize with decode() or toByteArray().
+     */
+    public static class MappedLineScanner implements Closeable {
+        public static final int MAX_MAPPING = 1 << 30;
+        private static final long MIN_SPLIT = 1 << 20;
+        private static final int SPLIT_PROBE = 8 * 1024;
+        
+        private final FileChannel channel;
+        private final long size;
+        
+        public MappedLineScanner(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+        
+        public long size() { return size; }
+        
+        /** The file's lines; call parallel() on the stream to scan segments concurrently. */
+        public Stream<Line> lines() {
+            return StreamSupport.stream(new LineSpliterator(0, size), false);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close(); // mappings stay valid until they are garbage collected
+        }
+        
+        /**
+         * One line, without its '\n' or "\r\n", as a window onto the mapped file. As
+         * a CharSequence it reads bytes as ISO-8859-1, which is exact for ASCII;
+         * decode() gives the text in any charset.
+         */
+        public static final class Line implements CharSequence {
+            private ByteBuffer buffer;
+            private int offset;
+            private int length;
+            private long position;
+            
+            Line set(ByteBuffer buffer, int offset, int length, long position) {
+                this.buffer = buffer;
+                this.offset = offset;
+                this.length = length;
+                this.position = position;
+                return this;
+            }
+            
+            /** Byte offset of the line in the file. */
+            public long position() { return position; }
+            
+            @Override public int length() { return length; }
+            
+            public byte byteAt(int index) {
+                Objects.checkIndex(index, length);
+                return buffer.get(offset + index);
+            }
+            
+            @Override
+            public char charAt(int index) {
+                return (char) (byteAt(index) & 0xFF);
+            }
+            
+            /** Index of the first occurrence of pattern at or after from, or -1. */
+            public int indexOf(byte[] pattern, int from) {
+                if (pattern.length == 0) return Math.max(0, Math.min(from, length));
+                int last = offset + length - pattern.length;
+                outer:
+                for (int i = offset + Math.max(0, from); i <= last; i++) {
+                    // Jump to the next candidate first byte, eight bytes per step
+                    i = indexOfByte(buffer, pattern[0], i, last + 1);
+                    if (i < 0) return -1;
+                    for (int j = 1; j < pattern.length; j++) {
+                        if (buffer.get(i + j) != pattern[j]) continue outer;
+                    }
+                    return i - offset;
+                }
+                return -1;
+            }
+            
+            public boolean contains(byte[] pattern) {
+                return indexOf(pattern, 0) >= 0;
+            }
+            
+            public byte[] toByteArray() {
+                byte[] bytes = new byte[length];
+                buffer.get(offset, bytes);
+                return bytes;
+            }
+            
+            public String decode(Charset charset) {
+                return new String(toByteArray(), charset);
+            }
+            
+            public String decode() {
+                return decode(StandardCharsets.UTF_8);
+            }
+            
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                Objects.checkFromToIndex(start, end, length);
+                byte[] bytes = new byte[end - start];
+                buffer.get(offset + start, bytes);
+                return new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+            
+            @Override
+            public String toString() {
+                return decode(StandardCharsets.ISO_8859_1);
+            }
+        }
+        
+        // Lines of [start, end); start is always a line start and end a line end
+        private final class LineSpliterator implements Spliterator<Line> {
+            private long start;
+            private final long end;
+            private final Line line = new Line();
+            private MappedByteBuffer mapped;
+            private long mappedStart;
+            private int next; // offset of the next line in mapped
+            
+            LineSpliterator(long start, long end) {
+                this.start = start;
+                this.end = end;
+            }
+            
+            @Override
+            public boolean tryAdvance(Consumer<? super Line> action) {
+                try {
+                    if (mapped == null) {
+                        if (start >= end) return false;
+                        map(start);
+                    }
+                    if (next == mapped.limit()) {
+                        long position = mappedStart + next;
+                        if (position >= end) return false;
+                        map(position);
+                    }
+                    int lineEnd = indexOfNewline(mapped, next, mapped.limit());
+                    if (lineEnd < 0 && mappedStart + mapped.limit() < end) {
+                        // The line runs past this mapping: remap from its start
+                        long position = mappedStart + next;
+                        map(position);
+                        lineEnd = indexOfNewline(mapped, 0, mapped.limit());
+                        if (lineEnd < 0 && mappedStart + mapped.limit() < end) {
+                            throw new IOException("Line longer than " + MAX_MAPPING + " bytes at " + position);
+                        }
+                    }
+                    if (lineEnd < 0) lineEnd = mapped.limit(); // last line, no trailing newline
+                    int length = lineEnd - next;
+                    if (length > 0 && mapped.get(lineEnd - 1) == '\r' && lineEnd < mapped.limit()) length--;
+                    action.accept(line.set(mapped, next, length, mappedStart + next));
+                    next = Math.min(lineEnd + 1, mapped.limit());
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public Spliterator<Line> trySplit() {
+                if (mapped != null || end - start < 2 * MIN_SPLIT) return null;
+                try {
+                    long split = lineStartAfter(start + (end - start) / 2);
+                    if (split <= start || split >= end) return null;
+                    LineSpliterator prefix = new LineSpliterator(start, split);
+                    start = split;
+                    return prefix;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public long estimateSize() {
+                return (end - start) / 64; // rough: bytes over a typical line length
+            }
+            
+            @Override
+            public int characteristics() {
+                return ORDERED | NONNULL | IMMUTABLE;
+            }
+            
+            private void map(long position) throws IOException {
+                mappedStart = position;
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                     Math.min(MAX_MAPPING, end - position));
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                next = 0;
+            }
+            
+            // Offset just past the first '\n' at or after position, read with small probes
+            private long lineStartAfter(long position) throws IOException {
+                ByteBuffer probe = ByteBuffer.allocate(SPLIT_PROBE).order(ByteOrder.LITTLE_ENDIAN);
+                while (position < end) {
+                    probe.clear();
+                    int read = channel.read(probe, position);
+                    if (read <= 0) break;
+                    int newline = indexOfNewline(probe.flip(), 0, read);
+                    if (newline >= 0) return position + newline + 1;
+                    position += read;
+                }
+                return end;
+            }
+        }
+        
+        private static final long ONES = 0x0101010101010101L;
+        private static final long HIGHS = 0x8080808080808080L;
+        
+        static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+            return indexOfByte(buffer, (byte) '\n', from, to);
+        }
+        
+        // First b in buffer[from, to), eight bytes per step when the buffer is little-endian:
+        // XOR turns matching bytes to zero, and (x - 0x01..) & ~x & 0x80.. flags the lowest one
+        static int indexOfByte(ByteBuffer buffer, byte b, int from, int to) {
+            if (buffer.order() == ByteOrder.LITTLE_ENDIAN) {
+                long pattern = ONES * (b & 0xFF);
+                for (; from + Long.BYTES <= to; from += Long.BYTES) {
+                    long word = buffer.getLong(from) ^ pattern;
+                    long found = (word - ONES) & ~word & HIGHS;
+                    if (found != 0) return from + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+            }
+            for (; from < to; from++) {
+                if (buffer.get(from) == b) return from;
+            }
+            return -1;
+        }
+    }
+    
+    // MARK: - Bulk File Operations
+    
+    public static void demonstrateBulkIO() throws IOException, InterruptedException {
+        System.out.println("\n=== Bulk I/O Demonstration ===");
+        
+        Path directory = Files.createTempDirectory("bulk_io_demo");
+        int files = 1000;
+        byte[] asset = ("asset payload, repeated for compression; ".repeat(100))
+            .getBytes(StandardCharsets.UTF_8);
+        
+        try (BulkIOExecutor executor = new BulkIOExecutor(64)) {
+            System.out.println("Executor threads: " + (executor.usesVirtualThreads()
+                ? "virtual" : "platform (virtual threads need JDK 21)"));
+            
+            List<BulkIOExecutor.Job> writes = new ArrayList<>();
+            List<BulkIOExecutor.Job> transforms = new ArrayList<>();
+            for (int i = 0; i < files; i++) {
+                Path file = directory.resolve(String.format("asset_%04d.bin", i));
+                writes.add(BulkIOExecutor.Job.write(file, asset));
+                transforms.add(i % 2 == 0
+                    ? BulkIOExecutor.Job.copy(file, directory.resolve(file.getFileName() + ".copy"))
+                    : BulkIOExecutor.Job.compress(file, directory.resolve(file.getFileName() + ".gz")));
+            }
+            
+            System.out.println("  write:          " + executor.runAll(writes));
+            System.out.println("  copy/compress:  " + executor.runAll(transforms));
+            
+            List<BulkIOExecutor.Job> reads = new ArrayList<>();
+            try (Stream<Path> listing = Files.list(directory)) {
+                listing.forEach(path -> reads.add(BulkIOExecutor.Job.read(path)));
+            }
+            System.out.println("  read:           " + executor.runAll(reads));
+        } finally {
+            try (Stream<Path> listing = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) listing::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+    
+    /**
+     * Runs many small, independent file jobs concurrently with at most
+     * maxConcurrency in flight: submitting blocks while the limit is reached, so a
+     * producer of thousands of jobs cannot queue unbounded work. Jobs run on
+     * virtual threads when the runtime has them (JDK 21+, looked up reflectively
+     * since this code targets 17) and otherwise on a pool of maxConcurrency
+     * platform threads, which on 17 is what keeps enough requests outstanding to
+     * keep an NVMe queue busy.
+     */
+    public static class BulkIOExecutor implements AutoCloseable {
+        
+        /** A unit of file work; returns the number of bytes it processed. */
+        @FunctionalInterface
+        public interface IOAction {
+            long run() throws IOException;
+        }
+        
+        /** A named IOAction. */
+        public static final class Job {
+            final String name;
+            final IOAction action;
+            
+            public Job(String name, IOAction action) {
+                this.name = name;
+                this.action = action;
+            }
+            
+            public static Job read(Path file) {
+                return new Job("read " + file.getFileName(), () -> {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        return in.transferTo(OutputStream.nullOutputStream());
+                    }
+                });
+            }
+            
+            public static Job write(Path file, byte[] data) {
+                return new Job("write " + file.getFileName(), () -> {
+                    Files.write(file, data);
+                    return data.length;
+                });
+            }
+            
+            public static Job copy(Path source, Path target) {
+                return new Job("copy " + source.getFileName(), () -> copyFile(source, target));
+            }
+            
+            public static Job compress(Path source, Path target) {
+                return new Job("compress " + source.getFileName(), () -> {
+                    try (InputStream in = Files.newInputStream(source);
+                         OutputStream out = Files.newOutputStream(target)) {
+                        gzip(in, out);
+                    }
+                    return Files.size(source);
+                });
+            }
+        }
+        
+        /**
+         * Outcome of one job: bytes processed or the failure, and its timings. The
+         * error is whatever the job threw: an IOException or an unchecked exception.
+         */
+        public static final class JobResult {
+            public final String name;
+            public final long bytes;
+            public final Exception error;
+            public final long queuedNanos;  // submission to start
+            public final long runNanos;     // start to finish
+            
+            JobResult(String name, long bytes, Exception error, long queuedNanos, long runNanos) {
+                this.name = name;
+                this.bytes = bytes;
+                this.error = error;
+                this.queuedNanos = queuedNanos;
+                this.runNanos = runNanos;
+            }
+        }
+        
+        /** Per-job results of a runAll batch, with totals and latency percentiles. */
+        public static final class BatchResult {
+            public final List<JobResult> results;
+            public final long elapsedNanos;
+            private final long[] sortedRunNanos;
+            
+            BatchResult(List<JobResult> results, long elapsedNanos) {
+                this.results = Collections.unmodifiableList(results);
+                this.elapsedNanos = elapsedNanos;
+                this.sortedRunNanos = results.stream().mapToLong(r -> r.runNanos).sorted().toArray();
+            }
+            
+            public long totalBytes() {
+                return results.stream().mapToLong(r -> r.bytes).sum();
+            }
+            
+            public long failures() {
+                return results.stream().filter(r -> r.error != null).count();
+            }
+            
+            /** Job run time at quantile q in [0, 1]. */
+            public long runNanosAt(double q) {
+                if (sortedRunNanos.length == 0) return 0;
+                int index = (int) Math.ceil(q * sortedRunNanos.length) - 1;
+                return sortedRunNanos[Math.max(0, Math.min(index, sortedRunNanos.length - 1))];
+            }
+            
+            @Override
+            public String toString() {
+                double seconds = elapsedNanos / 1e9;
+                return String.format("%,d jobs (%d failed), %,d bytes in %.1f ms (%.0f jobs/s, %.1f MB/s), "
+                        + "run p50 %.0f us, p99 %.0f us, max %.0f us",
+                    results.size(), failures(), totalBytes(), elapsedNanos / 1e6,
+                    results.size() / seconds, totalBytes() / seconds / (1 << 20),
+                    runNanosAt(0.5) / 1e3, runNanosAt(0.99) / 1e3, runNanosAt(1.0) / 1e3);
+            }
+        }
+        
+        static final long CLOSE_TIMEOUT_SECONDS = 60;
+        
+        private final ExecutorService executor;
+        private final boolean virtualThreads;
+        private final Semaphore permits;
+        
+        public BulkIOExecutor(int maxConcurrency) {
+            if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive");
+            this.permits = new Semaphore(maxConcurrency);
+            ExecutorService virtual = null;
+            try {
+                virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Pre-21 runtime
+            }
+            this.virtualThreads = virtual != null;
+            this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, task -> {
+                Thread thread = new Thread(task, "bulk-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        public boolean usesVirtualThreads() { return virtualThreads; }
+        
+        /**
+         * Starts job once fewer than maxConcurrency jobs are running, blocking until
+         * then. The future completes normally; a failed job carries its error.
+         */
+        public CompletableFuture<JobResult> submit(Job job) throws InterruptedException {
+            long submitted = System.nanoTime();
+            permits.acquire();
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    long started = System.nanoTime();
+                    long bytes = 0;
+                    Exception error = null;
+                    try {
+                        bytes = job.action.run();
+                    } catch (Exception e) {
+                        error = e; // unchecked ones too, so one bad job cannot sink runAll
+                    } finally {
+                        permits.release();
+                    }
+                    return new JobResult(job.name, bytes, error, started - submitted,
+                                         System.nanoTime() - started);
+                }, executor);
+            } catch (RuntimeException e) {
+                permits.release(); // rejected: the executor is shut down
+                throw e;
+            }
+        }
+        
+        /**
+         * Runs every job, at most maxConcurrency at a time, and waits for all of them.
+         * Failed jobs are reported in their JobResult; join only throws on errors
+         * (such as OutOfMemoryError) that no job result can carry.
+         */
+        public BatchResult runAll(Collection<Job> jobs) throws InterruptedException {
+            long start = System.nanoTime();
+            List<CompletableFuture<JobResult>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                futures.add(submit(job));
+            }
+            List<JobResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<JobResult> future : futures) {
+                results.add(future.join());
+            }
+            return new BatchResult(results, System.nanoTime() - start);
+        }
+        
+        /**
+         * Waits up to CLOSE_TIMEOUT_SECONDS for submitted jobs to finish, then stops
+         * the threads, interrupting jobs still running. If the caller is interrupted
+         * while waiting, jobs are interrupted at once and the interrupt is kept.
+         */
+        @Override
+        public void close() {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    // MARK: - Real-world Example: Configuration File Handler
+    
+    /**
+     * Properties-file configuration built for many concurrent readers. The
+     * current settings are an immutable ConfigSnapshot behind an AtomicReference:
+     * a read is one volatile load plus a map lookup, and typed getters parse each
+     * value once per snapshot. setProperty publishes a copy of the snapshot with a
+     * CAS and schedules a save; saves within SAVE_DEBOUNCE_MS coalesce into one
+     * write of the latest snapshot, made atomic with a temp file and a rename.
+     * Edits made to the file by others are picked up through a WatchService and
+     * published after RELOAD_DEBOUNCE_MS of quiet, unless unsaved local changes
+     * are pending (those win and are written over the file).
+     */
+    public static class ConfigFileHandler implements Closeable {
+        static final long SAVE_DEBOUNCE_MS = 200;
+        static final long RELOAD_DEBOUNCE_MS = 100;
+        
+        /** Called with the keys whose values changed and the snapshot that now holds them. */
+        @FunctionalInterface
+        public interface ChangeListener {
+            void configChanged(Set<String> changedKeys, ConfigSnapshot snapshot);
+        }
+        
+        /** An immutable set of settings; typed values are parsed once and cached. */
+        public static final class ConfigSnapshot {
+            private static final Object INVALID = new Object(); // cached "absent or unparseable"
+            
+            final Map<String, String> values;
+            final long version;
+            private final ConcurrentHashMap<String, Object> ints = new ConcurrentHashMap<>();
+            private final ConcurrentHashMap<String, Object> longs = new ConcurrentHashMap<>();
+            private final ConcurrentHashMap<String, Object> doubles = new ConcurrentHashMap<>();
+            private final ConcurrentHashMap<String, Object> booleans = new ConcurrentHashMap<>();
+            
+            ConfigSnapshot(Map<String, String> values, long version) {
+                this.values = Collections.unmodifiableMap(values);
+                this.version = version;
+            }
+            
+            public Map<String, String> asMap() { return values; }
+            public long version() { return version; }
+            
+            public String get(String key) {
+                return values.get(key);
+            }
+            
+            public int getInt(String key, int defaultValue) {
+                Object value = cached(ints, key, text -> Integer.valueOf(text.trim()));
+                return value == INVALID ? defaultValue : (Integer) value;
+            }
+            
+            public long getLong(String key, long defaultValue) {
+                Object value = cached(longs, key, text -> Long.valueOf(text.trim()));
+                return value == INVALID ? defaultValue : (Long) value;
+            }
+            
+            public double getDouble(String key, double defaultValue) {
+                Object value = cached(doubles, key, text -> Double.valueOf(text.trim()));
+                return value == INVALID ? defaultValue : (Double) value;
+            }
+            
+            public boolean getBoolean(String key, boolean defaultValue) {
+                Object value = cached(booleans, key, text -> {
+                    String trimmed = text.trim();
+                    if (trimmed.equalsIgnoreCase("true")) return Boolean.TRUE;
+                    if (trimmed.equalsIgnoreCase("false")) return Boolean.FALSE;
+                    throw new IllegalArgumentException(trimmed);
+                });
+                return value == INVALID ? defaultValue : (Boolean) value;
+            }
+            
+            private Object cached(ConcurrentHashMap<String, Object> cache, String key,
+                                  Function<String, Object> parser) {
+                Object value = cache.get(key);
+                if (value == null) {
+                    String text = values.get(key);
+                    try {
+                        value = text == null ? INVALID : parser.apply(text);
+                    } catch (IllegalArgumentException e) { // includes NumberFormatException
+                        value = INVALID;
+                    }
+                    cache.putIfAbsent(key, value);
+                }
+                return value;
+            }
+        }
+        
+        private final Path configPath;
+        private final AtomicReference<ConfigSnapshot> snapshot;
+        private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+        private final ScheduledExecutorService scheduler;
+        private final Object saveLock = new Object();
+        private volatile long savedVersion = -1; // version the file holds, -1 if none
+        private ScheduledFuture<?> pendingSave;   // guarded by saveLock
+        private ScheduledFuture<?> pendingReload; // touched only by the watch thread
+        private final WatchService watchService;
+        private final Thread watchThread;
+        private volatile boolean closed;
+        
+        public ConfigFileHandler(String filename) throws IOException {
+            this(filename, true);
+        }
+        
+        /** With watch false the file is read once and never reloaded. */
+        public ConfigFileHandler(String filename, boolean watch) throws IOException {
+            this.configPath = Paths.get(filename).toAbsolutePath();
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "config-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            
+            if (Files.exists(configPath)) {
+                this.snapshot = new AtomicReference<>(new ConfigSnapshot(loadConfig(), 0));
+                this.savedVersion = 0;
+            } else {
+                this.snapshot = new AtomicReference<>(new ConfigSnapshot(defaultConfig(), 0));
+                saveConfig();
+            }
+            
+            if (watch) {
+                watchService = configPath.getFileSystem().newWatchService();
+                configPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+                watchThread = new Thread(this::watchLoop, "config-watcher");
+                watchThread.setDaemon(true);
+                watchThread.start();
+            } else {
+                watchService = null;
+                watchThread = null;
+            }
+        }
+        
+        private Map<String, String> loadConfig() throws IOException {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(configPath, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            Map<String, String> values = new TreeMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                values.put(key, properties.getProperty(key));
+            }
+            return values;
+        }
+        
+        private static Map<String, String> defaultConfig() {
+            Map<String, String> values = new TreeMap<>();
+            values.put("server.host", "localhost");
+            values.put("server.port", "8080");
+            values.put("database.url", "jdbc:mysql://localhost:3306/app");
+            values.put("cache.enabled", "true");
+            values.put("log.level", "INFO");
+            return values;
+        }
+        
+        /** Writes the current snapshot now, replacing the file atomically. */
+        public void saveConfig() throws IOException {
+            synchronized (saveLock) {
+                if (pendingSave != null) {
+                    pendingSave.cancel(false);
+                    pendingSave = null;
+                }
+                ConfigSnapshot current = snapshot.get();
+                if (current.version == savedVersion) return; // already on disk
+                
+                Properties properties = new Properties();
+                properties.putAll(current.values);
+                Path temp = Files.createTempFile(configPath.getParent(), configPath.getFileName().toString(), ".tmp");
+                try {
+                    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                         Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8)) {
+                        properties.store(writer, "Application Configuration");
+                        writer.flush();
+                        channel.force(true);
+                    }
+                    Files.move(temp, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                savedVersion = current.version;
+            }
+        }
+        
+        public ConfigSnapshot snapshot() {
+            return snapshot.get();
+        }
+        
+        public String getProperty(String key) {
+            return snapshot.get().values.get(key);
+        }
+        
+        public int getInt(String key, int defaultValue) {
+            return snapshot.get().getInt(key, defaultValue);
+        }
+        
+        public long getLong(String key, long defaultValue) {
+            return snapshot.get().getLong(key, defaultValue);
+        }
+        
+        public double getDouble(String key, double defaultValue) {
+            return snapshot.get().getDouble(key, defaultValue);
+        }
+        
+        public boolean getBoolean(String key, boolean defaultValue) {
+            return snapshot.get().getBoolean(key, defaultValue);
+        }
+        
+        /** Publishes the new value immediately and saves it to disk shortly after. */
+        public void setProperty(String key, String value) {
+            Objects.requireNonNull(key);
+            Objects.requireNonNull(value);
+            ConfigSnapshot current;
+            ConfigSnapshot next;
+            do {
+                current = snapshot.get();
+                if (value.equals(current.values.get(key))) return;
+                Map<String, String> values = new TreeMap<>(current.values);
+                values.put(key, value);
+                next = new ConfigSnapshot(values, current.version + 1);
+            } while (!snapshot.compareAndSet(current, next));
+            notifyListeners(Set.of(key), next);
+            scheduleSave();
+        }
+        
+        public void addChangeListener(ChangeListener listener) {
+            listeners.add(Objects.requireNonNull(listener));
+        }
+        
+        public void removeChangeListener(ChangeListener listener) {
+            listeners.remove(listener);
+        }
+        
+        public void displayConfig() {
+            System.out.println("Current configuration:");
+            snapshot.get().values.forEach((key, value) -> 
+                System.out.printf("  %s = %s%n", key, value));
+        }
+        
+        /** Stops watching and writes any pending changes. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (watchService != null) {
+                    watchService.close();
+                    watchThread.interrupt();
+                }
+                saveConfig();
+            } finally {
+                scheduler.shutdownNow();
+            }
+        }
+        
+        private void scheduleSave() {
+            synchronized (saveLock) {
+                if (closed || (pendingSave != null && !pendingSave.isDone())) return;
+                pendingSave = scheduler.schedule(() -> {
+                    try {
+                        saveConfig();
+                    } catch (IOException e) {
+                        System.err.println("Config save failed: " + e.getMessage());
+                    }
+                }, SAVE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        private void watchLoop() {
+            Path name = configPath.getFileName();
+            try {
+                while (!closed) {
+                    WatchKey key = watchService.take();
+                    boolean ours = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        ours |= name.equals(event.context());
+                    }
+                    key.reset();
+                    if (ours && (pendingReload == null || pendingReload.isDone())) {
+                        pendingReload = scheduler.schedule(this::reload, RELOAD_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Closing
+            } catch (RejectedExecutionException e) {
+                // Scheduler shut down while closing
+            }
+        }
+        
+        private void reload() {
+            try {
+                if (closed || !Files.exists(configPath)) return;
+                Map<String, String> loaded = loadConfig();
+                ConfigSnapshot current;
+                ConfigSnapshot next;
+                do {
+                    current = snapshot.get();
+                    // Unsaved local edits win; they are about to overwrite the file
+                    if (current.version != savedVersion || loaded.equals(current.values)) return;
+                    next = new ConfigSnapshot(loaded, current.version + 1);
+                } while (!snapshot.compareAndSet(current, next));
+                savedVersion = next.version; // this is what the file holds
+                
+                Set<String> changed = new TreeSet<>(current.values.keySet());
+                changed.addAll(loaded.keySet());
+                ConfigSnapshot previous = current;
+                changed.removeIf(key -> Objects.equals(previous.values.get(key), loaded.get(key)));
+                notifyListeners(changed, next);
+            } catch (IOException e) {
+                System.err.println("Config reload failed: " + e.getMessage());
+            }
+        }
+        
+        private void notifyListeners(Set<String> changedKeys, ConfigSnapshot snapshot) {
+            for (ChangeListener listener : listeners) {
+                listener.configChanged(changedKeys, snapshot);
+            }
+        }
+    }
+    
+    public static void demonstrateConfigHandler() throws IOException, InterruptedException {
+        System.out.println("\n=== Real-world Example: Config File Handler ===");
+        
+        try (ConfigFileHandler configHandler = new ConfigFileHandler("app.config")) {
+            configHandler.displayConfig();
+            configHandler.addChangeListener((keys, snapshot) ->
+                System.out.println("  changed " + keys + " (version " + snapshot.version() + ")"));
+            
+            // Modify and save; both edits go to disk in one atomic write
+            configHandler.setProperty("server.port", "9090");
+            configHandler.setProperty("feature.new", "enabled");
+            configHandler.saveConfig();
+            
+            System.out.println("\nAfter modifications:");
+            configHandler.displayConfig();
+            System.out.println("Typed read: server.port = " + configHandler.getInt("server.port", 80));
+            
+            // An edit from outside is picked up by the watcher
+            String external = new String(Files.readAllBytes(Paths.get("app.config")), StandardCharsets.UTF_8)
+                .replace("log.level=INFO", "log.level=DEBUG");
+            Path temp = Paths.get("app.config.edit");
+            Files.write(temp, external.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, Paths.get("app.config"), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            for (int i = 0; i < 50 && !"DEBUG".equals(configHandler.getProperty("log.level")); i++) {
+                Thread.sleep(100);
+            }
+            System.out.println("After external edit: log.level = " + configHandler.getProperty("log.level"));
+        } finally {
+            // Clean up
+            Files.deleteIfExists(Paths.get("app.config"));
+        }
+    }
+    
+    // MARK: - Error Handling and Best Practices
+    
+    public static void demonstrateErrorHandling() {
+        System.out.println("\n=== Error Handling and Best Practices ===");
+        
+        // Try-with-resources demonstration
+        String tempFile = "temp_resource.txt";
+        
+        // Proper resource management with try-with-resources
+        try (FileWriter fw = new FileWriter(tempFile);
+             BufferedWriter bw = new BufferedWriter(fw);
+             PrintWriter pw = new PrintWriter(bw)) {
+            
+            pw.println("This file will be automatically closed");
+            pw.println("Even if an exception occurs");
+            
+            // Simulate an error
+            if (System.currentTimeMillis() % 2 == 0) {
+                throw new IOException("Simulated I/O error");
+            }
+            
+        } catch (IOException e) {
+            System.out.println("Error handled gracefully: " + e.getMessage());
+        } finally {
+            // Resources are automatically closed by try-with-resources
+            try {
+                Files.deleteIfExists(Paths.get(tempFile));
+            } catch (IOException e) {
+                System.out.println("Cleanup error: " + e.getMessage());
+            }
+        }
+        
+        // Demonstrating proper stream closing patterns
+        System.out.println("Best practices demonstrated:");
+        System.out.println("  1. Use try-with-resources for automatic cleanup");
+        System.out.println("  2. Prefer buffered streams for better performance");
+        System.out.println("  3. Handle character encoding explicitly");
+        System.out.println("  4. Use NIO.2 Files class for modern file operations");
+        System.out.println("  5. Always close streams in reverse order of opening");
+    }
+    
+    // MARK: - Main Method to Run All Demonstrations
+    
+    public static void main(String[] args) {
+        try {
+            demonstrateByteStreams();
+            demonstrateCharacterStreams();
+            demonstrateDataStreams();
+            demonstrateObjectStreams();
+            demonstrateAdvancedStreams();
+            demonstrateCompressionStreams();
+            demonstrateNIO2Integration();
+            demonstrateBulkIO();
+            demonstrateConfigHandler();
+            demonstrateErrorHandling();
+            
+            System.out.println("\n=== All I/O Stream Demonstrations Completed ===");
+            
+        } catch (Exception e) {
+            System.err.println("Demonstration failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
@@ -1,6 +1,32 @@
+package kernel;
+
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * Comprehensive Reinforcement Learning implementation in Java
@@ -28,6 +54,89 @@ public class ReinforcementLearning {
         boolean isTerminal(S state);
     }
     
+    /** Hooks into trainQLearning; called on the training thread after each step and episode. */
+    public interface TrainingListener<S, A> {
+        TrainingListener<Object, Object> NONE = new TrainingListener<>() {};
+        
+        default void onStep(S state, A action, StepResult<S> result) {}
+        default void onEpisodeEnd(int episode, double totalReward) {}
+        
+        /** This listener followed by next, for both callbacks. */
+        default TrainingListener<S, A> andThen(TrainingListener<S, A> next) {
+            if (next == NONE) return this;
+            if (this == NONE) return next;
+            TrainingListener<S, A> first = this;
+            return new TrainingListener<>() {
+                @Override
+                public void onStep(S state, A action, StepResult<S> result) {
+                    first.onStep(state, action, result);
+                    next.onStep(state, action, result);
+                }
+                
+                @Override
+                public void onEpisodeEnd(int episode, double totalReward) {
+                    first.onEpisodeEnd(episode, totalReward);
+                    next.onEpisodeEnd(episode, totalReward);
+                }
+            };
+        }
+        
+        @SuppressWarnings("unchecked")
+        static <S, A> TrainingListener<S, A> none() {
+            return (TrainingListener<S, A>) (TrainingListener<?, ?>) NONE;
+        }
+        
+        /** Prints reward and exploration rate every tenth of totalEpisodes. */
+        static <S, A> TrainingListener<S, A> progress(QLearning<S, A> qLearning, int totalEpisodes) {
+            int reportInterval = Math.max(1, totalEpisodes / 10);
+            return new TrainingListener<>() {
+                @Override
+                public void onEpisodeEnd(int episode, double totalReward) {
+                    if ((episode + 1) % reportInterval == 0) {
+                        System.out.printf("Episode %d: Reward=%.2f, Exploration=%.3f%n",
+                            episode + 1, totalReward, qLearning.getExplorationRate());
+                    }
+                }
+            };
+        }
+    }
+    
+    @FunctionalInterface
+    public interface QValueConsumer<S, A> {
+        void accept(S state, A action, double value);
+    }
+    
+    /**
+     * Maps a finite state or action space onto the dense index range [0, size()).
+     * encode returns -1 for values outside the space.
+     */
+    public interface IndexEncoder<T> extends Serializable {
+        int size();
+        int encode(T value);
+        T decode(int index);
+        
+        static <E extends Enum<E>> IndexEncoder<E> ofEnum(Class<E> type) {
+            return new EnumEncoder<>(type);
+        }
+    }
+    
+    public static class EnumEncoder<E extends Enum<E>> implements IndexEncoder<E> {
+        private final E[] constants;
+        
+        public EnumEncoder(Class<E> type) {
+            this.constants = type.getEnumConstants();
+        }
+        
+        @Override
+        public int size() { return constants.length; }
+        
+        @Override
+        public int encode(E value) { return value == null ? -1 : value.ordinal(); }
+        
+        @Override
+        public E decode(int index) { return constants[index]; }
+    }
+    
     // MARK: - Data Structures
     
     public static class StepResult<S> {
@@ -47,13 +156,18 @@ public class ReinforcementLearning {
         private final double defaultValue;
         
         public QTable(double defaultValue) {
-            this.table = new HashMap<>();
+            this(new HashMap<>(), defaultValue);
+        }
+        
+        private QTable(Map<S, Map<A, Double>> table, double defaultValue) {
+            this.table = table;
             this.defaultValue = defaultValue;
         }
         
         public double getQValue(S state, A action) {
-            return table.getOrDefault(state, new HashMap<>())
-                       .getOrDefault(action, defaultValue);
+            Map<A, Double> actionValues = table.get(state);
+            Double value = actionValues == null ? null : actionValues.get(action);
+            return value == null ? defaultValue : value; // no boxing of defaultValue
         }
         
         public void setQValue(S state, A action, double value) {
@@ -61,322 +175,3880 @@ public class ReinforcementLearning {
                  .put(action, value);
         }
         
+        /** Moves Q(state, action) toward target by rate and returns the new value. */
+        public double blendQValue(S state, A action, double target, double rate) {
+            double current = getQValue(state, action);
+            double updated = current + rate * (target - current);
+            setQValue(state, action, updated);
+            return updated;
+        }
+        
+        /** Whether several threads may call getQValue/blendQValue at the same time. */
+        public boolean supportsConcurrentUpdates() { return false; }
+        
         public A getBestAction(S state, List<A> availableActions) {
             if (availableActions.isEmpty()) return null;
             
-            return availableActions.stream()
-                .max(Comparator.comparingDouble(action -> getQValue(state, action)))
-                .orElse(availableActions.get(0));
+            // Indexed loop: no Stream, comparator or iterator on the hot path
+            A bestAction = availableActions.get(0);
+            double bestValue = getQValue(state, bestAction);
+            for (int i = 1, n = availableActions.size(); i < n; i++) {
+                A action = availableActions.get(i);
+                double value = getQValue(state, action);
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestAction = action;
+                }
+            }
+            return bestAction;
         }
         
         public double getMaxQValue(S state, List<A> availableActions) {
             if (availableActions.isEmpty()) return defaultValue;
             
-            return availableActions.stream()
-                .mapToDouble(action -> getQValue(state, action))
-                .max()
-                .orElse(defaultValue);
+            double maxValue = getQValue(state, availableActions.get(0));
+            for (int i = 1, n = availableActions.size(); i < n; i++) {
+                maxValue = Math.max(maxValue, getQValue(state, availableActions.get(i)));
+            }
+            return maxValue;
         }
         
         public Map<A, Double> getActionValues(S state) {
-            return Collections.unmodifiableMap(table.getOrDefault(state, new HashMap<>()));
+            return Collections.unmodifiableMap(table.getOrDefault(state, Collections.emptyMap()));
+        }
+        
+        public void forEachQValue(QValueConsumer<S, A> consumer) {
+            table.forEach((state, actionMap) ->
+                actionMap.forEach((action, value) -> consumer.accept(state, action, value)));
         }
         
         public void merge(QTable<S, A> other, double ratio) {
-            other.table.forEach((state, actionMap) -> {
-                Map<A, Double> currentActions = table.computeIfAbsent(state, k -> new HashMap<>());
-                actionMap.forEach((action, value) -> {
-                    double current = currentActions.getOrDefault(action, defaultValue);
-                    currentActions.put(action, current * (1 - ratio) + value * ratio);
-                });
+            other.forEachQValue((state, action, value) -> {
+                double current = getQValue(state, action);
+                setQValue(state, action, current * (1 - ratio) + value * ratio);
             });
         }
+        
+        /** An independent copy that can be trained and later merged back. */
+        public QTable<S, A> copy() {
+            QTable<S, A> copy = new QTable<>(defaultValue);
+            table.forEach((state, actionMap) -> copy.table.put(state, new HashMap<>(actionMap)));
+            return copy;
+        }
+        
+        public double getDefaultValue() { return defaultValue; }
     }
     
-    // MARK: - Core Q-Learning Algorithm
-    
-    public static class QLearning<S, A> {
-        private final QTable<S, A> qTable;
-        private final double learningRate;
-        private final double discountFactor;
-        private final double explorationRate;
-        private final double explorationDecay;
-        private final double minExplorationRate;
+    /**
+     * QTable backed by one flat double[] of size states * actions, addressed through
+     * IndexEncoders. Lookups never allocate; a bitset remembers which entries were
+     * written so getActionValues and merge see the same entries the hashed table would.
+     * The table also records which states were written since it was last merged into
+     * another table with mergeTouched, which walks only those states.
+     */
+    public static class DenseQTable<S, A> extends QTable<S, A> {
+        private final IndexEncoder<S> stateEncoder;
+        private final IndexEncoder<A> actionEncoder;
+        private final int actionCount;
+        private final int entryCount;
+        protected final double[] values;
+        protected final long[] written;
         
-        private int trainingEpisodes;
+        // States written since the touched set was last cleared (by mergeTouched or a
+        // federated round): a bitset for the membership test plus the list of members
+        // in insertion order
+        protected final long[] touchedMask;
+        protected final int[] touchedStates;
+        protected int touchedCount;
         
-        public QLearning(double learningRate, double discountFactor, 
-                        double initialExplorationRate, double explorationDecay,
-                        double minExplorationRate, double initialQValue) {
-            this.qTable = new QTable<>(initialQValue);
-            this.learningRate = learningRate;
-            this.discountFactor = discountFactor;
-            this.explorationRate = initialExplorationRate;
-            this.explorationDecay = explorationDecay;
-            this.minExplorationRate = minExplorationRate;
-            this.trainingEpisodes = 0;
+        public DenseQTable(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                          double defaultValue) {
+            this(stateEncoder, actionEncoder, defaultValue,
+                 filled(entryCount(stateEncoder, actionEncoder), defaultValue),
+                 new long[(entryCount(stateEncoder, actionEncoder) + 63) >>> 6]);
         }
         
-        public A chooseAction(S state, List<A> availableActions) {
-            if (availableActions.isEmpty()) {
-                return null;
+        /**
+         * Table over existing storage. values may be null for subclasses that keep
+         * their values elsewhere and override load, store, blend and copyValues.
+         */
+        protected DenseQTable(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                              double defaultValue, double[] values, long[] written) {
+            super(Collections.emptyMap(), defaultValue);
+            this.stateEncoder = stateEncoder;
+            this.actionEncoder = actionEncoder;
+            this.actionCount = actionEncoder.size();
+            this.entryCount = entryCount(stateEncoder, actionEncoder);
+            this.values = values;
+            this.written = written;
+            this.touchedMask = new long[(stateEncoder.size() + 63) >>> 6];
+            this.touchedStates = new int[stateEncoder.size()];
+        }
+        
+        /** Copies the values of source; the copy starts with nothing touched. */
+        protected DenseQTable(DenseQTable<S, A> source) {
+            this(source.stateEncoder, source.actionEncoder, source.getDefaultValue(),
+                 new double[source.entryCount], source.written.clone());
+            source.copyValues(0, DoubleBuffer.wrap(values), entryCount);
+        }
+        
+        private static int entryCount(IndexEncoder<?> stateEncoder, IndexEncoder<?> actionEncoder) {
+            long entries = (long) stateEncoder.size() * actionEncoder.size();
+            if (entries > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(
+                    "State/action space too large for a dense table: " + entries + " entries");
             }
-            
-            // Epsilon-greedy policy
-            if (ThreadLocalRandom.current().nextDouble() < explorationRate) {
-                // Exploration: random action
-                return availableActions.get(
-                    ThreadLocalRandom.current().nextInt(availableActions.size())
-                );
-            } else {
-                // Exploitation: best known action
-                return qTable.getBestAction(state, availableActions);
+            return (int) entries;
+        }
+        
+        private static double[] filled(int length, double value) {
+            double[] array = new double[length];
+            Arrays.fill(array, value);
+            return array;
+        }
+        
+        private int indexOf(S state, A action) {
+            int s = stateEncoder.encode(state);
+            int a = actionEncoder.encode(action);
+            return (s < 0 || a < 0) ? -1 : s * actionCount + a;
+        }
+        
+        private int checkedIndexOf(S state, A action) {
+            int index = indexOf(state, action);
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                    "State/action outside the encoded space: " + state + ", " + action);
             }
+            return index;
         }
         
-        public void update(S state, A action, double reward, S nextState, 
-                          List<A> nextAvailableActions) {
-            double currentQ = qTable.getQValue(state, action);
-            double maxNextQ = qTable.getMaxQValue(nextState, nextAvailableActions);
-            
-            // Q-learning update rule
-            double newQ = currentQ + learningRate * (
-                reward + discountFactor * maxNextQ - currentQ
-            );
-            
-            qTable.setQValue(state, action, newQ);
+        private boolean isWritten(int index) {
+            return (written[index >>> 6] & (1L << index)) != 0;
         }
         
-        public void decayExploration() {
-            trainingEpisodes++;
-            explorationRate = Math.max(
-                minExplorationRate,
-                explorationRate * explorationDecay
-            );
+        // Slot accessors; ConcurrentDenseQTable overrides them with atomic variants
+        // and MappedQTable with accessors on its file mapping
+        protected double load(int index) {
+            return values[index];
         }
         
-        public Policy<S, A> createGreedyPolicy() {
-            return state -> qTable.getBestAction(state, 
-                Collections.emptyList()); // Will be provided by environment
+        protected void store(int index, double value) {
+            values[index] = value;
+            written[index >>> 6] |= 1L << index;
+            markTouched(index / actionCount);
         }
         
-        // MARK: - Getters
-        public double getExplorationRate() { return explorationRate; }
-        public int getTrainingEpisodes() { return trainingEpisodes; }
-        public QTable<S, A> getQTable() { return qTable; }
-    }
-    
-    // MARK: - Example Environment: Grid World
-    
-    public static class GridWorld implements Environment<GridState, GridAction> {
-        private final int width;
-        private final int height;
-        private GridState currentState;
-        private final Set<GridState> obstacles;
-        private final GridState goalState;
-        private final double goalReward;
-        private final double obstaclePenalty;
-        private final double stepPenalty;
+        protected void markTouched(int state) {
+            long bit = 1L << state;
+            if ((touchedMask[state >>> 6] & bit) == 0) {
+                touchedMask[state >>> 6] |= bit;
+                touchedStates[touchedCount++] = state;
+            }
+        }
         
-        public GridWorld(int width, int height, GridState start, GridState goal,
-                        Set<GridState> obstacles, double goalReward, 
-                        double obstaclePenalty, double stepPenalty) {
-            this.width = width;
-            this.height = height;
-            this.currentState = start;
-            this.goalState = goal;
-            this.obstacles = obstacles;
-            this.goalReward = goalReward;
-            this.obstaclePenalty = obstaclePenalty;
-            this.stepPenalty = stepPenalty;
+        // Touched-list accessors for readers; ConcurrentDenseQTable reads them with acquire
+        protected int touchedCount() {
+            return touchedCount;
+        }
+        
+        protected int touchedState(int t) {
+            return touchedStates[t];
+        }
+        
+        protected void clearTouched() {
+            for (int t = 0; t < touchedCount; t++) {
+                int state = touchedStates[t];
+                touchedMask[state >>> 6] &= ~(1L << state);
+            }
+            touchedCount = 0;
+        }
+        
+        protected double blend(int index, double target, double rate) {
+            double current = load(index);
+            double updated = current + rate * (target - current);
+            store(index, updated);
+            return updated;
         }
         
         @Override
-        public GridState getCurrentState() {
-            return currentState;
+        public double getQValue(S state, A action) {
+            int index = indexOf(state, action);
+            return index < 0 ? getDefaultValue() : load(index);
         }
         
         @Override
-        public List<GridAction> getAvailableActions(GridState state) {
-            List<GridAction> actions = new ArrayList<>();
+        public void setQValue(S state, A action, double value) {
+            store(checkedIndexOf(state, action), value);
+        }
+        
+        @Override
+        public double blendQValue(S state, A action, double target, double rate) {
+            return blend(checkedIndexOf(state, action), target, rate);
+        }
+        
+        @Override
+        public Map<A, Double> getActionValues(S state) {
+            int s = stateEncoder.encode(state);
+            if (s < 0) return Collections.emptyMap();
             
-            // Check all possible movements
-            for (GridAction action : GridAction.values()) {
-                GridState nextState = action.apply(state);
-                if (isValidState(nextState)) {
-                    actions.add(action);
+            Map<A, Double> actionValues = new LinkedHashMap<>();
+            for (int a = 0, base = s * actionCount; a < actionCount; a++) {
+                if (isWritten(base + a)) {
+                    actionValues.put(actionEncoder.decode(a), load(base + a));
                 }
             }
-            
-            return actions;
+            return Collections.unmodifiableMap(actionValues);
         }
         
         @Override
-        public StepResult<GridState> takeAction(GridAction action) {
-            GridState nextState = action.apply(currentState);
-            double reward = stepPenalty;
-            boolean terminal = false;
-            
-            if (!isValidState(nextState)) {
-                // Hit wall - stay in current state with penalty
-                nextState = currentState;
-                reward = obstaclePenalty;
-            } else if (obstacles.contains(nextState)) {
-                // Hit obstacle
-                reward = obstaclePenalty;
-                terminal = false;
-            } else if (nextState.equals(goalState)) {
-                // Reached goal
-                reward = goalReward;
-                terminal = true;
+        public void forEachQValue(QValueConsumer<S, A> consumer) {
+            for (int i = 0; i < entryCount; i++) {
+                if (isWritten(i)) {
+                    consumer.accept(stateEncoder.decode(i / actionCount),
+                                    actionEncoder.decode(i % actionCount), load(i));
+                }
             }
-            
-            currentState = nextState;
-            return new StepResult<>(nextState, reward, terminal);
         }
         
         @Override
-        public void reset() {
-            // Reset to random start position (not goal or obstacle)
-            GridState newStart;
-            do {
-                newStart = new GridState(
-                    ThreadLocalRandom.current().nextInt(width),
-                    ThreadLocalRandom.current().nextInt(height)
-                );
-            } while (newStart.equals(goalState) || obstacles.contains(newStart));
-            
-            currentState = newStart;
+        public void merge(QTable<S, A> other, double ratio) {
+            if (!(other instanceof DenseQTable) || !sameShape((DenseQTable<S, A>) other)) {
+                super.merge(other, ratio);
+                return;
+            }
+            DenseQTable<S, A> dense = (DenseQTable<S, A>) other;
+            for (int i = 0; i < entryCount; i++) {
+                if (dense.isWritten(i)) {
+                    store(i, load(i) * (1 - ratio) + dense.load(i) * ratio);
+                }
+            }
+        }
+        
+        /**
+         * Incremental merge: blends only the states other has written since it was last
+         * merged this way, then clears other's touched states. Unlike merge, it changes
+         * other, and each write reaches only the first table other is merged into.
+         */
+        public void mergeTouched(DenseQTable<S, A> other, double ratio) {
+            if (!sameShape(other)) {
+                throw new IllegalArgumentException("Tables differ in shape");
+            }
+            for (int t = 0, touched = other.touchedCount(); t < touched; t++) {
+                int base = other.touchedState(t) * actionCount;
+                for (int i = base; i < base + actionCount; i++) {
+                    if (other.isWritten(i)) {
+                        store(i, load(i) * (1 - ratio) + other.load(i) * ratio);
+                    }
+                }
+            }
+            other.clearTouched();
         }
         
         @Override
-        public boolean isTerminal(GridState state) {
-            return state.equals(goalState);
+        public QTable<S, A> copy() {
+            return new DenseQTable<>(this);
         }
         
-        private boolean isValidState(GridState state) {
-            return state.x >= 0 && state.x < width && 
-                   state.y >= 0 && state.y < height;
+        protected boolean isTouched(int state) {
+            return (touchedMask[state >>> 6] & (1L << state)) != 0;
+        }
+        
+        /** Copies a row from src at offset, written entries only, without marking it touched. */
+        protected void overlayRow(int state, double[] src, int offset, boolean[] srcWritten) {
+            int base = state * actionCount;
+            for (int a = 0; a < actionCount; a++) {
+                if (srcWritten[offset + a]) {
+                    values[base + a] = src[offset + a];
+                    written[(base + a) >>> 6] |= 1L << (base + a);
+                }
+            }
+        }
+        
+        private boolean sameShape(DenseQTable<S, A> other) {
+            return entryCount == other.entryCount && actionCount == other.actionCount;
+        }
+        
+        /** Bulk-copies length values starting at from into dst at its position. */
+        protected void copyValues(int from, DoubleBuffer dst, int length) {
+            dst.put(values, from, length);
         }
+        
+        /** Number of (state, action) slots: stateEncoder.size() * actionEncoder.size(). */
+        public int getEntryCount() { return entryCount; }
+        
+        public IndexEncoder<S> getStateEncoder() { return stateEncoder; }
+        public IndexEncoder<A> getActionEncoder() { return actionEncoder; }
     }
     
-    // MARK: - Grid World Components
-    
-    public static class GridState {
-        public final int x, y;
+    /**
+     * DenseQTable that many threads can update at once. Every slot is updated lock-free:
+     * blendQValue is a compare-and-set loop on the slot's raw long bits (VarHandle
+     * double CAS), so writers to different slots never contend and writers to the
+     * same slot retry instead of blocking.
+     *
+     * The touched-state list is appended by reserving a position (count first) and
+     * then publishing the state into it with a release store; unpublished positions
+     * hold -1. Readers acquire the count and wait for each slot, so merging out of this
+     * table sees every state whose position it counted. The list is reset at the end
+     * of such a merge, which must therefore not overlap with writers: a state appended
+     * after the count was read would be dropped from the list while its mask bit stays
+     * set.
+     */
+    public static class ConcurrentDenseQTable<S, A> extends DenseQTable<S, A> {
+        private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+        private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+        private static final int UNPUBLISHED = -1;
+        private static final VarHandle TOUCHED_COUNT;
         
-        public GridState(int x, int y) {
-            this.x = x;
-            this.y = y;
+        static {
+            try {
+                TOUCHED_COUNT = MethodHandles.lookup()
+                    .findVarHandle(DenseQTable.class, "touchedCount", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+        
+        public ConcurrentDenseQTable(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                                    double defaultValue) {
+            super(stateEncoder, actionEncoder, defaultValue);
+            Arrays.fill(touchedStates, UNPUBLISHED);
+        }
+        
+        private ConcurrentDenseQTable(ConcurrentDenseQTable<S, A> source) {
+            super(source);
+            Arrays.fill(touchedStates, UNPUBLISHED);
         }
         
         @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            GridState gridState = (GridState) o;
-            return x == gridState.x && y == gridState.y;
+        protected double load(int index) {
+            return (double) DOUBLES.getOpaque(values, index);
         }
         
         @Override
-        public int hashCode() {
-            return Objects.hash(x, y);
+        protected void store(int index, double value) {
+            DOUBLES.setRelease(values, index, value);
+            markWritten(index);
+            markTouched(index / getActionEncoder().size());
         }
         
         @Override
-        public String toString() {
-            return String.format("(%d, %d)", x, y);
+        protected double blend(int index, double target, double rate) {
+            double current;
+            double updated;
+            do {
+                current = (double) DOUBLES.getOpaque(values, index);
+                updated = current + rate * (target - current);
+            } while (!DOUBLES.weakCompareAndSet(values, index, current, updated));
+            markWritten(index);
+            markTouched(index / getActionEncoder().size());
+            return updated;
         }
-    }
-    
-    public enum GridAction {
-        UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0);
         
-        private final int dx, dy;
+        private void markWritten(int index) {
+            long bit = 1L << index;
+            int word = index >>> 6;
+            // Read first so settled words are never written again
+            if (((long) LONGS.getOpaque(written, word) & bit) == 0) {
+                LONGS.getAndBitwiseOr(written, word, bit);
+            }
+        }
         
-        GridAction(int dx, int dy) {
-            this.dx = dx;
-            this.dy = dy;
+        @Override
+        protected void markTouched(int state) {
+            long bit = 1L << state;
+            int word = state >>> 6;
+            if (((long) LONGS.getOpaque(touchedMask, word) & bit) == 0
+                    && ((long) LONGS.getAndBitwiseOr(touchedMask, word, bit) & bit) == 0) {
+                // Only the thread that set the bit appends the state
+                INTS.setRelease(touchedStates, (int) TOUCHED_COUNT.getAndAdd(this, 1), state);
+            }
         }
         
-        public GridState apply(GridState state) {
-            return new GridState(state.x + dx, state.y + dy);
+        @Override
+        protected int touchedCount() {
+            return (int) TOUCHED_COUNT.getAcquire(this);
         }
         
-        public static GridAction random() {
-            GridAction[] actions = values();
-            return actions[ThreadLocalRandom.current().nextInt(actions.length)];
+        @Override
+        protected int touchedState(int t) {
+            int state;
+            // The writer reserved t before publishing into it; the gap is a few instructions
+            while ((state = (int) INTS.getAcquire(touchedStates, t)) == UNPUBLISHED) {
+                Thread.onSpinWait();
+            }
+            return state;
+        }
+        
+        @Override
+        protected void clearTouched() {
+            for (int t = 0, touched = touchedCount(); t < touched; t++) {
+                int state = touchedState(t);
+                LONGS.getAndBitwiseAnd(touchedMask, state >>> 6, ~(1L << state));
+                INTS.setRelease(touchedStates, t, UNPUBLISHED);
+            }
+            TOUCHED_COUNT.setRelease(this, 0);
+        }
+        
+        @Override
+        public QTable<S, A> copy() {
+            return new ConcurrentDenseQTable<>(this);
         }
+        
+        @Override
+        public boolean supportsConcurrentUpdates() { return true; }
     }
     
-    // MARK: - Training and Evaluation
+    // MARK: - Persistent Q-Table Snapshots
+    
+    /**
+     * DenseQTable read in place from a snapshot file. open() maps the file
+     * copy-on-write (MapMode.PRIVATE): startup costs one mapping plus reading the
+     * written bitset, values page in on first touch, and training may update the
+     * table without changing the file. Save it again with MappedQTable.save.
+     *
+     * Private mappings need a writable file. A snapshot the process may not write
+     * (read-only storage or permissions) is mapped READ_ONLY instead, and a row is
+     * copied to the heap the first time one of its values is written.
+     *
+     * Snapshot layout, little-endian:
+     *   0  int    magic "QTBL"
+     *   4  int    format version (1)
+     *   8  int    state count
+     *   12 int    action count
+     *   16 double default value
+     *   24 ..63   reserved (zero)
+     *   64 double values[state count * action count], row-major by state
+     *   .. long   written bitset, one bit per value
+     */
+    public static class MappedQTable<S, A> extends DenseQTable<S, A> {
+        private static final int MAGIC = 0x4C425451; // "QTBL" read little-endian
+        private static final int VERSION = 1;
+        private static final int HEADER_BYTES = 64;
+        private static final int CHUNK_BYTES = 1 << 20;
+        
+        /** Most values one mapping can address. */
+        public static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / Double.BYTES;
+        
+        private final DoubleBuffer mapped;
+        private final int actionCount;
+        // Read-only mappings only: rows copied to the heap on first write, else null
+        private final double[][] heapRows;
+        
+        private MappedQTable(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                             double defaultValue, DoubleBuffer mapped, long[] written) {
+            super(stateEncoder, actionEncoder, defaultValue, null, written);
+            this.mapped = mapped;
+            this.actionCount = actionEncoder.size();
+            this.heapRows = mapped.isReadOnly() ? new double[stateEncoder.size()][] : null;
+        }
+        
+        /**
+         * Maps the snapshot at path. The encoders must describe the same state and
+         * action spaces the snapshot was saved with.
+         */
+        public static <S, A> MappedQTable<S, A> open(Path path, IndexEncoder<S> stateEncoder,
+                                                     IndexEncoder<A> actionEncoder) throws IOException {
+            // Copy-on-write mappings need a writable channel, though the file is never written
+            boolean writable = Files.isWritable(path);
+            try (FileChannel channel = writable
+                     ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                     : FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // read the whole header
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                    throw new IOException("Not a Q-table snapshot: " + path);
+                }
+                if (header.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported Q-table snapshot version " + header.getInt(4));
+                }
+                int states = header.getInt(8);
+                int actions = header.getInt(12);
+                if (states != stateEncoder.size() || actions != actionEncoder.size()) {
+                    throw new IOException(String.format(
+                        "Snapshot is %d states x %d actions, encoders are %d x %d",
+                        states, actions, stateEncoder.size(), actionEncoder.size()));
+                }
+                int entries = checkedEntries(states, actions);
+                long valuesBytes = (long) entries * Double.BYTES;
+                int writtenWords = (entries + 63) >>> 6;
+                if (channel.size() != HEADER_BYTES + valuesBytes + (long) writtenWords * Long.BYTES) {
+                    throw new IOException("Truncated or oversized Q-table snapshot: " + path);
+                }
+                
+                // The mapping stays valid after the channel is closed
+                FileChannel.MapMode mode = writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+                DoubleBuffer mapped = channel.map(mode, HEADER_BYTES, valuesBytes)
+                                             .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                long[] written = new long[writtenWords];
+                ByteBuffer bits = ByteBuffer.allocateDirect(Math.max(Long.BYTES,
+                        Math.min(CHUNK_BYTES, writtenWords * Long.BYTES))).order(ByteOrder.LITTLE_ENDIAN);
+                long position = HEADER_BYTES + valuesBytes;
+                for (int word = 0; word < writtenWords; ) {
+                    bits.clear().limit(Math.min(bits.capacity(), (writtenWords - word) * Long.BYTES));
+                    while (bits.hasRemaining()) {
+                        if (channel.read(bits, position + (long) word * Long.BYTES + bits.position()) < 0) {
+                            throw new IOException("Truncated Q-table snapshot: " + path);
+                        }
+                    }
+                    bits.flip();
+                    int count = bits.remaining() / Long.BYTES;
+                    bits.asLongBuffer().get(written, word, count);
+                    word += count;
+                }
+                return new MappedQTable<>(stateEncoder, actionEncoder, header.getDouble(16),
+                                          mapped, written);
+            }
+        }
+        
+        /**
+         * Writes table as a snapshot: to a temporary file next to path, then renamed
+         * over it, so readers only ever see a complete snapshot.
+         */
+        public static void save(DenseQTable<?, ?> table, Path path) throws IOException {
+            int states = table.getStateEncoder().size();
+            int actions = table.getActionEncoder().size();
+            int entries = checkedEntries(states, actions);
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(states).putInt(actions)
+                      .putDouble(table.getDefaultValue());
+                buffer.position(HEADER_BYTES);
+                
+                for (int from = 0; from < entries; ) {
+                    int count = Math.min(entries - from, buffer.remaining() / Double.BYTES);
+                    if (count == 0) {
+                        drain(channel, buffer);
+                        continue;
+                    }
+                    DoubleBuffer doubles = buffer.asDoubleBuffer();
+                    table.copyValues(from, doubles, count);
+                    buffer.position(buffer.position() + count * Double.BYTES);
+                    from += count;
+                }
+                for (long word : table.written) {
+                    if (buffer.remaining() < Long.BYTES) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(word);
+                }
+                drain(channel, buffer);
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        private static int checkedEntries(int states, int actions) {
+            long entries = (long) states * actions;
+            if (states <= 0 || actions <= 0 || entries > MAX_ENTRIES) {
+                throw new IllegalArgumentException(
+                    "Q-table snapshots hold 1 to " + MAX_ENTRIES + " entries, not " + entries);
+            }
+            return (int) entries;
+        }
+        
+        @Override
+        protected double load(int index) {
+            if (heapRows != null) {
+                double[] row = heapRows[index / actionCount];
+                if (row != null) return row[index % actionCount];
+            }
+            return mapped.get(index);
+        }
+        
+        @Override
+        protected void store(int index, double value) {
+            if (heapRows != null) {
+                heapRow(index / actionCount)[index % actionCount] = value;
+            } else {
+                mapped.put(index, value);
+            }
+            written[index >>> 6] |= 1L << index;
+            markTouched(index / actionCount);
+        }
+        
+        private double[] heapRow(int state) {
+            double[] row = heapRows[state];
+            if (row == null) {
+                row = heapRows[state] = new double[actionCount];
+                mapped.get(state * actionCount, row);
+            }
+            return row;
+        }
+        
+        @Override
+        protected double blend(int index, double target, double rate) {
+            double current = load(index);
+            double updated = current + rate * (target - current);
+            store(index, updated);
+            return updated;
+        }
+        
+        @Override
+        protected void copyValues(int from, DoubleBuffer dst, int length) {
+            if (heapRows == null) {
+                dst.put(mapped.slice(from, length));
+                return;
+            }
+            for (int i = from; i < from + length; i++) {
+                dst.put(load(i));
+            }
+        }
+        
+        /** A heap DenseQTable with this table's current values. */
+        @Override
+        public QTable<S, A> copy() {
+            return new DenseQTable<>(this);
+        }
+    }
+    
+    /**
+     * Periodic snapshots of a DenseQTable taken during trainQLearning without
+     * stalling it. Every intervalEpisodes episodes a checkpoint starts: each
+     * following episode end copies at most chunkEntries values into a private
+     * shadow table, and once the shadow is complete a background thread saves it
+     * with MappedQTable.save while training continues. A checkpoint is therefore
+     * fuzzy - rows are copied a few episodes apart - which is harmless for warm
+     * starts. If the previous save is still running, the next checkpoint waits
+     * for the next interval instead of blocking. close() takes a final, exact
+     * snapshot and stops the writer.
+     */
+    public static class QTableCheckpointer<S, A> implements TrainingListener<S, A>, AutoCloseable {
+        public static final int DEFAULT_CHUNK_ENTRIES = 1 << 16;
+        
+        private final DenseQTable<S, A> table;
+        private final Path path;
+        private final int intervalEpisodes;
+        private final int chunkEntries;
+        private final DenseQTable<S, A> shadow;
+        private final ExecutorService writer;
+        
+        private Future<?> pendingSave;
+        private int cursor = -1; // next value to copy, -1 when no checkpoint is in progress
+        private int checkpointsSaved;
+        
+        public QTableCheckpointer(DenseQTable<S, A> table, Path path, int intervalEpisodes) {
+            this(table, path, intervalEpisodes, DEFAULT_CHUNK_ENTRIES);
+        }
+        
+        public QTableCheckpointer(DenseQTable<S, A> table, Path path,
+                                  int intervalEpisodes, int chunkEntries) {
+            if (intervalEpisodes <= 0 || chunkEntries <= 0) {
+                throw new IllegalArgumentException("Interval and chunk size must be positive");
+            }
+            this.table = table;
+            this.path = path;
+            this.intervalEpisodes = intervalEpisodes;
+            // Whole bitset words per chunk, so written bits copy with the values
+            this.chunkEntries = Math.max(64, chunkEntries & ~63);
+            this.shadow = new DenseQTable<>(table.getStateEncoder(), table.getActionEncoder(),
+                                            table.getDefaultValue());
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "qtable-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        @Override
+        public void onEpisodeEnd(int episode, double totalReward) {
+            if (cursor < 0) {
+                if ((episode + 1) % intervalEpisodes != 0 || !saveFinished()) return;
+                cursor = 0;
+            }
+            copyChunk(chunkEntries);
+            if (cursor == table.getEntryCount()) {
+                cursor = -1;
+                pendingSave = writer.submit(() -> {
+                    MappedQTable.save(shadow, path);
+                    return null;
+                });
+            }
+        }
+        
+        /** Number of checkpoints fully written so far. */
+        public int getCheckpointsSaved() {
+            saveFinished();
+            return checkpointsSaved;
+        }
+        
+        /** Waits for a running save, then writes an exact snapshot of the table. */
+        @Override
+        public void close() throws IOException {
+            try {
+                awaitSave();
+                cursor = 0;
+                copyChunk(table.getEntryCount());
+                cursor = -1;
+                MappedQTable.save(shadow, path);
+                checkpointsSaved++;
+            } finally {
+                writer.shutdown();
+            }
+        }
+        
+        private void copyChunk(int maxEntries) {
+            int count = Math.min(maxEntries, table.getEntryCount() - cursor);
+            table.copyValues(cursor, DoubleBuffer.wrap(shadow.values, cursor, count), count);
+            int firstWord = cursor >>> 6;
+            int lastWord = (cursor + count + 63) >>> 6;
+            System.arraycopy(table.written, firstWord, shadow.written, firstWord, lastWord - firstWord);
+            cursor += count;
+        }
+        
+        // True when no save is running; surfaces a failed save on the training thread
+        private boolean saveFinished() {
+            if (pendingSave == null) return true;
+            if (!pendingSave.isDone()) return false;
+            collectSave();
+            return true;
+        }
+        
+        private void awaitSave() {
+            if (pendingSave != null) collectSave();
+        }
+        
+        private void collectSave() {
+            try {
+                pendingSave.get();
+                checkpointsSaved++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a checkpoint", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Checkpoint to " + path + " failed", e.getCause());
+            } finally {
+                pendingSave = null;
+            }
+        }
+    }
+    
+    // MARK: - Rollout Recording
+    
+    /**
+     * Streams every training step to a rollout file. Steps are buffered in primitive
+     * column arrays, blockSteps at a time; a full block goes to a background writer
+     * through a bounded queue and the training thread continues with a recycled
+     * block, so onStep never waits for I/O. If the writer falls so far behind that no
+     * block is free, steps are dropped and counted instead.
+     *
+     * File layout, little-endian:
+     *   0  int    magic "RLRO"
+     *   4  int    format version (1)
+     *   8  int    state count
+     *   12 int    action count
+     *   16 ..     blocks: int steps, six int column byte lengths, then the columns
+     *             episode      varint delta from the previous step
+     *             state        zigzag varint delta from the previous step
+     *             action       varint
+     *             reward       tag byte: 0 repeats the previous reward, 1 is
+     *                          followed by the raw 8-byte double
+     *             next state   zigzag varint, relative to state
+     *             terminal     bitset, one bit per step
+     * Deltas restart at every block, so each block decodes on its own.
+     */
+    public static class RolloutRecorder<S, A> implements TrainingListener<S, A>, AutoCloseable {
+        public static final int DEFAULT_BLOCK_STEPS = 1 << 14;
+        public static final int DEFAULT_QUEUE_BLOCKS = 8;
+        
+        static final int MAGIC = 0x4F524C52; // "RLRO" read little-endian
+        static final int VERSION = 1;
+        static final int HEADER_BYTES = 16;
+        static final int COLUMNS = 6;
+        static final int BLOCK_HEADER_BYTES = (1 + COLUMNS) * Integer.BYTES;
+        static final byte SAME_REWARD = 0;
+        static final byte RAW_REWARD = 1;
+        
+        private static final Block END = new Block(0);
+        
+        private final IndexEncoder<S> stateEncoder;
+        private final IndexEncoder<A> actionEncoder;
+        private final Path path;
+        private final FileChannel channel;
+        private final BlockingQueue<Block> filled;
+        private final BlockingQueue<Block> free;
+        private final Thread writer;
+        private final int blockSteps;
+        
+        // Training thread only
+        private Block block;
+        private int episode;
+        private long recordedSteps;
+        private long droppedSteps;
+        
+        private volatile boolean closed;
+        private volatile IOException failure;
+        private volatile long bytesWritten;
+        
+        static final class Block {
+            final int[] episodes;
+            final int[] states;
+            final int[] actions;
+            final int[] nextStates;
+            final double[] rewards;
+            final boolean[] terminals;
+            int size;
+            
+            Block(int capacity) {
+                this.episodes = new int[capacity];
+                this.states = new int[capacity];
+                this.actions = new int[capacity];
+                this.nextStates = new int[capacity];
+                this.rewards = new double[capacity];
+                this.terminals = new boolean[capacity];
+            }
+        }
+        
+        public RolloutRecorder(Path path, IndexEncoder<S> stateEncoder,
+                               IndexEncoder<A> actionEncoder) throws IOException {
+            this(path, stateEncoder, actionEncoder, DEFAULT_BLOCK_STEPS, DEFAULT_QUEUE_BLOCKS);
+        }
+        
+        public RolloutRecorder(Path path, IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                               int blockSteps, int queueBlocks) throws IOException {
+            if (blockSteps <= 0 || queueBlocks <= 0) {
+                throw new IllegalArgumentException("Block size and queue length must be positive");
+            }
+            this.stateEncoder = stateEncoder;
+            this.actionEncoder = actionEncoder;
+            this.path = path;
+            this.blockSteps = blockSteps;
+            // Both queues can hold every block, so a hand-off never waits for room
+            this.filled = new ArrayBlockingQueue<>(queueBlocks + 1);
+            this.free = new ArrayBlockingQueue<>(queueBlocks + 1);
+            for (int i = 0; i < queueBlocks; i++) {
+                free.add(new Block(blockSteps));
+            }
+            this.block = new Block(blockSteps);
+            
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                  .putInt(stateEncoder.size()).putInt(actionEncoder.size()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            this.bytesWritten = HEADER_BYTES;
+            
+            this.writer = new Thread(this::writeBlocks, "rollout-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        
+        /** Records one step; throws IllegalStateException once the recorder is closed. */
+        @Override
+        public void onStep(S state, A action, StepResult<S> result) {
+            if (closed) {
+                throw new IllegalStateException("Rollout recorder is closed: " + path);
+            }
+            Block current = block;
+            if (current == null && (current = block = free.poll()) == null) {
+                droppedSteps++;
+                return;
+            }
+            int i = current.size++;
+            current.episodes[i] = episode;
+            current.states[i] = stateEncoder.encode(state);
+            current.actions[i] = actionEncoder.encode(action);
+            current.rewards[i] = result.reward;
+            current.nextStates[i] = stateEncoder.encode(result.nextState);
+            current.terminals[i] = result.isTerminal;
+            recordedSteps++;
+            if (current.size == blockSteps) {
+                filled.add(current); // never full: see the constructor
+                block = free.poll();
+            }
+        }
+        
+        @Override
+        public void onEpisodeEnd(int episode, double totalReward) {
+            this.episode = episode + 1;
+        }
+        
+        public long getRecordedSteps() { return recordedSteps; }
+        public long getDroppedSteps() { return droppedSteps; }
+        
+        /** Bytes in the file so far; final once close() returns. */
+        public long getBytesWritten() { return bytesWritten; }
+        
+        /** Writes the partial block, waits for the writer and closes the file. */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (block != null && block.size > 0) {
+                    filled.put(block);
+                }
+                block = null;
+                filled.put(END);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted closing rollout " + path, e);
+            } finally {
+                channel.close();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        
+        private void writeBlocks() {
+            ByteBuffer buffer = ByteBuffer.allocate(maxBlockBytes(blockSteps)).order(ByteOrder.LITTLE_ENDIAN);
+            long written = bytesWritten;
+            try {
+                Block next;
+                while ((next = filled.take()) != END) {
+                    if (failure == null) {
+                        try {
+                            encode(next, buffer);
+                            while (buffer.hasRemaining()) {
+                                written += channel.write(buffer);
+                            }
+                            bytesWritten = written;
+                        } catch (IOException e) {
+                            failure = e; // reported by close(); later blocks are discarded
+                        }
+                    }
+                    next.size = 0;
+                    free.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        static int maxBlockBytes(int steps) {
+            // Varints: 5 bytes per int column, a tag and a raw double for the reward, plus the terminal bits
+            return BLOCK_HEADER_BYTES + steps * (4 * 5 + 1 + Double.BYTES) + (steps + 7) / 8;
+        }
+        
+        static void encode(Block block, ByteBuffer out) {
+            int size = block.size;
+            out.clear().position(BLOCK_HEADER_BYTES);
+            int start = out.position();
+            
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                putVarint(out, block.episodes[i] - previous);
+                previous = block.episodes[i];
+            }
+            out.putInt(Integer.BYTES, out.position() - start);
+            start = out.position();
+            
+            previous = 0;
+            for (int i = 0; i < size; i++) {
+                putVarint(out, zigzag(block.states[i] - previous));
+                previous = block.states[i];
+            }
+            out.putInt(2 * Integer.BYTES, out.position() - start);
+            start = out.position();
+            
+            for (int i = 0; i < size; i++) {
+                putVarint(out, block.actions[i]);
+            }
+            out.putInt(3 * Integer.BYTES, out.position() - start);
+            start = out.position();
+            
+            long previousBits = 0;
+            for (int i = 0; i < size; i++) {
+                long bits = Double.doubleToRawLongBits(block.rewards[i]);
+                if (bits == previousBits) {
+                    out.put(SAME_REWARD);
+                } else {
+                    out.put(RAW_REWARD).putLong(bits);
+                    previousBits = bits;
+                }
+            }
+            out.putInt(4 * Integer.BYTES, out.position() - start);
+            start = out.position();
+            
+            for (int i = 0; i < size; i++) {
+                putVarint(out, zigzag(block.nextStates[i] - block.states[i]));
+            }
+            out.putInt(5 * Integer.BYTES, out.position() - start);
+            start = out.position();
+            
+            for (int i = 0; i < size; i += 8) {
+                int bits = 0;
+                for (int b = 0; b < 8 && i + b < size; b++) {
+                    if (block.terminals[i + b]) bits |= 1 << b;
+                }
+                out.put((byte) bits);
+            }
+            out.putInt(6 * Integer.BYTES, out.position() - start);
+            out.putInt(0, size);
+            out.flip();
+        }
+        
+        static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+        
+        static void putVarint(ByteBuffer out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+    }
+    
+    /**
+     * Sequential reader for RolloutRecorder files. The file is memory-mapped in windows
+     * of whole blocks and each block decodes into reusable column arrays, so forEach
+     * allocates nothing per step. replay turns steps back into objects for listeners.
+     */
+    public static class RolloutReader implements AutoCloseable {
+        private static final long WINDOW_BYTES = 64L << 20;
+        
+        /** One recorded step, as encoder indices. */
+        @FunctionalInterface
+        public interface StepVisitor {
+            void visit(int episode, int state, int action, double reward, int nextState, boolean terminal);
+        }
+        
+        private final Path path;
+        private final FileChannel channel;
+        private final int stateCount;
+        private final int actionCount;
+        private RolloutRecorder.Block columns = new RolloutRecorder.Block(0);
+        
+        private RolloutReader(Path path, FileChannel channel, int stateCount, int actionCount) {
+            this.path = path;
+            this.channel = channel;
+            this.stateCount = stateCount;
+            this.actionCount = actionCount;
+        }
+        
+        public static RolloutReader open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                Math.min(channel.size(), RolloutRecorder.HEADER_BYTES))
+                                           .order(ByteOrder.LITTLE_ENDIAN);
+                if (header.remaining() < RolloutRecorder.HEADER_BYTES
+                        || header.getInt(0) != RolloutRecorder.MAGIC) {
+                    throw new IOException("Not a rollout file: " + path);
+                }
+                if (header.getInt(4) != RolloutRecorder.VERSION) {
+                    throw new IOException("Unsupported rollout version " + header.getInt(4));
+                }
+                return new RolloutReader(path, channel, header.getInt(8), header.getInt(12));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        public int getStateCount() { return stateCount; }
+        public int getActionCount() { return actionCount; }
+        
+        /** Visits every step in recording order and returns the number of steps. */
+        public long forEach(StepVisitor visitor) throws IOException {
+            long fileSize = channel.size();
+            long position = RolloutRecorder.HEADER_BYTES;
+            long steps = 0;
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            
+            while (position < fileSize) {
+                // Remap when the next block header or body runs past the current window
+                if (window == null || position + RolloutRecorder.BLOCK_HEADER_BYTES > windowStart + window.capacity()
+                        || position + blockBytes(window, (int) (position - windowStart))
+                           > windowStart + window.capacity()) {
+                    windowStart = position;
+                    window = map(windowStart, Math.min(WINDOW_BYTES, fileSize - windowStart));
+                    if (window.capacity() < RolloutRecorder.BLOCK_HEADER_BYTES) {
+                        throw new IOException("Truncated rollout block at " + position + " in " + path);
+                    }
+                    long bytes = blockBytes(window, 0);
+                    if (bytes > window.capacity()) {
+                        // A block bigger than the window gets a mapping of its own size
+                        if (bytes > fileSize - position || bytes > Integer.MAX_VALUE) {
+                            throw new IOException("Truncated rollout block at " + position + " in " + path);
+                        }
+                        window = map(windowStart, bytes);
+                    }
+                }
+                int offset = (int) (position - windowStart);
+                int size = decodeBlock(window, offset);
+                RolloutRecorder.Block block = columns;
+                for (int i = 0; i < size; i++) {
+                    visitor.visit(block.episodes[i], block.states[i], block.actions[i], block.rewards[i],
+                                  block.nextStates[i], block.terminals[i]);
+                }
+                steps += size;
+                position += blockBytes(window, offset);
+            }
+            return steps;
+        }
+        
+        /**
+         * Feeds the recording to listener as training would: onStep for every step with
+         * decoded states and actions, and onEpisodeEnd with each episode's total reward.
+         */
+        public <S, A> long replay(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                                  TrainingListener<S, A> listener) throws IOException {
+            int[] currentEpisode = {-1};
+            double[] episodeReward = {0};
+            long steps = forEach((episode, state, action, reward, nextState, terminal) -> {
+                if (episode != currentEpisode[0]) {
+                    if (currentEpisode[0] >= 0) listener.onEpisodeEnd(currentEpisode[0], episodeReward[0]);
+                    currentEpisode[0] = episode;
+                    episodeReward[0] = 0;
+                }
+                episodeReward[0] += reward;
+                listener.onStep(stateEncoder.decode(state), actionEncoder.decode(action),
+                                new StepResult<>(stateEncoder.decode(nextState), reward, terminal));
+            });
+            if (currentEpisode[0] >= 0) listener.onEpisodeEnd(currentEpisode[0], episodeReward[0]);
+            return steps;
+        }
+        
+        /** Total reward of every recorded episode, indexed by episode number. */
+        public double[] episodeRewards() throws IOException {
+            double[][] totals = {new double[1024]};
+            int[] episodes = {0};
+            forEach((episode, state, action, reward, nextState, terminal) -> {
+                if (episode >= totals[0].length) {
+                    totals[0] = Arrays.copyOf(totals[0], Math.max(episode + 1, totals[0].length * 2));
+                }
+                totals[0][episode] += reward;
+                episodes[0] = Math.max(episodes[0], episode + 1);
+            });
+            return Arrays.copyOf(totals[0], episodes[0]);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+        
+        private MappedByteBuffer map(long position, long size) throws IOException {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            return window;
+        }
+        
+        private static long blockBytes(ByteBuffer window, int offset) {
+            long bytes = RolloutRecorder.BLOCK_HEADER_BYTES;
+            for (int c = 1; c <= RolloutRecorder.COLUMNS; c++) {
+                bytes += window.getInt(offset + c * Integer.BYTES) & 0xFFFFFFFFL;
+            }
+            return bytes;
+        }
+        
+        // Decodes the block at offset into columns and returns its step count
+        private int decodeBlock(ByteBuffer window, int offset) {
+            int size = window.getInt(offset);
+            if (columns.episodes.length < size) {
+                columns = new RolloutRecorder.Block(size);
+            }
+            RolloutRecorder.Block block = columns;
+            ByteBuffer in = window.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            in.position(offset + RolloutRecorder.BLOCK_HEADER_BYTES);
+            
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += getVarint(in);
+                block.episodes[i] = previous;
+            }
+            previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += unzigzag(getVarint(in));
+                block.states[i] = previous;
+            }
+            for (int i = 0; i < size; i++) {
+                block.actions[i] = getVarint(in);
+            }
+            double reward = 0;
+            for (int i = 0; i < size; i++) {
+                if (in.get() != RolloutRecorder.SAME_REWARD) {
+                    reward = in.getDouble();
+                }
+                block.rewards[i] = reward;
+            }
+            for (int i = 0; i < size; i++) {
+                block.nextStates[i] = block.states[i] + unzigzag(getVarint(in));
+            }
+            for (int i = 0; i < size; i += 8) {
+                int bits = in.get();
+                for (int b = 0; b < 8 && i + b < size; b++) {
+                    block.terminals[i + b] = (bits & (1 << b)) != 0;
+                }
+            }
+            return size;
+        }
+        
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+        
+        private static int getVarint(ByteBuffer in) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+    
+    // MARK: - Core Q-Learning Algorithm
+    
+    public static class QLearning<S, A> {
+        private final QTable<S, A> qTable;
+        protected final double learningRate;
+        protected final double discountFactor;
+        private double explorationRate;
+        protected final double explorationDecay;
+        protected final double minExplorationRate;
+        
+        private int trainingEpisodes;
+        
+        // Argmax and max of the last scanned state, found in one pass by scanGreedy.
+        // update() scans the next state for its TD target, so the chooseAction that
+        // follows on that state reuses the result instead of rescanning.
+        private S greedyState;
+        private List<A> greedyActions;
+        private A greedyAction;
+        private double greedyValue;
+        
+        public QLearning(double learningRate, double discountFactor, 
+                        double initialExplorationRate, double explorationDecay,
+                        double minExplorationRate, double initialQValue) {
+            this(new QTable<>(initialQValue), learningRate, discountFactor,
+                 initialExplorationRate, explorationDecay, minExplorationRate);
+        }
+        
+        public QLearning(QTable<S, A> qTable, double learningRate, double discountFactor,
+                        double initialExplorationRate, double explorationDecay,
+                        double minExplorationRate) {
+            this.qTable = qTable;
+            this.learningRate = learningRate;
+            this.discountFactor = discountFactor;
+            this.explorationRate = initialExplorationRate;
+            this.explorationDecay = explorationDecay;
+            this.minExplorationRate = minExplorationRate;
+            this.trainingEpisodes = 0;
+        }
+        
+        public A chooseAction(S state, List<A> availableActions) {
+            if (availableActions.isEmpty()) {
+                return null;
+            }
+            
+            // Epsilon-greedy policy
+            if (ThreadLocalRandom.current().nextDouble() < explorationRate) {
+                // Exploration: random action
+                return availableActions.get(
+                    ThreadLocalRandom.current().nextInt(availableActions.size())
+                );
+            } else {
+                // Exploitation: best known action
+                if (availableActions != greedyActions || !state.equals(greedyState)) {
+                    scanGreedy(state, availableActions);
+                }
+                return greedyAction;
+            }
+        }
+        
+        public void update(S state, A action, double reward, S nextState, 
+                          List<A> nextAvailableActions) {
+            double maxNextQ = qTable.getDefaultValue();
+            if (!nextAvailableActions.isEmpty()) {
+                scanGreedy(nextState, nextAvailableActions);
+                maxNextQ = greedyValue;
+            }
+            
+            // Q-learning update rule: Q += learningRate * (target - Q), applied
+            // atomically by tables that support concurrent updates
+            qTable.blendQValue(state, action, reward + discountFactor * maxNextQ, learningRate);
+            if (state.equals(nextState)) {
+                // The write may have changed the cached argmax
+                greedyState = null;
+            }
+        }
+        
+        /**
+         * Replays a minibatch sampled from the buffer through the Q-learning update.
+         * Prioritized buffers are sampled by priority, get their priorities refreshed
+         * from the new TD errors, and scale each step by its importance-sampling weight.
+         */
+        public void replay(ReplayBuffer<S, A> buffer, int batchSize, Environment<S, A> environment) {
+            if (buffer.size() == 0) return;
+            
+            ReplayBatch batch = buffer.isPrioritized()
+                ? buffer.samplePrioritized(batchSize)
+                : buffer.sampleUniform(batchSize);
+            for (int i = 0; i < batch.size; i++) {
+                S state = buffer.decodeState(batch.states[i]);
+                A action = buffer.decodeAction(batch.actions[i]);
+                S nextState = buffer.decodeState(batch.nextStates[i]);
+                
+                double maxNextQ = batch.isTerminal[i]
+                    ? qTable.getDefaultValue()
+                    : qTable.getMaxQValue(nextState, environment.getAvailableActions(nextState));
+                double target = batch.rewards[i] + discountFactor * maxNextQ;
+                double currentQ = qTable.getQValue(state, action);
+                qTable.blendQValue(state, action, target, learningRate * batch.weights[i]);
+                
+                if (buffer.isPrioritized()) {
+                    buffer.updatePriority(batch.slots[i], target - currentQ);
+                }
+            }
+            // Replayed writes can touch any state, including the cached one
+            invalidateGreedy();
+        }
+        
+        /** Drops the cached argmax; subclasses call it after writing values update() did not. */
+        protected void invalidateGreedy() {
+            greedyState = null;
+        }
+        
+        private void scanGreedy(S state, List<A> availableActions) {
+            A bestAction = availableActions.get(0);
+            double bestValue = qTable.getQValue(state, bestAction);
+            for (int i = 1, n = availableActions.size(); i < n; i++) {
+                A candidate = availableActions.get(i);
+                double value = qTable.getQValue(state, candidate);
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestAction = candidate;
+                }
+            }
+            greedyState = state;
+            greedyActions = availableActions;
+            greedyAction = bestAction;
+            greedyValue = bestValue;
+        }
+        
+        public void decayExploration() {
+            trainingEpisodes++;
+            explorationRate = Math.max(
+                minExplorationRate,
+                explorationRate * explorationDecay
+            );
+        }
+        
+        /**
+         * Called by trainQLearning when an episode ends, at a terminal state or at the
+         * step limit. One-step Q-learning keeps no per-episode state.
+         */
+        public void endEpisode() {}
+        
+        /** A learner with the same hyperparameters and exploration rate, over the given table. */
+        public QLearning<S, A> withQTable(QTable<S, A> table) {
+            return new QLearning<>(table, learningRate, discountFactor,
+                                   explorationRate, explorationDecay, minExplorationRate);
+        }
+        
+        /** Greedy over the live table, choosing among availableActions(state). */
+        public Policy<S, A> createGreedyPolicy(Function<? super S, ? extends List<A>> availableActions) {
+            return state -> qTable.getBestAction(state, availableActions.apply(state));
+        }
+        
+        /**
+         * Greedy over the actions the table holds values for in each state; null for
+         * states it has never written. Prefer the overload given the environment's actions.
+         */
+        public Policy<S, A> createGreedyPolicy() {
+            return state -> qTable.getBestAction(state,
+                new ArrayList<>(qTable.getActionValues(state).keySet()));
+        }
+        
+        // MARK: - Getters
+        public double getExplorationRate() { return explorationRate; }
+        public int getTrainingEpisodes() { return trainingEpisodes; }
+        public QTable<S, A> getQTable() { return qTable; }
+    }
+    
+    // MARK: - Multi-Step Q-Learning
+    
+    /**
+     * Sparse eligibility traces over DenseQTable slots. Active slots and their traces
+     * sit in parallel primitive arrays, with a per-slot position index for O(1)
+     * lookup, so marking, decaying and pruning cost O(active traces) however large
+     * the table is. decay drops traces that fall below the cutoff.
+     */
+    public static class EligibilityTraces {
+        private final int[] positions; // index into slots/traces, -1 when inactive
+        private int[] slots = new int[64];
+        private double[] traces = new double[64];
+        private int size;
+        
+        public EligibilityTraces(int slotCount) {
+            this.positions = new int[slotCount];
+            Arrays.fill(positions, -1);
+        }
+        
+        public int size() { return size; }
+        public int slot(int i) { return slots[i]; }
+        public double trace(int i) { return traces[i]; }
+        
+        /** Sets the slot's trace to 1 (replacing traces). */
+        public void replace(int slot) {
+            int position = positions[slot];
+            if (position < 0) {
+                if (size == slots.length) {
+                    slots = Arrays.copyOf(slots, size * 2);
+                    traces = Arrays.copyOf(traces, size * 2);
+                }
+                position = size++;
+                slots[position] = slot;
+                positions[slot] = position;
+            }
+            traces[position] = 1.0;
+        }
+        
+        /** Multiplies every trace by factor and drops those below cutoff. */
+        public void decay(double factor, double cutoff) {
+            for (int i = 0; i < size; ) {
+                double trace = traces[i] * factor;
+                if (trace < cutoff) {
+                    // Swap-remove: move the last entry into i and revisit i
+                    positions[slots[i]] = -1;
+                    if (--size > i) {
+                        slots[i] = slots[size];
+                        traces[i] = traces[size];
+                        positions[slots[i]] = i;
+                    }
+                } else {
+                    traces[i++] = trace;
+                }
+            }
+        }
+        
+        public void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[slots[i]] = -1;
+            }
+            size = 0;
+        }
+    }
+    
+    /**
+     * Watkins's Q(lambda) over a DenseQTable. Each TD error is applied to every
+     * (state, action) with an active trace, so a reward reaches the whole recent path
+     * in one step instead of one state per visit. Traces decay by discount * lambda per
+     * step, are cut when the learner takes an exploratory action (the Watkins rule,
+     * keeping the backups off-policy correct) and are cleared at endEpisode.
+     */
+    public static class WatkinsQLambda<S, A> extends QLearning<S, A> {
+        /** Traces below this are dropped: about log(cutoff) / log(discount * lambda) stay active. */
+        public static final double TRACE_CUTOFF = 1e-3;
+        
+        private final DenseQTable<S, A> table;
+        private final double lambda;
+        private final EligibilityTraces traces;
+        
+        public WatkinsQLambda(DenseQTable<S, A> qTable, double learningRate, double discountFactor,
+                              double lambda, double initialExplorationRate,
+                              double explorationDecay, double minExplorationRate) {
+            super(qTable, learningRate, discountFactor,
+                  initialExplorationRate, explorationDecay, minExplorationRate);
+            this.table = qTable;
+            this.lambda = lambda;
+            this.traces = new EligibilityTraces(qTable.getEntryCount());
+        }
+        
+        @Override
+        public A chooseAction(S state, List<A> availableActions) {
+            A action = super.chooseAction(state, availableActions);
+            if (action != null && traces.size() > 0
+                    && table.getQValue(state, action) < table.getMaxQValue(state, availableActions)) {
+                traces.clear(); // exploratory: later rewards say nothing about the greedy policy
+            }
+            return action;
+        }
+        
+        @Override
+        public void update(S state, A action, double reward, S nextState, List<A> nextAvailableActions) {
+            double maxNextQ = nextAvailableActions.isEmpty()
+                ? table.getDefaultValue()
+                : table.getMaxQValue(nextState, nextAvailableActions);
+            int slot = table.checkedIndexOf(state, action);
+            double delta = reward + discountFactor * maxNextQ - table.load(slot);
+            
+            traces.replace(slot);
+            for (int i = 0, n = traces.size(); i < n; i++) {
+                int active = traces.slot(i);
+                // blend toward Q + delta at rate alpha * e is Q += alpha * delta * e
+                table.blend(active, table.load(active) + delta, learningRate * traces.trace(i));
+            }
+            traces.decay(discountFactor * lambda, TRACE_CUTOFF);
+            invalidateGreedy();
+        }
+        
+        @Override
+        public void endEpisode() {
+            traces.clear();
+        }
+        
+        @Override
+        public QLearning<S, A> withQTable(QTable<S, A> table) {
+            return new WatkinsQLambda<>(dense(table), learningRate, discountFactor, lambda,
+                                        getExplorationRate(), explorationDecay, minExplorationRate);
+        }
+        
+        /** Traces currently active, i.e. the per-step update cost. */
+        public int getActiveTraces() { return traces.size(); }
+    }
+    
+    /**
+     * n-step Q-learning over a DenseQTable: each (state, action) moves toward the next
+     * n discounted rewards plus discount^n * max Q of the state reached n steps later.
+     * The last n transitions sit in a primitive ring, so a step costs O(n). Backups are
+     * not importance-corrected for exploratory actions in between (the usual
+     * uncorrected n-step Q target). endEpisode flushes the transitions still pending,
+     * bootstrapping from the last state reached.
+     */
+    public static class NStepQLearning<S, A> extends QLearning<S, A> {
+        private final DenseQTable<S, A> table;
+        private final int steps;
+        private final int actionCount;
+        private final int[] slots;
+        private final double[] rewards;
+        private int head;
+        private int count;
+        
+        // The last next-state seen, for the endEpisode bootstrap
+        private int lastStateIndex = -1;
+        private List<A> lastActions = Collections.emptyList();
+        
+        public NStepQLearning(DenseQTable<S, A> qTable, double learningRate, double discountFactor,
+                              int steps, double initialExplorationRate,
+                              double explorationDecay, double minExplorationRate) {
+            super(qTable, learningRate, discountFactor,
+                  initialExplorationRate, explorationDecay, minExplorationRate);
+            if (steps < 1) {
+                throw new IllegalArgumentException("steps must be at least 1: " + steps);
+            }
+            this.table = qTable;
+            this.steps = steps;
+            this.actionCount = qTable.getActionEncoder().size();
+            this.slots = new int[steps];
+            this.rewards = new double[steps];
+        }
+        
+        @Override
+        public void update(S state, A action, double reward, S nextState, List<A> nextAvailableActions) {
+            slots[(head + count) % steps] = table.checkedIndexOf(state, action);
+            rewards[(head + count) % steps] = reward;
+            count++;
+            lastStateIndex = table.getStateEncoder().encode(nextState);
+            lastActions = nextAvailableActions;
+            
+            if (count == steps) {
+                backupOldest(maxQ(lastStateIndex, lastActions));
+                invalidateGreedy();
+            }
+        }
+        
+        @Override
+        public void endEpisode() {
+            if (count > 0) {
+                double bootstrap = maxQ(lastStateIndex, lastActions);
+                while (count > 0) {
+                    backupOldest(bootstrap);
+                }
+                invalidateGreedy();
+            }
+            lastStateIndex = -1;
+            lastActions = Collections.emptyList();
+        }
+        
+        // Moves the oldest pending (state, action) toward its count-step return and drops it
+        private void backupOldest(double bootstrap) {
+            double target = 0;
+            double discount = 1;
+            for (int k = 0; k < count; k++) {
+                target += discount * rewards[(head + k) % steps];
+                discount *= discountFactor;
+            }
+            target += discount * bootstrap;
+            table.blend(slots[head], target, learningRate);
+            head = (head + 1) % steps;
+            count--;
+        }
+        
+        private double maxQ(int stateIndex, List<A> actions) {
+            if (stateIndex < 0 || actions.isEmpty()) return table.getDefaultValue();
+            int base = stateIndex * actionCount;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0, n = actions.size(); i < n; i++) {
+                int a = table.getActionEncoder().encode(actions.get(i));
+                if (a < 0) continue; // outside the encoded space, like an unknown state
+                max = Math.max(max, table.load(base + a));
+            }
+            return max == Double.NEGATIVE_INFINITY ? table.getDefaultValue() : max;
+        }
+        
+        @Override
+        public QLearning<S, A> withQTable(QTable<S, A> table) {
+            return new NStepQLearning<>(dense(table), learningRate, discountFactor, steps,
+                                        getExplorationRate(), explorationDecay, minExplorationRate);
+        }
+    }
+    
+    private static <S, A> DenseQTable<S, A> dense(QTable<S, A> table) {
+        if (!(table instanceof DenseQTable)) {
+            throw new IllegalArgumentException("Multi-step learners need a DenseQTable");
+        }
+        return (DenseQTable<S, A>) table;
+    }
+    
+    // MARK: - Example Environment: Grid World
+    
+    public static class GridWorld implements Environment<GridState, GridAction> {
+        // One shared immutable action list per validity mask (bit i = GridAction ordinal i)
+        private static final List<List<GridAction>> ACTION_SETS = buildActionSets();
+        
+        private final int width;
+        private final int height;
+        private GridState currentState;
+        private final Set<GridState> obstacles;
+        private final GridState goalState;
+        private final double goalReward;
+        private final double obstaclePenalty;
+        private final double stepPenalty;
+        
+        // Per-cell caches (null for grids above GridStateCache.MAX_CELLS): the flyweight
+        // states with their neighbour table, each cell's valid-move mask, and the step
+        // results of entering the cell or bumping into a wall from it, plus the cells
+        // reset() may start from. They let takeAction, getAvailableActions and reset
+        // run without allocating.
+        private final GridStateCache states;
+        private final int[] startCells;
+        private final byte[] actionMasks;
+        private final StepResult<GridState>[] arrivals;
+        private final StepResult<GridState>[] wallBumps;
+        
+        @SuppressWarnings("unchecked")
+        public GridWorld(int width, int height, GridState start, GridState goal,
+                        Set<GridState> obstacles, double goalReward, 
+                        double obstaclePenalty, double stepPenalty) {
+            this.width = width;
+            this.height = height;
+            this.goalState = goal;
+            this.obstacles = obstacles;
+            this.goalReward = goalReward;
+            this.obstaclePenalty = obstaclePenalty;
+            this.stepPenalty = stepPenalty;
+            
+            long cells = (long) width * height;
+            if (cells <= GridStateCache.MAX_CELLS) {
+                int cellCount = (int) cells;
+                this.states = new GridStateCache(width, height);
+                this.actionMasks = new byte[cellCount];
+                this.arrivals = (StepResult<GridState>[]) new StepResult<?>[cellCount];
+                this.wallBumps = (StepResult<GridState>[]) new StepResult<?>[cellCount];
+                int[] starts = new int[cellCount];
+                int startCount = 0;
+                for (int i = 0; i < cellCount; i++) {
+                    GridState state = states.get(i);
+                    actionMasks[i] = (byte) states.neighborMask(i);
+                    arrivals[i] = arrivalResult(state);
+                    wallBumps[i] = new StepResult<>(state, obstaclePenalty, false);
+                    if (!state.equals(goal) && !obstacles.contains(state)) {
+                        starts[startCount++] = i;
+                    }
+                }
+                this.startCells = Arrays.copyOf(starts, startCount);
+            } else {
+                this.states = null;
+                this.startCells = null;
+                this.actionMasks = null;
+                this.arrivals = null;
+                this.wallBumps = null;
+            }
+            this.currentState = canonical(start);
+        }
+        
+        private static List<List<GridAction>> buildActionSets() {
+            GridAction[] all = GridAction.values();
+            List<List<GridAction>> sets = new ArrayList<>(1 << all.length);
+            for (int mask = 0; mask < 1 << all.length; mask++) {
+                List<GridAction> actions = new ArrayList<>();
+                for (GridAction action : all) {
+                    if ((mask & (1 << action.ordinal())) != 0) {
+                        actions.add(action);
+                    }
+                }
+                sets.add(List.copyOf(actions));
+            }
+            return List.copyOf(sets);
+        }
+        
+        private StepResult<GridState> arrivalResult(GridState nextState) {
+            if (obstacles.contains(nextState)) {
+                return new StepResult<>(nextState, obstaclePenalty, false);
+            } else if (nextState.equals(goalState)) {
+                return new StepResult<>(nextState, goalReward, true);
+            }
+            return new StepResult<>(nextState, stepPenalty, false);
+        }
+        
+        private int cellIndex(GridState state) {
+            return states == null ? -1 : states.cellOf(state);
+        }
+        
+        private GridState canonical(GridState state) {
+            int cell = cellIndex(state);
+            return cell < 0 ? state : states.get(cell);
+        }
+        
+        @Override
+        public GridState getCurrentState() {
+            return currentState;
+        }
+        
+        @Override
+        public List<GridAction> getAvailableActions(GridState state) {
+            int cell = cellIndex(state);
+            if (cell >= 0) {
+                return ACTION_SETS.get(actionMasks[cell]);
+            }
+            
+            List<GridAction> actions = new ArrayList<>();
+            
+            // Check all possible movements
+            for (GridAction action : GridAction.values()) {
+                GridState nextState = action.apply(state);
+                if (isValidState(nextState)) {
+                    actions.add(action);
+                }
+            }
+            
+            return actions;
+        }
+        
+        @Override
+        public StepResult<GridState> takeAction(GridAction action) {
+            int cell = cellIndex(currentState);
+            if (cell >= 0) {
+                int next = states.neighbor(cell, action);
+                StepResult<GridState> cached = next >= 0 ? arrivals[next] : wallBumps[cell];
+                currentState = cached.nextState;
+                return cached;
+            }
+            
+            GridState nextState = action.apply(currentState);
+            double reward = stepPenalty;
+            boolean terminal = false;
+            
+            if (!isValidState(nextState)) {
+                // Hit wall - stay in current state with penalty
+                nextState = currentState;
+                reward = obstaclePenalty;
+            } else if (obstacles.contains(nextState)) {
+                // Hit obstacle
+                reward = obstaclePenalty;
+                terminal = false;
+            } else if (nextState.equals(goalState)) {
+                // Reached goal
+                reward = goalReward;
+                terminal = true;
+            }
+            
+            currentState = nextState;
+            return new StepResult<>(nextState, reward, terminal);
+        }
+        
+        @Override
+        public void reset() {
+            // Reset to random start position (not goal or obstacle)
+            GridState newStart;
+            if (startCells != null) {
+                currentState = states.get(startCells[
+                    ThreadLocalRandom.current().nextInt(startCells.length)]);
+                return;
+            }
+            do {
+                newStart = new GridState(
+                    ThreadLocalRandom.current().nextInt(width),
+                    ThreadLocalRandom.current().nextInt(height)
+                );
+            } while (newStart.equals(goalState) || obstacles.contains(newStart));
+            
+            currentState = canonical(newStart);
+        }
+        
+        @Override
+        public boolean isTerminal(GridState state) {
+            return state.equals(goalState);
+        }
+        
+        /** Encoder for this grid; on cached grids decode returns the flyweight states. */
+        public IndexEncoder<GridState> stateEncoder() {
+            return states == null ? new GridStateEncoder(width, height) : new GridStateEncoder(states);
+        }
+        
+        /** The canonical state at (x, y), shared on grids with a state cache. */
+        public GridState stateAt(int x, int y) {
+            return states == null ? new GridState(x, y) : states.get(x, y);
+        }
+        
+        /** Where action leads from state, from the neighbour table when the grid has one. */
+        public GridState move(GridState state, GridAction action) {
+            int cell = cellIndex(state);
+            if (cell < 0) return action.apply(state);
+            int next = states.neighbor(cell, action);
+            return next >= 0 ? states.get(next) : action.apply(state);
+        }
+        
+        private boolean isValidState(GridState state) {
+            return state.x >= 0 && state.x < width && 
+                   state.y >= 0 && state.y < height;
+        }
+    }
+    
+    // MARK: - Grid World Components
+    
+    public static class GridState {
+        public final int x, y;
+        // Same value Objects.hash(x, y) gives, computed once instead of per call
+        private final int hash;
+        // Cell index in the GridStateCache that owns this instance, -1 for other instances
+        final int cell;
+        
+        public GridState(int x, int y) {
+            this(x, y, -1);
+        }
+        
+        GridState(int x, int y, int cell) {
+            this.x = x;
+            this.y = y;
+            this.hash = 31 * (31 + x) + y;
+            this.cell = cell;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GridState gridState = (GridState) o;
+            return x == gridState.x && y == gridState.y;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("(%d, %d)", x, y);
+        }
+    }
+    
+    public static class GridStateEncoder implements IndexEncoder<GridState> {
+        private final int width;
+        private final int height;
+        private final transient GridStateCache states; // null: decode allocates
+        
+        public GridStateEncoder(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.states = null;
+        }
+        
+        /** Encoder whose decode returns the cache's flyweight states. */
+        public GridStateEncoder(GridStateCache states) {
+            this.width = states.width;
+            this.height = states.height;
+            this.states = states;
+        }
+        
+        @Override
+        public int size() { return width * height; }
+        
+        @Override
+        public int encode(GridState state) {
+            if (state.x < 0 || state.x >= width || state.y < 0 || state.y >= height) return -1;
+            return state.y * width + state.x;
+        }
+        
+        @Override
+        public GridState decode(int index) {
+            return states != null ? states.get(index) : new GridState(index % width, index / width);
+        }
+    }
+    
+    /**
+     * Flyweight GridStates for one grid: every cell's canonical instance, created up
+     * front with its hash precomputed, and a neighbour table (cell * 4 + action
+     * ordinal -> neighbouring cell, or -1 off the grid). Looking up a state or a move
+     * is an array read and never allocates. Bounded to MAX_CELLS cells.
+     */
+    public static final class GridStateCache {
+        public static final int MAX_CELLS = 1 << 20;
+        private static final int ACTION_COUNT = GridAction.values().length;
+        
+        private final int width;
+        private final int height;
+        private final GridState[] states;
+        private final int[] neighbors;
+        
+        public GridStateCache(int width, int height) {
+            long cells = (long) width * height;
+            if (width <= 0 || height <= 0 || cells > MAX_CELLS) {
+                throw new IllegalArgumentException(
+                    "Grid of " + width + " x " + height + " is outside the cacheable range");
+            }
+            this.width = width;
+            this.height = height;
+            this.states = new GridState[(int) cells];
+            this.neighbors = new int[states.length * ACTION_COUNT];
+            for (int cell = 0; cell < states.length; cell++) {
+                int x = cell % width;
+                int y = cell / width;
+                states[cell] = new GridState(x, y, cell);
+                for (GridAction action : GridAction.values()) {
+                    int nx = x + action.dx;
+                    int ny = y + action.dy;
+                    neighbors[cell * ACTION_COUNT + action.ordinal()] =
+                        (nx >= 0 && nx < width && ny >= 0 && ny < height) ? ny * width + nx : -1;
+                }
+            }
+        }
+        
+        public int width() { return width; }
+        public int height() { return height; }
+        public int size() { return states.length; }
+        
+        public GridState get(int cell) {
+            return states[cell];
+        }
+        
+        /** The canonical state at (x, y); a new instance for coordinates off the grid. */
+        public GridState get(int x, int y) {
+            return (x >= 0 && x < width && y >= 0 && y < height)
+                ? states[y * width + x]
+                : new GridState(x, y);
+        }
+        
+        /** The cell of state, or -1 off the grid. One identity check for canonical states. */
+        public int cellOf(GridState state) {
+            int cell = state.cell;
+            if (cell >= 0 && cell < states.length && states[cell] == state) return cell;
+            if (state.x < 0 || state.x >= width || state.y < 0 || state.y >= height) return -1;
+            return state.y * width + state.x;
+        }
+        
+        /** The cell action leads to from cell, or -1 if it leaves the grid. */
+        public int neighbor(int cell, GridAction action) {
+            return neighbors[cell * ACTION_COUNT + action.ordinal()];
+        }
+        
+        /** Bit i set when GridAction ordinal i stays on the grid from cell. */
+        public int neighborMask(int cell) {
+            int mask = 0;
+            for (int a = 0, base = cell * ACTION_COUNT; a < ACTION_COUNT; a++) {
+                if (neighbors[base + a] >= 0) {
+                    mask |= 1 << a;
+                }
+            }
+            return mask;
+        }
+    }
+    
+    public enum GridAction {
+        UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0);
+        
+        private final int dx, dy;
+        
+        GridAction(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+        
+        public GridState apply(GridState state) {
+            return new GridState(state.x + dx, state.y + dy);
+        }
+        
+        public static GridAction random() {
+            GridAction[] actions = values();
+            return actions[ThreadLocalRandom.current().nextInt(actions.length)];
+        }
+    }
+    
+    // MARK: - Vectorized Environments
+    
+    /**
+     * Steps a batch of agents at once. Actions are dense action indices and every step
+     * writes into the same VectorStepResult, so stepping allocates nothing.
+     * Agents that reached a terminal state are reset at the start of the next step.
+     */
+    public interface VectorEnvironment {
+        int size();
+        void reset();
+        VectorStepResult step(int[] actions);
+    }
+    
+    public static class VectorStepResult {
+        public final int[] nextStates;
+        public final double[] rewards;
+        public final boolean[] isTerminal;
+        
+        public VectorStepResult(int agents) {
+            this.nextStates = new int[agents];
+            this.rewards = new double[agents];
+            this.isTerminal = new boolean[agents];
+        }
+    }
+    
+    /**
+     * GridWorld dynamics for M agents in structure-of-arrays form. States are encoded
+     * as y * width + x, the same as GridWorld.stateEncoder(), and actions are
+     * GridAction ordinals. The movement pass is pure int arithmetic over primitive
+     * arrays with no branches, so C2 can auto-vectorize it. Cell lookups run in a
+     * second, scalar pass because they are gathers.
+     */
+    public static class VectorGridWorld implements VectorEnvironment {
+        private static final byte FREE = 0, OBSTACLE = 1, GOAL = 2;
+        
+        private final int width;
+        private final int height;
+        private final int agents;
+        private final byte[] cellKinds;
+        private final double[] outcomeRewards;
+        
+        private final int[] xs;
+        private final int[] ys;
+        private final int[] bumped;
+        private final VectorStepResult result;
+        
+        public VectorGridWorld(GridWorld template, int agents) {
+            this.width = template.width;
+            this.height = template.height;
+            this.agents = agents;
+            this.cellKinds = new byte[width * height];
+            for (GridState obstacle : template.obstacles) {
+                if (template.isValidState(obstacle)) {
+                    cellKinds[obstacle.y * width + obstacle.x] = OBSTACLE;
+                }
+            }
+            cellKinds[template.goalState.y * width + template.goalState.x] = GOAL;
+            double wallPenalty = template.obstaclePenalty;
+            this.outcomeRewards = new double[] {
+                template.stepPenalty, template.obstaclePenalty, template.goalReward, 0,
+                wallPenalty, wallPenalty, wallPenalty, 0
+            };
+            
+            this.xs = new int[agents];
+            this.ys = new int[agents];
+            this.bumped = new int[agents];
+            this.result = new VectorStepResult(agents);
+            reset();
+        }
+        
+        @Override
+        public int size() { return agents; }
+        
+        @Override
+        public void reset() {
+            for (int i = 0; i < agents; i++) {
+                resetAgent(i);
+                result.isTerminal[i] = false;
+            }
+        }
+        
+        private void resetAgent(int agent) {
+            // Random start position (not goal or obstacle)
+            int cell;
+            do {
+                cell = ThreadLocalRandom.current().nextInt(cellKinds.length);
+            } while (cellKinds[cell] != FREE);
+            xs[agent] = cell % width;
+            ys[agent] = cell / width;
+            result.nextStates[agent] = cell;
+        }
+        
+        @Override
+        public VectorStepResult step(int[] actions) {
+            int[] x = xs, y = ys, bump = bumped, cells = result.nextStates;
+            boolean[] terminal = result.isTerminal;
+            
+            for (int i = 0; i < agents; i++) {
+                if (terminal[i]) {
+                    resetAgent(i);
+                }
+            }
+            
+            // Movement pass. With GridAction ordinals UP=0, DOWN=1, LEFT=2, RIGHT=3:
+            // vertical = 1 for UP/DOWN, sign = -1 for UP/LEFT and +1 for DOWN/RIGHT.
+            // A move that leaves the grid is cancelled (inside = 0) and flagged as a bump.
+            // Cell indices get their own loop: C2 stops vectorizing once one loop
+            // body stores to four arrays.
+            int w = width, h = height;
+            for (int i = 0; i < agents; i++) {
+                int action = actions[i];
+                int vertical = (action >> 1) ^ 1;
+                int sign = ((action & 1) << 1) - 1;
+                int ox = x[i], oy = y[i];
+                int nx = ox + (1 - vertical) * sign;
+                int ny = oy + vertical * sign;
+                int inside = ((nx | ny | (w - 1 - nx) | (h - 1 - ny)) >>> 31) ^ 1;
+                x[i] = ox + (nx - ox) * inside;
+                y[i] = oy + (ny - oy) * inside;
+                bump[i] = inside ^ 1;
+            }
+            for (int i = 0; i < agents; i++) {
+                cells[i] = y[i] * w + x[i];
+            }
+            
+            // Cell lookup pass (gather). outcome is the cell kind, or 4..6 after a bump,
+            // which indexes the reward table without branching.
+            double[] rewards = result.rewards;
+            for (int i = 0; i < agents; i++) {
+                int outcome = cellKinds[cells[i]] | (bump[i] << 2);
+                rewards[i] = outcomeRewards[outcome];
+                terminal[i] = outcome == GOAL;
+            }
+            return result;
+        }
+    }
+    
+    // MARK: - Experience Replay
+    
+    /**
+     * Fixed-capacity ring of transitions stored off-heap in one direct ByteBuffer, so
+     * memory stays flat however long training runs. States and actions are kept as
+     * encoder indices, 24 bytes per transition. Inserting overwrites the oldest
+     * transition once full. Sampling fills one reusable ReplayBatch and allocates
+     * nothing.
+     * With alpha > 0 the buffer is prioritized: a sum tree over priority^alpha, kept in
+     * a second direct buffer, drives sampling. Inserts are then O(log capacity)
+     * instead of O(1).
+     */
+    public static class ReplayBuffer<S, A> {
+        private static final int RECORD_BYTES = 24;
+        private static final int STATE = 0, ACTION = 4, REWARD = 8, NEXT_STATE = 16, TERMINAL = 20;
+        private static final double MIN_PRIORITY = 1e-6;
+        
+        private final IndexEncoder<S> stateEncoder;
+        private final IndexEncoder<A> actionEncoder;
+        private final int capacity;
+        private final ByteBuffer records;
+        private final ReplayBatch batch;
+        private int size;
+        private int nextSlot;
+        
+        // Prioritized sampling: leaves at [leafBase, leafBase + capacity), node i holds
+        // the sum of its children 2i and 2i + 1, node 1 the total
+        private final double alpha;
+        private final double beta;
+        private final DoubleBuffer sumTree;
+        private final int leafBase;
+        private double maxPriority = 1.0;
+        
+        public ReplayBuffer(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                           int capacity, int maxBatchSize) {
+            this(stateEncoder, actionEncoder, capacity, maxBatchSize, 0.0, 0.0);
+        }
+        
+        public ReplayBuffer(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                           int capacity, int maxBatchSize, double alpha, double beta) {
+            if (capacity <= 0 || capacity > Integer.MAX_VALUE / RECORD_BYTES) {
+                throw new IllegalArgumentException("Invalid replay capacity: " + capacity);
+            }
+            this.stateEncoder = stateEncoder;
+            this.actionEncoder = actionEncoder;
+            this.capacity = capacity;
+            this.records = ByteBuffer.allocateDirect(capacity * RECORD_BYTES)
+                                     .order(ByteOrder.nativeOrder());
+            this.batch = new ReplayBatch(maxBatchSize);
+            this.alpha = alpha;
+            this.beta = beta;
+            
+            if (alpha > 0) {
+                this.leafBase = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+                this.sumTree = ByteBuffer.allocateDirect(2 * leafBase * Double.BYTES)
+                                         .order(ByteOrder.nativeOrder())
+                                         .asDoubleBuffer();
+            } else {
+                this.leafBase = 0;
+                this.sumTree = null;
+            }
+        }
+        
+        public void add(S state, A action, double reward, S nextState, boolean terminal) {
+            int slot = nextSlot;
+            int offset = slot * RECORD_BYTES;
+            records.putInt(offset + STATE, stateEncoder.encode(state));
+            records.putInt(offset + ACTION, actionEncoder.encode(action));
+            records.putDouble(offset + REWARD, reward);
+            records.putInt(offset + NEXT_STATE, stateEncoder.encode(nextState));
+            records.putInt(offset + TERMINAL, terminal ? 1 : 0);
+            
+            nextSlot = slot + 1 == capacity ? 0 : slot + 1;
+            if (size < capacity) size++;
+            if (sumTree != null) {
+                // New transitions get the highest priority seen so they are replayed soon
+                setLeaf(slot, Math.pow(maxPriority, alpha));
+            }
+        }
+        
+        public ReplayBatch sampleUniform(int batchSize) {
+            int n = Math.min(batchSize, batch.capacity());
+            for (int i = 0; i < n; i++) {
+                fill(i, ThreadLocalRandom.current().nextInt(size), 1.0);
+            }
+            batch.size = n;
+            return batch;
+        }
+        
+        /** Stratified sampling proportional to priority^alpha, with importance weights. */
+        public ReplayBatch samplePrioritized(int batchSize) {
+            if (sumTree == null) {
+                throw new IllegalStateException("Buffer was created without priorities (alpha = 0)");
+            }
+            int n = Math.min(batchSize, batch.capacity());
+            double total = sumTree.get(1);
+            double segment = total / n;
+            double maxWeight = 0;
+            for (int i = 0; i < n; i++) {
+                double target = (i + ThreadLocalRandom.current().nextDouble()) * segment;
+                int slot = findSlot(target);
+                double probability = sumTree.get(leafBase + slot) / total;
+                double weight = Math.pow(size * probability, -beta);
+                maxWeight = Math.max(maxWeight, weight);
+                fill(i, slot, weight);
+            }
+            for (int i = 0; i < n; i++) {
+                batch.weights[i] /= maxWeight;
+            }
+            batch.size = n;
+            return batch;
+        }
+        
+        public void updatePriority(int slot, double tdError) {
+            double priority = Math.abs(tdError) + MIN_PRIORITY;
+            maxPriority = Math.max(maxPriority, priority);
+            setLeaf(slot, Math.pow(priority, alpha));
+        }
+        
+        private void fill(int i, int slot, double weight) {
+            int offset = slot * RECORD_BYTES;
+            batch.slots[i] = slot;
+            batch.states[i] = records.getInt(offset + STATE);
+            batch.actions[i] = records.getInt(offset + ACTION);
+            batch.rewards[i] = records.getDouble(offset + REWARD);
+            batch.nextStates[i] = records.getInt(offset + NEXT_STATE);
+            batch.isTerminal[i] = records.getInt(offset + TERMINAL) != 0;
+            batch.weights[i] = weight;
+        }
+        
+        private void setLeaf(int slot, double value) {
+            int node = leafBase + slot;
+            double delta = value - sumTree.get(node);
+            for (; node >= 1; node >>>= 1) {
+                sumTree.put(node, sumTree.get(node) + delta);
+            }
+        }
+        
+        private int findSlot(double target) {
+            int node = 1;
+            while (node < leafBase) {
+                double left = sumTree.get(2 * node);
+                if (target < left) {
+                    node = 2 * node;
+                } else {
+                    target -= left;
+                    node = 2 * node + 1;
+                }
+            }
+            // Rounding can land past the filled slots; clamp to the newest one
+            return Math.min(node - leafBase, size - 1);
+        }
+        
+        public S decodeState(int index) { return stateEncoder.decode(index); }
+        public A decodeAction(int index) { return actionEncoder.decode(index); }
+        public boolean isPrioritized() { return sumTree != null; }
+        public int size() { return size; }
+        public int capacity() { return capacity; }
+    }
+    
+    /** Reusable structure-of-arrays minibatch filled by ReplayBuffer sampling. */
+    public static class ReplayBatch {
+        public final int[] slots;
+        public final int[] states;
+        public final int[] actions;
+        public final double[] rewards;
+        public final int[] nextStates;
+        public final boolean[] isTerminal;
+        public final double[] weights;
+        public int size;
+        
+        public ReplayBatch(int capacity) {
+            this.slots = new int[capacity];
+            this.states = new int[capacity];
+            this.actions = new int[capacity];
+            this.rewards = new double[capacity];
+            this.nextStates = new int[capacity];
+            this.isTerminal = new boolean[capacity];
+            this.weights = new double[capacity];
+        }
+        
+        public int capacity() { return slots.length; }
+    }
+    
+    /** TrainingListener that stores every step in a ReplayBuffer and replays a minibatch. */
+    public static class ExperienceReplay<S, A> implements TrainingListener<S, A> {
+        private final QLearning<S, A> qLearning;
+        private final ReplayBuffer<S, A> buffer;
+        private final Environment<S, A> environment;
+        private final int batchSize;
+        
+        public ExperienceReplay(QLearning<S, A> qLearning, ReplayBuffer<S, A> buffer,
+                               Environment<S, A> environment, int batchSize) {
+            this.qLearning = qLearning;
+            this.buffer = buffer;
+            this.environment = environment;
+            this.batchSize = batchSize;
+        }
+        
+        @Override
+        public void onStep(S state, A action, StepResult<S> result) {
+            buffer.add(state, action, result.reward, result.nextState, result.isTerminal);
+            if (buffer.size() >= batchSize) {
+                qLearning.replay(buffer, batchSize, environment);
+            }
+        }
+    }
+    
+    // MARK: - Telemetry
+    
+    /**
+     * Fixed-capacity ring of doubles that keeps the most recent values without boxing.
+     * One thread appends; other threads may read a slightly stale view while it does.
+     */
+    public static class DoubleRingBuffer {
+        private final double[] values;
+        private volatile long count;
+        
+        public DoubleRingBuffer(int capacity) {
+            if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+            this.values = new double[capacity];
+        }
+        
+        /** A full ring holding a copy of values, oldest first. */
+        public static DoubleRingBuffer wrap(double[] values) {
+            DoubleRingBuffer ring = new DoubleRingBuffer(Math.max(1, values.length));
+            System.arraycopy(values, 0, ring.values, 0, values.length);
+            ring.count = values.length;
+            return ring;
+        }
+        
+        public void add(double value) {
+            long n = count;
+            values[(int) (n % values.length)] = value;
+            count = n + 1;  // volatile write publishes the value to readers
+        }
+        
+        public int capacity() { return values.length; }
+        
+        public int size() { return (int) Math.min(count, values.length); }
+        
+        /** Total values ever added, including those the ring has overwritten. */
+        public long totalAdded() { return count; }
+        
+        /** The index-th retained value, 0 being the oldest. */
+        public double get(int index) {
+            long n = count;
+            int size = (int) Math.min(n, values.length);
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return values[(int) ((n - size + index) % values.length)];
+        }
+        
+        public double last() {
+            long n = count;
+            return n == 0 ? Double.NaN : values[(int) ((n - 1) % values.length)];
+        }
+        
+        /** Mean of the most recent window values, or NaN when empty. */
+        public double mean(int window) {
+            long n = count;
+            int size = (int) Math.min(Math.min(n, values.length), window);
+            if (size == 0) return Double.NaN;
+            double sum = 0;
+            for (long i = n - size; i < n; i++) {
+                sum += values[(int) (i % values.length)];
+            }
+            return sum / size;
+        }
+        
+        /** Read-only List view; values are boxed only as they are read. */
+        public List<Double> asList() {
+            return new AbstractList<Double>() {
+                @Override
+                public Double get(int index) { return DoubleRingBuffer.this.get(index); }
+                
+                @Override
+                public int size() { return DoubleRingBuffer.this.size(); }
+            };
+        }
+    }
+    
+    /**
+     * Lock-free log-linear histogram of non-negative longs in the HDR style: each power
+     * of two is split into 32 linear sub-buckets, so any recorded value is reported
+     * within about 3% over the full long range, in a fixed 15KB of counters.
+     */
+    public static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+        
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        
+        public void record(long value) {
+            if (value < 0) value = 0;
+            counts.getAndIncrement(bucketIndex(value));
+            sum.add(value);
+            long seen = max.get();
+            while (value > seen && !max.compareAndSet(seen, value)) {
+                seen = max.get();
+            }
+        }
+        
+        public long count() {
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                n += counts.get(i);
+            }
+            return n;
+        }
+        
+        public long sum() { return sum.sum(); }
+        
+        public long max() { return max.get(); }
+        
+        public double mean() {
+            long n = count();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+        
+        /** Smallest bucket upper bound covering the given fraction (0..1] of recorded values. */
+        public long valueAtQuantile(double quantile) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(bucketUpperBound(i), max.get());
+            }
+            return max.get();
+        }
+        
+        private static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        }
+        
+        private static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = SUB_BUCKETS + index % SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+    
+    /**
+     * Hot-path training metrics: step and update latency (ns), episode length (steps),
+     * step/episode counters, and recent reward and exploration history. Counters and
+     * histograms are lock-free, so snapshot() and the HTTP endpoint can read them while
+     * training runs. Latency is timed on one step in every sampleInterval; counters and
+     * episode lengths are exact. TrainingMetrics.DISABLED costs one branch per episode:
+     * trainers only take the timed step loop when isEnabled() is true.
+     */
+    public static class TrainingMetrics {
+        public static final TrainingMetrics DISABLED = new TrainingMetrics(false, 1, 1);
+        public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+        
+        private final boolean enabled;
+        private final int sampleInterval;
+        private final LongAdder steps = new LongAdder();
+        private final LongAdder episodes = new LongAdder();
+        private final LatencyHistogram stepNanos = new LatencyHistogram();
+        private final LatencyHistogram updateNanos = new LatencyHistogram();
+        private final LatencyHistogram episodeLength = new LatencyHistogram();
+        private final DoubleRingBuffer rewards;
+        private final DoubleRingBuffer explorationRates;
+        
+        /** Enabled metrics keeping the last historyCapacity rewards and exploration rates. */
+        public TrainingMetrics(int historyCapacity) {
+            this(true, historyCapacity, DEFAULT_SAMPLE_INTERVAL);
+        }
+        
+        /** As above, timing one step in every sampleInterval (1 times every step). */
+        public TrainingMetrics(int historyCapacity, int sampleInterval) {
+            this(true, historyCapacity, sampleInterval);
+        }
+        
+        private TrainingMetrics(boolean enabled, int historyCapacity, int sampleInterval) {
+            if (sampleInterval <= 0) throw new IllegalArgumentException("sampleInterval must be positive");
+            this.enabled = enabled;
+            this.sampleInterval = sampleInterval;
+            this.rewards = new DoubleRingBuffer(historyCapacity);
+            this.explorationRates = new DoubleRingBuffer(historyCapacity);
+        }
+        
+        public boolean isEnabled() { return enabled; }
+        
+        public int getSampleInterval() { return sampleInterval; }
+        
+        /** Records the latency of one sampled step. */
+        public void recordStep(long stepTimeNanos, long updateTimeNanos) {
+            stepNanos.record(stepTimeNanos);
+            updateNanos.record(updateTimeNanos);
+        }
+        
+        /** Called by the single training thread; the history rings have one writer. */
+        public void recordEpisode(int length, double totalReward, double explorationRate) {
+            steps.add(length);
+            episodes.increment();
+            episodeLength.record(length);
+            rewards.add(totalReward);
+            explorationRates.add(explorationRate);
+        }
+        
+        public LatencyHistogram getStepNanos() { return stepNanos; }
+        public LatencyHistogram getUpdateNanos() { return updateNanos; }
+        public LatencyHistogram getEpisodeLength() { return episodeLength; }
+        public DoubleRingBuffer getRewards() { return rewards; }
+        public DoubleRingBuffer getExplorationRates() { return explorationRates; }
+        
+        public MetricsSnapshot snapshot() {
+            return new MetricsSnapshot(this);
+        }
+        
+        /**
+         * Serves snapshots on the loopback interface: Prometheus text at /metrics and
+         * a JSON line at /metrics.json. Port 0 picks a free port.
+         */
+        public MetricsEndpoint serve(int port) throws IOException {
+            return new MetricsEndpoint(this, port);
+        }
+    }
+    
+    /** Point-in-time copy of TrainingMetrics, exportable as a JSON line or Prometheus text. */
+    public static class MetricsSnapshot {
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+        
+        public final long timestampMillis;
+        public final long steps;
+        public final long episodes;
+        public final double lastReward;
+        public final double meanReward;
+        public final double explorationRate;
+        private final long[][] quantiles;  // step, update, length x QUANTILES
+        private final long[] counts;
+        private final long[] sums;
+        private final long[] maxima;
+        
+        private MetricsSnapshot(TrainingMetrics metrics) {
+            this.timestampMillis = System.currentTimeMillis();
+            this.steps = metrics.steps.sum();
+            this.episodes = metrics.episodes.sum();
+            this.lastReward = metrics.rewards.last();
+            this.meanReward = metrics.rewards.mean(metrics.rewards.capacity());
+            this.explorationRate = metrics.explorationRates.last();
+            
+            LatencyHistogram[] histograms = {
+                metrics.stepNanos, metrics.updateNanos, metrics.episodeLength
+            };
+            this.quantiles = new long[histograms.length][QUANTILES.length];
+            this.counts = new long[histograms.length];
+            this.sums = new long[histograms.length];
+            this.maxima = new long[histograms.length];
+            for (int h = 0; h < histograms.length; h++) {
+                for (int q = 0; q < QUANTILES.length; q++) {
+                    quantiles[h][q] = histograms[h].valueAtQuantile(QUANTILES[q]);
+                }
+                counts[h] = histograms[h].count();
+                sums[h] = histograms[h].sum();
+                maxima[h] = histograms[h].max();
+            }
+        }
+        
+        public long stepNanosAt(double quantile) { return quantileOf(0, quantile); }
+        public long updateNanosAt(double quantile) { return quantileOf(1, quantile); }
+        public long episodeLengthAt(double quantile) { return quantileOf(2, quantile); }
+        
+        private long quantileOf(int histogram, double quantile) {
+            for (int q = 0; q < QUANTILES.length; q++) {
+                if (QUANTILES[q] == quantile) return quantiles[histogram][q];
+            }
+            throw new IllegalArgumentException("Snapshots keep quantiles " + Arrays.toString(QUANTILES));
+        }
+        
+        public String toJsonLine() {
+            StringBuilder json = new StringBuilder(384);
+            json.append("{\"timestamp\":").append(timestampMillis)
+                .append(",\"steps\":").append(steps)
+                .append(",\"episodes\":").append(episodes)
+                .append(",\"last_reward\":").append(jsonNumber(lastReward))
+                .append(",\"mean_reward\":").append(jsonNumber(meanReward))
+                .append(",\"exploration_rate\":").append(jsonNumber(explorationRate));
+            String[] names = {"step_ns", "update_ns", "episode_length"};
+            for (int h = 0; h < names.length; h++) {
+                json.append(",\"").append(names[h]).append("\":{\"count\":").append(counts[h])
+                    .append(",\"mean\":").append(counts[h] == 0 ? 0 : (double) sums[h] / counts[h])
+                    .append(",\"p50\":").append(quantiles[h][0])
+                    .append(",\"p90\":").append(quantiles[h][1])
+                    .append(",\"p99\":").append(quantiles[h][2])
+                    .append(",\"max\":").append(maxima[h]).append('}');
+            }
+            return json.append('}').toString();
+        }
+        
+        public String toPrometheusText() {
+            StringBuilder text = new StringBuilder(1024);
+            counter(text, "rl_steps_total", "Training steps taken", steps);
+            counter(text, "rl_episodes_total", "Training episodes finished", episodes);
+            gauge(text, "rl_last_episode_reward", "Total reward of the latest episode", lastReward);
+            gauge(text, "rl_mean_episode_reward", "Mean reward over the retained history", meanReward);
+            gauge(text, "rl_exploration_rate", "Exploration rate of the latest episode", explorationRate);
+            summary(text, "rl_step_seconds", "Time per training step", 0, 1e-9);
+            summary(text, "rl_update_seconds", "Time per Q-learning update", 1, 1e-9);
+            summary(text, "rl_episode_length_steps", "Steps per episode", 2, 1);
+            return text.toString();
+        }
+        
+        private static void counter(StringBuilder text, String name, String help, long value) {
+            text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(value).append('\n');
+        }
+        
+        private static void gauge(StringBuilder text, String name, String help, double value) {
+            text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value).append('\n');
+        }
+        
+        private void summary(StringBuilder text, String name, String help, int h, double scale) {
+            text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" summary\n");
+            for (int q = 0; q < QUANTILES.length; q++) {
+                text.append(name).append("{quantile=\"").append(QUANTILES[q]).append("\"} ")
+                    .append(quantiles[h][q] * scale).append('\n');
+            }
+            text.append(name).append("_sum ").append(sums[h] * scale).append('\n')
+                .append(name).append("_count ").append(counts[h]).append('\n');
+        }
+        
+        private static String jsonNumber(double value) {
+            return Double.isFinite(value) ? Double.toString(value) : "null";
+        }
+    }
+    
+    /** Local HTTP endpoint serving TrainingMetrics snapshots; close() stops it. */
+    public static class MetricsEndpoint implements AutoCloseable {
+        private final HttpServer server;
+        
+        private MetricsEndpoint(TrainingMetrics metrics, int port) throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", exchange -> {
+                boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+                MetricsSnapshot snapshot = metrics.snapshot();
+                byte[] body = (json ? snapshot.toJsonLine() + "\n" : snapshot.toPrometheusText())
+                    .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type",
+                    json ? "application/json" : "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+        }
+        
+        public int getPort() { return server.getAddress().getPort(); }
+        
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+    
+    // MARK: - Training and Evaluation
     
     public static class TrainingResult<S, A> {
+        /** Most episodes whose reward and exploration rate trainQLearning keeps. */
+        public static final int MAX_HISTORY = 1 << 16;
+        
         public final List<Double> episodeRewards;
         public final List<Double> explorationRates;
         public final QTable<S, A> trainedQTable;
         public final Policy<S, A> optimalPolicy;
         
-        public TrainingResult(List<Double> episodeRewards, List<Double> explorationRates,
-                            QTable<S, A> trainedQTable, Policy<S, A> optimalPolicy) {
-            this.episodeRewards = episodeRewards;
-            this.explorationRates = explorationRates;
-            this.trainedQTable = trainedQTable;
-            this.optimalPolicy = optimalPolicy;
+        public TrainingResult(List<Double> episodeRewards, List<Double> explorationRates,
+                            QTable<S, A> trainedQTable, Policy<S, A> optimalPolicy) {
+            this.episodeRewards = episodeRewards;
+            this.explorationRates = explorationRates;
+            this.trainedQTable = trainedQTable;
+            this.optimalPolicy = optimalPolicy;
+        }
+    }
+    
+    public static <S, A> TrainingResult<S, A> trainQLearning(
+            QLearning<S, A> qLearning, Environment<S, A> environment,
+            int totalEpisodes, int maxStepsPerEpisode) {
+        return trainQLearning(qLearning, environment, totalEpisodes, maxStepsPerEpisode,
+                              TrainingListener.none());
+    }
+    
+    public static <S, A> TrainingResult<S, A> trainQLearning(
+            QLearning<S, A> qLearning, Environment<S, A> environment,
+            int totalEpisodes, int maxStepsPerEpisode, TrainingListener<S, A> listener) {
+        return trainQLearning(qLearning, environment, totalEpisodes, maxStepsPerEpisode,
+                              listener.andThen(TrainingListener.progress(qLearning, totalEpisodes)),
+                              TrainingMetrics.DISABLED);
+    }
+    
+    /**
+     * Trains without printing progress. Reward and exploration histories keep the
+     * last TrainingResult.MAX_HISTORY episodes in primitive rings; step, update and
+     * episode-length measurements go to metrics when it is enabled.
+     */
+    public static <S, A> TrainingResult<S, A> trainQLearning(
+            QLearning<S, A> qLearning, Environment<S, A> environment,
+            int totalEpisodes, int maxStepsPerEpisode,
+            TrainingListener<S, A> listener, TrainingMetrics metrics) {
+        
+        int historyCapacity = Math.max(1, Math.min(totalEpisodes, TrainingResult.MAX_HISTORY));
+        DoubleRingBuffer episodeRewards = new DoubleRingBuffer(historyCapacity);
+        DoubleRingBuffer explorationRates = new DoubleRingBuffer(historyCapacity);
+        
+        for (int episode = 0; episode < totalEpisodes; episode++) {
+            double totalReward = runEpisode(qLearning, environment, maxStepsPerEpisode,
+                                            listener, metrics);
+            
+            // Record metrics
+            episodeRewards.add(totalReward);
+            explorationRates.add(qLearning.getExplorationRate());
+            listener.onEpisodeEnd(episode, totalReward);
+            
+            // Decay exploration rate
+            qLearning.decayExploration();
+        }
+        
+        Policy<S, A> optimalPolicy = qLearning.createGreedyPolicy(environment::getAvailableActions);
+        return new TrainingResult<>(episodeRewards.asList(), explorationRates.asList(), 
+                                  qLearning.getQTable(), optimalPolicy);
+    }
+    
+    /** Runs one trainQLearning episode without its bookkeeping and returns the total reward. */
+    public static <S, A> double runEpisode(QLearning<S, A> qLearning,
+                                           Environment<S, A> environment,
+                                           int maxStepsPerEpisode) {
+        return runEpisode(qLearning, environment, maxStepsPerEpisode, TrainingListener.none());
+    }
+    
+    /** As runEpisode, recording into metrics when it is enabled. */
+    public static <S, A> double runEpisode(QLearning<S, A> qLearning,
+                                           Environment<S, A> environment,
+                                           int maxStepsPerEpisode, TrainingMetrics metrics) {
+        return runEpisode(qLearning, environment, maxStepsPerEpisode,
+                          TrainingListener.none(), metrics);
+    }
+    
+    private static <S, A> double runEpisode(QLearning<S, A> qLearning,
+                                            Environment<S, A> environment,
+                                            int maxStepsPerEpisode,
+                                            TrainingListener<S, A> listener,
+                                            TrainingMetrics metrics) {
+        // Choose the loop once per episode so disabled metrics add nothing per step
+        return metrics.isEnabled()
+            ? runMeasuredEpisode(qLearning, environment, maxStepsPerEpisode, listener, metrics)
+            : runEpisode(qLearning, environment, maxStepsPerEpisode, listener);
+    }
+    
+    private static <S, A> double runEpisode(QLearning<S, A> qLearning,
+                                            Environment<S, A> environment,
+                                            int maxStepsPerEpisode,
+                                            TrainingListener<S, A> listener) {
+        environment.reset();
+        S currentState = environment.getCurrentState();
+        double totalReward = 0;
+        int steps = 0;
+        
+        while (steps < maxStepsPerEpisode && !environment.isTerminal(currentState)) {
+            // Choose and take action
+            List<A> availableActions = environment.getAvailableActions(currentState);
+            A action = qLearning.chooseAction(currentState, availableActions);
+            
+            StepResult<S> result = environment.takeAction(action);
+            
+            // Q-learning update
+            List<A> nextActions = environment.getAvailableActions(result.nextState);
+            qLearning.update(currentState, action, result.reward, 
+                           result.nextState, nextActions);
+            listener.onStep(currentState, action, result);
+            
+            totalReward += result.reward;
+            currentState = result.nextState;
+            steps++;
+            
+            if (result.isTerminal) {
+                break;
+            }
+        }
+        qLearning.endEpisode();
+        return totalReward;
+    }
+    
+    private static <S, A> double runMeasuredEpisode(QLearning<S, A> qLearning,
+                                                    Environment<S, A> environment,
+                                                    int maxStepsPerEpisode,
+                                                    TrainingListener<S, A> listener,
+                                                    TrainingMetrics metrics) {
+        environment.reset();
+        S currentState = environment.getCurrentState();
+        double totalReward = 0;
+        int steps = 0;
+        int untilSample = ThreadLocalRandom.current().nextInt(metrics.getSampleInterval());
+        
+        while (steps < maxStepsPerEpisode && !environment.isTerminal(currentState)) {
+            boolean sampled = --untilSample < 0;
+            long stepStart = sampled ? System.nanoTime() : 0;
+            List<A> availableActions = environment.getAvailableActions(currentState);
+            A action = qLearning.chooseAction(currentState, availableActions);
+            
+            StepResult<S> result = environment.takeAction(action);
+            
+            List<A> nextActions = environment.getAvailableActions(result.nextState);
+            long updateStart = sampled ? System.nanoTime() : 0;
+            qLearning.update(currentState, action, result.reward, 
+                           result.nextState, nextActions);
+            if (sampled) {
+                long stepEnd = System.nanoTime();
+                metrics.recordStep(stepEnd - stepStart, stepEnd - updateStart);
+                untilSample = metrics.getSampleInterval() - 1;
+            }
+            listener.onStep(currentState, action, result);
+            
+            totalReward += result.reward;
+            currentState = result.nextState;
+            steps++;
+            
+            if (result.isTerminal) {
+                break;
+            }
+        }
+        qLearning.endEpisode();
+        metrics.recordEpisode(steps, totalReward, qLearning.getExplorationRate());
+        return totalReward;
+    }
+    
+    /** Average total reward of greedy rollouts of qTable, each from a reset of environment. */
+    public static <S, A> double evaluateGreedy(QTable<S, A> qTable, Environment<S, A> environment,
+                                               int episodes, int maxSteps) {
+        double totalReward = 0;
+        for (int episode = 0; episode < episodes; episode++) {
+            environment.reset();
+            S state = environment.getCurrentState();
+            for (int step = 0; step < maxSteps && !environment.isTerminal(state); step++) {
+                A action = qTable.getBestAction(state, environment.getAvailableActions(state));
+                StepResult<S> result = environment.takeAction(action);
+                totalReward += result.reward;
+                state = result.nextState;
+                if (result.isTerminal) {
+                    break;
+                }
+            }
+        }
+        return totalReward / episodes;
+    }
+    
+    // MARK: - Parallel Training
+    
+    /**
+     * Trains on one Environment per thread against the learner's shared QTable, which
+     * must support concurrent updates (see ConcurrentDenseQTable). Workers claim episode
+     * numbers from a shared counter and follow the same exploration schedule as
+     * trainQLearning, so episode i explores at the rate the serial trainer would use.
+     * Workers never lock: table writes are per-slot CAS, and a worker may briefly act
+     * on a value another worker is about to overwrite (Hogwild-style).
+     */
+    public static <S, A> TrainingResult<S, A> trainQLearningParallel(
+            QLearning<S, A> qLearning, Supplier<? extends Environment<S, A>> environments,
+            int threads, int totalEpisodes, int maxStepsPerEpisode) {
+        
+        QTable<S, A> sharedTable = qLearning.getQTable();
+        if (!sharedTable.supportsConcurrentUpdates()) {
+            throw new IllegalArgumentException(
+                "Parallel training needs a QTable that supports concurrent updates");
+        }
+        
+        double[] episodeRewards = new double[totalEpisodes];
+        double[] explorationRates = new double[totalEpisodes];
+        AtomicInteger nextEpisode = new AtomicInteger();
+        
+        List<Callable<Void>> workers = new ArrayList<>(threads);
+        Environment<S, A> firstEnvironment = null;
+        for (int t = 0; t < threads; t++) {
+            QLearning<S, A> learner = qLearning.withQTable(sharedTable);
+            Environment<S, A> environment = environments.get();
+            if (firstEnvironment == null) firstEnvironment = environment;
+            workers.add(() -> {
+                int decays = 0;
+                int episode;
+                while ((episode = nextEpisode.getAndIncrement()) < totalEpisodes) {
+                    // Catch up on the decays for episodes run by other workers
+                    for (; decays < episode; decays++) {
+                        learner.decayExploration();
+                    }
+                    explorationRates[episode] = learner.getExplorationRate();
+                    episodeRewards[episode] = runEpisode(learner, environment, maxStepsPerEpisode);
+                }
+                return null;
+            });
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> worker : pool.invokeAll(workers)) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        for (int episode = 0; episode < totalEpisodes; episode++) {
+            qLearning.decayExploration();
+        }
+        
+        Policy<S, A> optimalPolicy = qLearning.createGreedyPolicy(firstEnvironment::getAvailableActions);
+        return new TrainingResult<>(toList(episodeRewards), toList(explorationRates),
+                                  sharedTable, optimalPolicy);
+    }
+    
+    // MARK: - Federated Training
+    
+    /**
+     * Asynchronous federated training. Each worker trains its own copy of the global
+     * table for episodesPerRound episodes, then hands the rows of the states it visited
+     * to the coordinator (the calling thread) through a non-blocking queue. Workers never
+     * wait for each other or for the coordinator. The coordinator blends each delivered
+     * row into the learner's table with weight mergeRatio and appends the merged rows to
+     * a log of published deltas. At the start of every round a worker catches up by
+     * applying the deltas published since its last round, except to the rows it has just
+     * trained itself. Sync in both directions costs the rows touched, never a walk or a
+     * copy of the whole table; only the initial copies are whole-table.
+     * 
+     * The blend is QTable.merge's, current * (1 - mergeRatio) + value * mergeRatio, but
+     * it is applied to row deltas rather than by calling merge: merging a worker's table
+     * walks all of it, and handing a table over needs a whole-table copy per round, so
+     * sync through merge costs the table size every round however few rows changed.
+     * Each worker follows the delta log through its own cursor, so deltas every worker
+     * has passed are garbage.
+     */
+    public static <S, A> TrainingResult<S, A> trainQLearningFederated(
+            QLearning<S, A> qLearning, Supplier<? extends Environment<S, A>> environments,
+            int workers, int episodesPerRound, double mergeRatio,
+            int totalEpisodes, int maxStepsPerEpisode) {
+        
+        QTable<S, A> globalTable = qLearning.getQTable();
+        QTable<S, A> initialTable = globalTable.copy();
+        // The log starts with an empty delta; only the cursors and the coordinator's
+        // tail refer into it, never its head
+        RowDelta<S, A> lastDelta = new HashedRows<>(List.of(), List.of());
+        Queue<RowDelta<S, A>> deliveries = new ConcurrentLinkedQueue<>();
+        
+        double[] episodeRewards = new double[totalEpisodes];
+        double[] explorationRates = new double[totalEpisodes];
+        AtomicInteger nextEpisode = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(workers);
+        
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        Environment<S, A> firstEnvironment = null;
+        for (int w = 0; w < workers; w++) {
+            Environment<S, A> environment = environments.get();
+            if (firstEnvironment == null) firstEnvironment = environment;
+            DeltaCursor<S, A> cursor = new DeltaCursor<>(lastDelta);
+            tasks.add(() -> {
+                try {
+                    QLearning<S, A> learner = qLearning.withQTable(initialTable.copy());
+                    QTable<S, A> own = learner.getQTable();
+                    // Dense tables track their touched states themselves; others record
+                    // the visited states, a superset of the states whose rows changed
+                    Set<S> visited = own instanceof DenseQTable ? null : new HashSet<>();
+                    TrainingListener<S, A> recorder = visited == null ? TrainingListener.none()
+                        : new TrainingListener<>() {
+                            @Override
+                            public void onStep(S state, A action, StepResult<S> result) {
+                                visited.add(state);
+                            }
+                        };
+                    int decays = 0;
+                    int roundEpisodes = 0;
+                    int episode;
+                    while ((episode = nextEpisode.getAndIncrement()) < totalEpisodes) {
+                        for (; decays < episode; decays++) {
+                            learner.decayExploration();
+                        }
+                        explorationRates[episode] = learner.getExplorationRate();
+                        episodeRewards[episode] = runEpisode(learner, environment, maxStepsPerEpisode,
+                                                             recorder);
+                        
+                        if (++roundEpisodes == episodesPerRound) {
+                            deliveries.offer(RowDelta.capture(own, visited));
+                            cursor.catchUp(own, visited);
+                            RowDelta.startRound(own, visited);
+                            roundEpisodes = 0;
+                        }
+                    }
+                    if (roundEpisodes > 0) {
+                        deliveries.offer(RowDelta.capture(own, visited));
+                    }
+                    return null;
+                } finally {
+                    running.countDown();
+                }
+            });
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> results = new ArrayList<>(workers);
+            for (Callable<Void> task : tasks) {
+                results.add(pool.submit(task));
+            }
+            
+            // Coordinator: merge deliveries as they arrive until every worker is done
+            while (running.getCount() > 0 || !deliveries.isEmpty()) {
+                RowDelta<S, A> delivery = deliveries.poll();
+                if (delivery == null) {
+                    running.await(1, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                delivery.mergeInto(globalTable, mergeRatio);
+                RowDelta<S, A> published = delivery.recapture(globalTable);
+                lastDelta.next = published;
+                lastDelta = published;
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Federated training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        for (int episode = 0; episode < totalEpisodes; episode++) {
+            qLearning.decayExploration();
+        }
+        
+        Policy<S, A> optimalPolicy = qLearning.createGreedyPolicy(firstEnvironment::getAvailableActions);
+        return new TrainingResult<>(toList(episodeRewards), toList(explorationRates),
+                                  globalTable, optimalPolicy);
+    }
+    
+    /**
+     * The rows of some states, copied out of a table. Workers deliver their trained rows
+     * as one; the coordinator publishes each merge result as one, linking it after the
+     * previous so the published deltas form a log that workers follow through next.
+     */
+    private abstract static class RowDelta<S, A> {
+        volatile RowDelta<S, A> next;
+        
+        /** The rows a worker trained this round: its touched states, or visited when not dense. */
+        static <S, A> RowDelta<S, A> capture(QTable<S, A> table, Set<S> visited) {
+            return table instanceof DenseQTable
+                ? DenseRows.capture((DenseQTable<S, A>) table)
+                : HashedRows.copyRows(table, visited);
+        }
+        
+        /** Forgets the states trained so far, once they are delivered and caught up. */
+        static <S, A> void startRound(QTable<S, A> table, Set<S> visited) {
+            if (table instanceof DenseQTable) {
+                ((DenseQTable<S, A>) table).clearTouched();
+            } else {
+                visited.clear();
+            }
+        }
+        
+        /** Blends every row into table as QTable.merge(other, ratio) would. */
+        abstract void mergeInto(QTable<S, A> table, double ratio);
+        
+        /** The same states' rows as they are now in table. */
+        abstract RowDelta<S, A> recapture(QTable<S, A> table);
+        
+        /** Copies the rows into table, except those of states it trained this round. */
+        abstract void overlay(QTable<S, A> table, Set<S> visited);
+    }
+    
+    private static final class DenseRows<S, A> extends RowDelta<S, A> {
+        final int[] states;
+        final double[] values;
+        final boolean[] written;
+        
+        private DenseRows(DenseQTable<S, A> table, int[] states) {
+            int actionCount = table.getActionEncoder().size();
+            this.states = states;
+            this.values = new double[states.length * actionCount];
+            this.written = new boolean[values.length];
+            for (int r = 0; r < states.length; r++) {
+                int base = states[r] * actionCount;
+                table.copyValues(base, DoubleBuffer.wrap(values, r * actionCount, actionCount), actionCount);
+                for (int a = 0; a < actionCount; a++) {
+                    written[r * actionCount + a] = table.isWritten(base + a);
+                }
+            }
+        }
+        
+        static <S, A> DenseRows<S, A> capture(DenseQTable<S, A> table) {
+            int[] states = new int[table.touchedCount()];
+            for (int t = 0; t < states.length; t++) {
+                states[t] = table.touchedState(t);
+            }
+            return new DenseRows<>(table, states);
+        }
+        
+        @Override
+        void mergeInto(QTable<S, A> table, double ratio) {
+            DenseQTable<S, A> dense = (DenseQTable<S, A>) table;
+            int actionCount = dense.getActionEncoder().size();
+            for (int r = 0; r < states.length; r++) {
+                int base = states[r] * actionCount;
+                for (int a = 0, k = r * actionCount; a < actionCount; a++, k++) {
+                    if (written[k]) {
+                        dense.store(base + a, dense.load(base + a) * (1 - ratio) + values[k] * ratio);
+                    }
+                }
+            }
+        }
+        
+        @Override
+        RowDelta<S, A> recapture(QTable<S, A> table) {
+            return new DenseRows<>((DenseQTable<S, A>) table, states);
+        }
+        
+        @Override
+        void overlay(QTable<S, A> table, Set<S> visited) {
+            DenseQTable<S, A> dense = (DenseQTable<S, A>) table;
+            int actionCount = dense.getActionEncoder().size();
+            for (int r = 0; r < states.length; r++) {
+                if (!dense.isTouched(states[r])) {
+                    dense.overlayRow(states[r], values, r * actionCount, written);
+                }
+            }
+        }
+    }
+    
+    private static final class HashedRows<S, A> extends RowDelta<S, A> {
+        final List<S> states;
+        final List<Map<A, Double>> rows;
+        
+        HashedRows(List<S> states, List<Map<A, Double>> rows) {
+            this.states = states;
+            this.rows = rows;
+        }
+        
+        static <S, A> HashedRows<S, A> copyRows(QTable<S, A> table, Collection<S> states) {
+            List<S> copiedStates = new ArrayList<>(states);
+            List<Map<A, Double>> copiedRows = new ArrayList<>(copiedStates.size());
+            for (S state : copiedStates) {
+                copiedRows.add(new HashMap<>(table.getActionValues(state)));
+            }
+            return new HashedRows<>(copiedStates, copiedRows);
+        }
+        
+        @Override
+        void mergeInto(QTable<S, A> table, double ratio) {
+            for (int i = 0; i < states.size(); i++) {
+                S state = states.get(i);
+                rows.get(i).forEach((action, value) -> table.setQValue(state, action,
+                    table.getQValue(state, action) * (1 - ratio) + value * ratio));
+            }
+        }
+        
+        @Override
+        RowDelta<S, A> recapture(QTable<S, A> table) {
+            return copyRows(table, states);
+        }
+        
+        @Override
+        void overlay(QTable<S, A> table, Set<S> visited) {
+            for (int i = 0; i < states.size(); i++) {
+                S state = states.get(i);
+                if (!visited.contains(state)) {
+                    rows.get(i).forEach((action, value) -> table.setQValue(state, action, value));
+                }
+            }
+        }
+    }
+    
+    /** A worker's position in the published delta log: the last delta it applied. */
+    private static final class DeltaCursor<S, A> {
+        private RowDelta<S, A> applied;
+        
+        DeltaCursor(RowDelta<S, A> start) {
+            this.applied = start;
+        }
+        
+        // Applies every delta published since the last call to table, leaving the rows
+        // the worker trained this round alone so it keeps the progress the coordinator
+        // has not merged yet
+        void catchUp(QTable<S, A> table, Set<S> visited) {
+            for (RowDelta<S, A> delta = applied.next; delta != null; delta = delta.next) {
+                delta.overlay(table, visited);
+                applied = delta;
+            }
+        }
+    }
+    
+    private static List<Double> toList(double[] values) {
+        return DoubleRingBuffer.wrap(values).asList();
+    }
+    
+    // MARK: - Policy Serving
+    
+    /**
+     * An immutable greedy policy: the argmax action of every state, computed once from
+     * a QTable and stored as one short per state index. chooseAction is an encode plus
+     * two array reads, takes no locks and never touches the Q-table, so any number of
+     * threads can query it. States without available actions map to null.
+     */
+    public static final class FrozenPolicy<S, A> implements Policy<S, A> {
+        private static final short NO_ACTION = -1;
+        
+        public final long version;
+        private final IndexEncoder<S> stateEncoder;
+        private final IndexEncoder<A> actionEncoder;
+        private final List<A> actions;
+        private final short[] bestActions;
+        
+        private FrozenPolicy(IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                             short[] bestActions, long version) {
+            this.stateEncoder = stateEncoder;
+            this.actionEncoder = actionEncoder;
+            List<A> decoded = new ArrayList<>(actionEncoder.size());
+            for (int a = 0; a < actionEncoder.size(); a++) {
+                decoded.add(actionEncoder.decode(a));
+            }
+            this.actions = decoded;
+            this.bestActions = bestActions;
+            this.version = version;
+        }
+        
+        public static <S, A> FrozenPolicy<S, A> freeze(
+                DenseQTable<S, A> table, Function<? super S, ? extends List<A>> availableActions) {
+            return freeze(table, table.getStateEncoder(), table.getActionEncoder(), availableActions, 0);
+        }
+        
+        /**
+         * Scans every encoded state once, taking the best of availableActions(state) as
+         * QTable.getBestAction would. Works for hashed tables too, given encoders.
+         */
+        public static <S, A> FrozenPolicy<S, A> freeze(
+                QTable<S, A> table, IndexEncoder<S> stateEncoder, IndexEncoder<A> actionEncoder,
+                Function<? super S, ? extends List<A>> availableActions, long version) {
+            if (actionEncoder.size() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many actions to freeze: " + actionEncoder.size());
+            }
+            short[] bestActions = new short[stateEncoder.size()];
+            for (int s = 0; s < bestActions.length; s++) {
+                S state = stateEncoder.decode(s);
+                A best = table.getBestAction(state, availableActions.apply(state));
+                bestActions[s] = best == null ? NO_ACTION : (short) actionEncoder.encode(best);
+            }
+            return new FrozenPolicy<>(stateEncoder, actionEncoder, bestActions, version);
+        }
+        
+        @Override
+        public A chooseAction(S state) {
+            int s = stateEncoder.encode(state);
+            int action = s < 0 ? NO_ACTION : bestActions[s];
+            return action < 0 ? null : actions.get(action);
+        }
+        
+        /** chooseAction for each state, written to out (which must be at least as long). */
+        public A[] chooseActions(S[] states, A[] out) {
+            for (int i = 0; i < states.length; i++) {
+                out[i] = chooseAction(states[i]);
+            }
+            return out;
+        }
+        
+        /** Primitive batch: action indices for state indices, -1 where there is no action. */
+        public int[] chooseActions(int[] stateIndices, int[] out) {
+            short[] best = bestActions;
+            for (int i = 0; i < stateIndices.length; i++) {
+                out[i] = best[stateIndices[i]];
+            }
+            return out;
         }
+        
+        public IndexEncoder<S> getStateEncoder() { return stateEncoder; }
+        public IndexEncoder<A> getActionEncoder() { return actionEncoder; }
     }
     
-    public static <S, A> TrainingResult<S, A> trainQLearning(
-            QLearning<S, A> qLearning, Environment<S, A> environment,
-            int totalEpisodes, int maxStepsPerEpisode) {
+    /**
+     * Serves decisions from the latest FrozenPolicy while training goes on. Readers do
+     * one volatile read per call (per batch for chooseActions, so a batch is answered
+     * by a single version); publish freezes a newer table and swaps it in atomically,
+     * never replacing a newer version with an older one.
+     */
+    public static class PolicyServer<S, A> implements Policy<S, A> {
+        private final QTable<S, A> table;
+        private final IndexEncoder<S> stateEncoder;
+        private final IndexEncoder<A> actionEncoder;
+        private final Function<? super S, ? extends List<A>> availableActions;
+        private final AtomicLong versions = new AtomicLong();
+        private final AtomicReference<FrozenPolicy<S, A>> current;
         
-        List<Double> episodeRewards = new ArrayList<>();
-        List<Double> explorationRates = new ArrayList<>();
+        public PolicyServer(DenseQTable<S, A> table,
+                            Function<? super S, ? extends List<A>> availableActions) {
+            this(table, table.getStateEncoder(), table.getActionEncoder(), availableActions);
+        }
         
-        for (int episode = 0; episode < totalEpisodes; episode++) {
-            environment.reset();
-            S currentState = environment.getCurrentState();
-            double totalReward = 0;
-            int steps = 0;
-            
-            while (steps < maxStepsPerEpisode && !environment.isTerminal(currentState)) {
-                // Choose and take action
-                List<A> availableActions = environment.getAvailableActions(currentState);
-                A action = qLearning.chooseAction(currentState, availableActions);
-                
-                StepResult<S> result = environment.takeAction(action);
-                
-                // Q-learning update
-                List<A> nextActions = environment.getAvailableActions(result.nextState);
-                qLearning.update(currentState, action, result.reward, 
-                               result.nextState, nextActions);
-                
-                totalReward += result.reward;
-                currentState = result.nextState;
-                steps++;
+        public PolicyServer(QTable<S, A> table, IndexEncoder<S> stateEncoder,
+                            IndexEncoder<A> actionEncoder,
+                            Function<? super S, ? extends List<A>> availableActions) {
+            this.table = table;
+            this.stateEncoder = stateEncoder;
+            this.actionEncoder = actionEncoder;
+            this.availableActions = availableActions;
+            this.current = new AtomicReference<>(
+                FrozenPolicy.freeze(table, stateEncoder, actionEncoder, availableActions, 0));
+        }
+        
+        @Override
+        public A chooseAction(S state) {
+            return current.get().chooseAction(state);
+        }
+        
+        public A[] chooseActions(S[] states, A[] out) {
+            return current.get().chooseActions(states, out);
+        }
+        
+        public int[] chooseActions(int[] stateIndices, int[] out) {
+            return current.get().chooseActions(stateIndices, out);
+        }
+        
+        /** The policy being served; hold on to it to answer several calls from one version. */
+        public FrozenPolicy<S, A> current() {
+            return current.get();
+        }
+        
+        /** Freezes the table as it is now and serves the result. */
+        public FrozenPolicy<S, A> publish() {
+            FrozenPolicy<S, A> next = FrozenPolicy.freeze(table, stateEncoder, actionEncoder,
+                                                          availableActions, versions.incrementAndGet());
+            return current.accumulateAndGet(next, (served, candidate) ->
+                candidate.version > served.version ? candidate : served);
+        }
+        
+        /**
+         * A listener that republishes every episodes episodes. It freezes on the
+         * training thread between episodes, so each version sees a quiescent table.
+         */
+        public TrainingListener<S, A> publishEvery(int episodes) {
+            return new TrainingListener<>() {
+                @Override
+                public void onEpisodeEnd(int episode, double totalReward) {
+                    if ((episode + 1) % episodes == 0) {
+                        publish();
+                    }
+                }
+            };
+        }
+    }
+    
+    // MARK: - Model-Based Planning
+    
+    /**
+     * Value iteration over a GridWorld's known dynamics instead of sampled episodes.
+     * Actions are the moves getAvailableActions offers (those that stay on the grid):
+     * entering an obstacle costs obstaclePenalty, entering the goal pays goalReward
+     * and ends the episode, any other move costs stepPenalty. Because the reward
+     * depends only on the cell entered, the planner keeps one float per cell,
+     * W(s) = r(s) + discount * V(s), the return of moving into s. A backup is then
+     * V(s) = max over neighbours n of W(n), a max over four adjacent floats, and Q(s, a)
+     * is W of the cell a enters. With one byte of cell kind per cell, a 10,000 x 10,000
+     * grid plans in about 600 MB with GAUSS_SEIDEL.
+     * 
+     * SYNCHRONOUS sweeps read one array and write a second. GAUSS_SEIDEL updates in
+     * place and alternates the sweep direction, so a value crosses the grid in a few
+     * sweeps rather than one cell per sweep. Both split every sweep into row bands
+     * on a ForkJoinPool; concurrent Gauss-Seidel bands may read a neighbouring band's
+     * border row mid-update, which asynchronous value iteration tolerates.
+     * PRIORITIZED_SWEEPING is serial: it backs up the cell with the largest Bellman
+     * error first and requeues the cells that can move into it.
+     */
+    public static class GridPlanner implements AutoCloseable {
+        public enum Method { SYNCHRONOUS, GAUSS_SEIDEL, PRIORITIZED_SWEEPING }
+        
+        /** Policy entry for the goal and for cells without moves. */
+        public static final byte NO_ACTION = -1;
+        
+        private static final byte FREE = 0, OBSTACLE = 1, GOAL = 2;
+        private static final int BANDS_PER_THREAD = 4;
+        private static final GridAction[] ACTIONS = GridAction.values();
+        
+        private final int width;
+        private final int height;
+        private final int cellCount;
+        private final byte[] cellKinds;
+        // Reward for entering a cell of each kind, and the discount applied to the value
+        // beyond it (zero for the goal, which ends the episode)
+        private final float[] entryRewards;
+        private final float[] continuations;
+        private final float discount;
+        private final ForkJoinPool pool;
+        private final int bands;
+        
+        public GridPlanner(GridWorld world, double discountFactor, int threads) {
+            long cells = (long) world.width * world.height;
+            if (cells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Grid too large to plan: " + cells + " cells");
+            }
+            this.width = world.width;
+            this.height = world.height;
+            this.cellCount = (int) cells;
+            this.cellKinds = new byte[cellCount];
+            for (GridState obstacle : world.obstacles) {
+                if (world.isValidState(obstacle)) {
+                    cellKinds[obstacle.y * width + obstacle.x] = OBSTACLE;
+                }
+            }
+            if (world.isValidState(world.goalState)) {
+                cellKinds[world.goalState.y * width + world.goalState.x] = GOAL;
+            }
+            this.discount = (float) discountFactor;
+            this.entryRewards = new float[] {
+                (float) world.stepPenalty, (float) world.obstaclePenalty, (float) world.goalReward
+            };
+            this.continuations = new float[] { discount, discount, 0f };
+            this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+            this.bands = Math.max(1, Math.min(height, threads * BANDS_PER_THREAD));
+        }
+        
+        /**
+         * Plans until the largest change in V during a sweep is at most theta, or
+         * maxSweeps sweeps have run. For PRIORITIZED_SWEEPING, theta is the smallest
+         * Bellman error still worth queueing and the budget is maxSweeps * cells backups.
+         */
+        public PlanningResult plan(Method method, double theta, int maxSweeps) {
+            long start = System.nanoTime();
+            float[] entryValues = new float[cellCount];
+            for (int cell = 0; cell < cellCount; cell++) {
+                entryValues[cell] = entryRewards[cellKinds[cell]]; // V = 0 everywhere
+            }
+            // Residuals are measured on W, which moves by discount times the change in V
+            double wTheta = theta * Math.max(discount, Float.MIN_NORMAL);
+            int sweeps = 0;
+            long backups;
+            double residual = Double.POSITIVE_INFINITY;
+            
+            if (method == Method.PRIORITIZED_SWEEPING) {
+                CellQueue queue = new CellQueue(cellCount);
+                backups = prioritizedSweeping(entryValues, queue, (float) wTheta,
+                                              (long) maxSweeps * cellCount);
+                sweeps = 1;
+                residual = queue.isEmpty() ? 0 : queue.maxPriority();
+            } else if (method == Method.SYNCHRONOUS) {
+                float[] next = new float[cellCount];
+                while (sweeps < maxSweeps && residual > wTheta) {
+                    residual = sweep(entryValues, next, false);
+                    float[] swap = entryValues;
+                    entryValues = next;
+                    next = swap;
+                    sweeps++;
+                }
+                backups = (long) sweeps * cellCount;
+            } else {
+                while (sweeps < maxSweeps && residual > wTheta) {
+                    residual = sweep(entryValues, entryValues, (sweeps & 1) != 0);
+                    sweeps++;
+                }
+                backups = (long) sweeps * cellCount;
+            }
+            
+            byte[] policy = new byte[cellCount];
+            float[] planned = entryValues;
+            forEachBand((from, to) -> {
+                extractPolicy(planned, policy, from, to);
+                return 0.0;
+            });
+            return new PlanningResult(this, method, entryValues, policy, sweeps, backups,
+                                      residual / Math.max(discount, Float.MIN_NORMAL),
+                                      System.nanoTime() - start);
+        }
+        
+        @FunctionalInterface
+        private interface BandTask {
+            double run(int fromRow, int toRow);
+        }
+        
+        // Runs task over row bands, in parallel when there is a pool; returns the largest result
+        private double forEachBand(BandTask task) {
+            if (pool == null || bands == 1) {
+                return task.run(0, height);
+            }
+            int rowsPerBand = (height + bands - 1) / bands;
+            List<ForkJoinTask<Double>> tasks = new ArrayList<>(bands);
+            for (int row = 0; row < height; row += rowsPerBand) {
+                int from = row;
+                int to = Math.min(height, row + rowsPerBand);
+                tasks.add(ForkJoinTask.adapt(() -> task.run(from, to)));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            double max = 0;
+            for (ForkJoinTask<Double> done : tasks) {
+                max = Math.max(max, done.join());
+            }
+            return max;
+        }
+        
+        // One sweep of backups from source into target (the same array for
+        // Gauss-Seidel); returns the largest change in W
+        private double sweep(float[] source, float[] target, boolean reverse) {
+            return forEachBand((from, to) -> {
+                float residual = 0f;
+                for (int r = from; r < to; r++) {
+                    int y = reverse ? from + to - 1 - r : r;
+                    residual = Math.max(residual, reverse
+                        ? sweepRowBackward(source, target, y)
+                        : sweepRowForward(source, target, y));
+                }
+                return residual;
+            });
+        }
+        
+        private float sweepRowForward(float[] source, float[] target, int y) {
+            int row = y * width;
+            float residual = updateEdge(source, target, 0, y);
+            if (width > 1) {
+                if (y > 0 && y < height - 1) {
+                    for (int cell = row + 1, end = row + width - 1; cell < end; cell++) {
+                        residual = Math.max(residual, updateInterior(source, target, cell));
+                    }
+                } else {
+                    for (int x = 1; x < width - 1; x++) {
+                        residual = Math.max(residual, updateEdge(source, target, x, y));
+                    }
+                }
+                residual = Math.max(residual, updateEdge(source, target, width - 1, y));
+            }
+            return residual;
+        }
+        
+        private float sweepRowBackward(float[] source, float[] target, int y) {
+            int row = y * width;
+            float residual = width > 1 ? updateEdge(source, target, width - 1, y) : 0f;
+            if (y > 0 && y < height - 1) {
+                for (int cell = row + width - 2; cell > row; cell--) {
+                    residual = Math.max(residual, updateInterior(source, target, cell));
+                }
+            } else {
+                for (int x = width - 2; x > 0; x--) {
+                    residual = Math.max(residual, updateEdge(source, target, x, y));
+                }
+            }
+            return Math.max(residual, updateEdge(source, target, 0, y));
+        }
+        
+        // A cell with all four neighbours on the grid: no bounds tests
+        private float updateInterior(float[] source, float[] target, int cell) {
+            float up = source[cell - width], down = source[cell + width];
+            float left = source[cell - 1], right = source[cell + 1];
+            float vertical = up > down ? up : down;
+            float horizontal = left > right ? left : right;
+            return store(source, target, cell, vertical > horizontal ? vertical : horizontal);
+        }
+        
+        private float updateEdge(float[] source, float[] target, int x, int y) {
+            int cell = y * width + x;
+            return store(source, target, cell, bestEntryValue(source, x, y, cell));
+        }
+        
+        // Writes W = r + discount * best (r alone at the goal) and returns the change
+        private float store(float[] source, float[] target, int cell, float best) {
+            int kind = cellKinds[cell];
+            float old = source[cell];
+            float updated = entryRewards[kind] + continuations[kind] * best;
+            target[cell] = updated;
+            return Math.abs(updated - old);
+        }
+        
+        // V(cell): the best W among the on-grid neighbours, 0 when there are none
+        private float bestEntryValue(float[] entryValues, int x, int y, int cell) {
+            float best = Float.NEGATIVE_INFINITY;
+            if (y > 0) best = Math.max(best, entryValues[cell - width]);
+            if (y < height - 1) best = Math.max(best, entryValues[cell + width]);
+            if (x > 0) best = Math.max(best, entryValues[cell - 1]);
+            if (x < width - 1) best = Math.max(best, entryValues[cell + 1]);
+            return best == Float.NEGATIVE_INFINITY ? 0f : best;
+        }
+        
+        private void extractPolicy(float[] entryValues, byte[] policy, int fromRow, int toRow) {
+            for (int y = fromRow; y < toRow; y++) {
+                for (int x = 0, cell = y * width; x < width; x++, cell++) {
+                    byte bestAction = NO_ACTION;
+                    if (cellKinds[cell] != GOAL) {
+                        float best = Float.NEGATIVE_INFINITY;
+                        for (GridAction action : ACTIONS) {
+                            int nx = x + action.dx;
+                            int ny = y + action.dy;
+                            if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                            float value = entryValues[ny * width + nx];
+                            if (value > best) {
+                                best = value;
+                                bestAction = (byte) action.ordinal();
+                            }
+                        }
+                    }
+                    policy[cell] = bestAction;
+                }
+            }
+        }
+        
+        private long prioritizedSweeping(float[] entryValues, CellQueue queue, float theta,
+                                         long maxBackups) {
+            // Seed with every cell whose Bellman error exceeds theta
+            for (int cell = 0; cell < cellCount; cell++) {
+                float error = bellmanError(entryValues, cell % width, cell / width, cell);
+                if (error > theta) {
+                    queue.offer(cell, error);
+                }
+            }
+            long backups = cellCount;
+            
+            while (!queue.isEmpty() && backups < maxBackups) {
+                int cell = queue.poll();
+                int x = cell % width;
+                int y = cell / width;
+                updateEdge(entryValues, entryValues, x, y);
+                backups++;
                 
-                if (result.isTerminal) {
-                    break;
+                // Every on-grid neighbour can move into cell, so its error may have grown
+                for (GridAction action : ACTIONS) {
+                    int nx = x + action.dx;
+                    int ny = y + action.dy;
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                    int neighbour = ny * width + nx;
+                    float error = bellmanError(entryValues, nx, ny, neighbour);
+                    backups++;
+                    if (error > theta) {
+                        queue.offer(neighbour, error);
+                    }
                 }
             }
+            return backups;
+        }
+        
+        private float bellmanError(float[] entryValues, int x, int y, int cell) {
+            int kind = cellKinds[cell];
+            float updated = entryRewards[kind]
+                + continuations[kind] * bestEntryValue(entryValues, x, y, cell);
+            return Math.abs(updated - entryValues[cell]);
+        }
+        
+        @Override
+        public void close() {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        
+        /**
+         * Max-heap of cells keyed by float priority, in primitive arrays. offer inserts
+         * a cell or raises its priority; each cell is queued at most once.
+         */
+        private static final class CellQueue {
+            private final int[] heap;
+            private final int[] positions; // heap slot of each cell, -1 when not queued
+            private final float[] priorities;
+            private int size;
             
-            // Record metrics
-            episodeRewards.add(totalReward);
-            explorationRates.add(qLearning.getExplorationRate());
+            CellQueue(int cells) {
+                this.heap = new int[cells];
+                this.positions = new int[cells];
+                this.priorities = new float[cells];
+                Arrays.fill(positions, -1);
+            }
             
-            // Decay exploration rate
-            qLearning.decayExploration();
+            boolean isEmpty() { return size == 0; }
+            
+            float maxPriority() { return priorities[heap[0]]; }
+            
+            void offer(int cell, float priority) {
+                int slot = positions[cell];
+                if (slot < 0) {
+                    slot = size++;
+                    heap[slot] = cell;
+                    positions[cell] = slot;
+                } else if (priority <= priorities[cell]) {
+                    return;
+                }
+                priorities[cell] = priority;
+                siftUp(slot);
+            }
             
-            // Progress reporting
-            if ((episode + 1) % (totalEpisodes / 10) == 0) {
-                System.out.printf("Episode %d: Reward=%.2f, Exploration=%.3f%n",
-                    episode + 1, totalReward, qLearning.getExplorationRate());
+            int poll() {
+                int top = heap[0];
+                positions[top] = -1;
+                int last = heap[--size];
+                if (size > 0) {
+                    heap[0] = last;
+                    positions[last] = 0;
+                    siftDown(0);
+                }
+                return top;
+            }
+            
+            private void siftUp(int slot) {
+                int cell = heap[slot];
+                float priority = priorities[cell];
+                while (slot > 0) {
+                    int parent = (slot - 1) >>> 1;
+                    int parentCell = heap[parent];
+                    if (priorities[parentCell] >= priority) break;
+                    heap[slot] = parentCell;
+                    positions[parentCell] = slot;
+                    slot = parent;
+                }
+                heap[slot] = cell;
+                positions[cell] = slot;
+            }
+            
+            private void siftDown(int slot) {
+                int cell = heap[slot];
+                float priority = priorities[cell];
+                int half = size >>> 1;
+                while (slot < half) {
+                    int child = 2 * slot + 1;
+                    if (child + 1 < size && priorities[heap[child + 1]] > priorities[heap[child]]) {
+                        child++;
+                    }
+                    int childCell = heap[child];
+                    if (priority >= priorities[childCell]) break;
+                    heap[slot] = childCell;
+                    positions[childCell] = slot;
+                    slot = child;
+                }
+                heap[slot] = cell;
+                positions[cell] = slot;
+            }
+        }
+    }
+    
+    /** State values and greedy actions from a GridPlanner, one entry per cell. */
+    public static class PlanningResult {
+        public final GridPlanner.Method method;
+        public final int sweeps;
+        public final long backups;
+        public final double residual;
+        public final long elapsedNanos;
+        
+        private final GridPlanner planner;
+        private final float[] entryValues;
+        private final byte[] policy;
+        
+        PlanningResult(GridPlanner planner, GridPlanner.Method method, float[] entryValues,
+                       byte[] policy, int sweeps, long backups, double residual, long elapsedNanos) {
+            this.planner = planner;
+            this.method = method;
+            this.entryValues = entryValues;
+            this.policy = policy;
+            this.sweeps = sweeps;
+            this.backups = backups;
+            this.residual = residual;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        private int cellOf(GridState state) {
+            if (state.x < 0 || state.x >= planner.width || state.y < 0 || state.y >= planner.height) {
+                throw new IllegalArgumentException("State outside the planned grid: " + state);
             }
+            return state.y * planner.width + state.x;
         }
         
-        Policy<S, A> optimalPolicy = qLearning.createGreedyPolicy();
-        return new TrainingResult<>(episodeRewards, explorationRates, 
-                                  qLearning.getQTable(), optimalPolicy);
+        /** V(state): 0 at the goal, otherwise the return of the best move. */
+        public double getValue(GridState state) {
+            int cell = cellOf(state);
+            return planner.cellKinds[cell] == GridPlanner.GOAL ? 0.0
+                : planner.bestEntryValue(entryValues, state.x, state.y, cell);
+        }
+        
+        /** The greedy action in state, or null at the goal. */
+        public GridAction getAction(GridState state) {
+            byte action = policy[cellOf(state)];
+            return action == GridPlanner.NO_ACTION ? null : GridPlanner.ACTIONS[action];
+        }
+        
+        public Policy<GridState, GridAction> toPolicy() {
+            return this::getAction;
+        }
+        
+        /**
+         * Q(s, a) for every on-grid move, as a DenseQTable that QLearning can start from.
+         * Throws IllegalArgumentException for grids too large for a dense table.
+         */
+        public DenseQTable<GridState, GridAction> toQTable() {
+            int width = planner.width;
+            int height = planner.height;
+            GridStateEncoder states = new GridStateEncoder(width, height);
+            DenseQTable<GridState, GridAction> table =
+                new DenseQTable<>(states, IndexEncoder.ofEnum(GridAction.class), 0.0);
+            for (int cell = 0; cell < entryValues.length; cell++) {
+                if (planner.cellKinds[cell] == GridPlanner.GOAL) continue;
+                int x = cell % width;
+                int y = cell / width;
+                GridState state = states.decode(cell);
+                for (GridAction action : GridPlanner.ACTIONS) {
+                    int nx = x + action.dx;
+                    int ny = y + action.dy;
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                    table.setQValue(state, action, entryValues[ny * width + nx]);
+                }
+            }
+            return table;
+        }
     }
     
     // MARK: - Demonstration
@@ -394,14 +4066,15 @@ public class ReinforcementLearning {
         GridWorld environment = new GridWorld(5, 5, startState, goalState,
             obstacles, 10.0, -5.0, -0.1);
         
-        // Configure Q-learning
+        // Configure Q-learning over a dense table (initial Q value 0.0)
         QLearning<GridState, GridAction> qLearning = new QLearning<>(
+            new DenseQTable<>(environment.stateEncoder(),
+                              IndexEncoder.ofEnum(GridAction.class), 0.0),
             0.1,    // learning rate
             0.9,    // discount factor
             1.0,    // initial exploration
             0.995,  // exploration decay
-            0.01,   // min exploration
-            0.0     // initial Q value
+            0.01    // min exploration
         );
         
         // Train the agent
@@ -443,6 +4116,35 @@ public class ReinforcementLearning {
             System.out.printf("%s: %.3f%n", action, value));
     }
     
+    public static void demonstrateValueIteration() {
+        System.out.println("\n=== Model-Based Planning: Value Iteration ===");
+        
+        // Same grid as demonstrateGridWorld, solved from its model instead of episodes
+        GridWorld environment = new GridWorld(5, 5, new GridState(0, 0), new GridState(4, 4),
+            Set.of(new GridState(1, 1), new GridState(2, 2), new GridState(3, 1)),
+            10.0, -5.0, -0.1);
+        
+        try (GridPlanner planner = new GridPlanner(environment, 0.9, 1)) {
+            for (GridPlanner.Method method : GridPlanner.Method.values()) {
+                PlanningResult result = planner.plan(method, 1e-6, 1000);
+                System.out.printf("%-20s %3d sweeps, %4d backups, V(0, 0) = %.3f%n",
+                    method, result.sweeps, result.backups, result.getValue(new GridState(0, 0)));
+            }
+            
+            // Follow the planned policy from the start state
+            Policy<GridState, GridAction> policy =
+                planner.plan(GridPlanner.Method.GAUSS_SEIDEL, 1e-6, 1000).toPolicy();
+            GridState state = new GridState(0, 0);
+            List<GridAction> path = new ArrayList<>();
+            while (!environment.isTerminal(state) && path.size() < 25) {
+                GridAction action = policy.chooseAction(state);
+                path.add(action);
+                state = action.apply(state);
+            }
+            System.out.println("Planned path: " + path);
+        }
+    }
+    
     // MARK: - Advanced: Deep Q-Network Interface (Conceptual)
     
     public interface DeepQNetwork<S> {
@@ -451,9 +4153,338 @@ public class ReinforcementLearning {
         void updateTargetNetwork();
     }
     
+    /** Writes a fixed-length numeric feature vector for a state. */
+    public interface StateFeaturizer<S> {
+        int featureCount();
+        void writeFeatures(S state, double[] out, int offset);
+        
+        static <S> StateFeaturizer<S> oneHot(IndexEncoder<S> encoder) {
+            return new OneHotFeaturizer<>(encoder);
+        }
+    }
+    
+    public static class OneHotFeaturizer<S> implements StateFeaturizer<S> {
+        private final IndexEncoder<S> encoder;
+        
+        public OneHotFeaturizer(IndexEncoder<S> encoder) {
+            this.encoder = encoder;
+        }
+        
+        @Override
+        public int featureCount() { return encoder.size(); }
+        
+        @Override
+        public void writeFeatures(S state, double[] out, int offset) {
+            Arrays.fill(out, offset, offset + encoder.size(), 0.0);
+            out[offset + encoder.encode(state)] = 1.0;
+        }
+    }
+    
+    /**
+     * Row-major double GEMM, C[m x n] (+)= A[m x k] * B[k x n], with arrays addressed
+     * by offset so layers can live in one flat parameter vector. The i-k-j loop order
+     * keeps the inner loop contiguous (and auto-vectorizable), k and j are blocked to
+     * stay in cache, and large products are split by row blocks across a ForkJoinPool.
+     */
+    public static final class MatrixKernel {
+        private static final int K_BLOCK = 128;
+        private static final int N_BLOCK = 512;
+        private static final int MIN_PARALLEL_WORK = 1 << 16;
+        
+        private MatrixKernel() {}
+        
+        public static void gemm(int m, int n, int k,
+                                double[] a, int aOffset, double[] b, int bOffset,
+                                double[] c, int cOffset, boolean accumulate, ForkJoinPool pool) {
+            if (!accumulate) {
+                Arrays.fill(c, cOffset, cOffset + m * n, 0.0);
+            }
+            int threads = pool == null ? 1 : pool.getParallelism();
+            if (threads == 1 || (long) m * n * k < MIN_PARALLEL_WORK || m == 1) {
+                gemmRows(0, m, n, k, a, aOffset, b, bOffset, c, cOffset);
+                return;
+            }
+            
+            int rowsPerTask = Math.max(1, (m + threads - 1) / threads);
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(threads);
+            for (int row = 0; row < m; row += rowsPerTask) {
+                int from = row;
+                int to = Math.min(m, row + rowsPerTask);
+                tasks.add(ForkJoinTask.adapt(
+                    () -> gemmRows(from, to, n, k, a, aOffset, b, bOffset, c, cOffset)));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        
+        private static void gemmRows(int rowFrom, int rowTo, int n, int k,
+                                     double[] a, int aOffset, double[] b, int bOffset,
+                                     double[] c, int cOffset) {
+            for (int k0 = 0; k0 < k; k0 += K_BLOCK) {
+                int k1 = Math.min(k, k0 + K_BLOCK);
+                for (int j0 = 0; j0 < n; j0 += N_BLOCK) {
+                    int j1 = Math.min(n, j0 + N_BLOCK);
+                    for (int i = rowFrom; i < rowTo; i++) {
+                        int aRow = aOffset + i * k;
+                        int cRow = cOffset + i * n;
+                        for (int kk = k0; kk < k1; kk++) {
+                            double aik = a[aRow + kk];
+                            if (aik != 0.0) { // one-hot and ReLU inputs are sparse
+                                axpy(aik, b, bOffset + kk * n + j0, c, cRow + j0, j1 - j0);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        // y[yOffset..] += alpha * x[xOffset..]; a separate method so C2 compiles and
+        // vectorizes it on its own instead of as part of the loop nest
+        private static void axpy(double alpha, double[] x, int xOffset,
+                                 double[] y, int yOffset, int length) {
+            for (int j = 0; j < length; j++) {
+                y[yOffset + j] += alpha * x[xOffset + j];
+            }
+        }
+        
+        public static void transpose(int rows, int cols, double[] src, int srcOffset, double[] dst) {
+            for (int r = 0; r < rows; r++) {
+                for (int col = 0; col < cols; col++) {
+                    dst[col * rows + r] = src[srcOffset + r * cols + col];
+                }
+            }
+        }
+    }
+    
+    /**
+     * CPU multilayer perceptron DQN: ReLU hidden layers and a linear output per action.
+     * It trains with minibatch SGD on a Huber (clipped) TD loss, and every layer runs
+     * through MatrixKernel on whole minibatches.
+     * All parameters live in one flat vector, and there are three of them. The online
+     * network reads one buffer. Each SGD step writes the updated weights into a free
+     * buffer and then makes that the online one, so a step never overwrites weights in
+     * use. updateTargetNetwork just pins the current online buffer as the target: an
+     * O(1) swap with no copy. Scratch buffers grow with the largest batch seen, so
+     * steady-state training allocates nothing per sample. Not thread-safe; the kernel
+     * parallelism is internal.
+     */
+    public static class MlpQNetwork<S> implements DeepQNetwork<S>, AutoCloseable {
+        private final StateFeaturizer<S> featurizer;
+        private final int[] layerSizes;
+        private final int[] weightOffsets;
+        private final int[] biasOffsets;
+        private final double[][] parameters = new double[3][];
+        private final double[] gradients;
+        private final double learningRate;
+        private final ForkJoinPool pool;
+        private int online = 0;
+        private int target = 0;
+        
+        private int batchCapacity;
+        private double[][] activations;
+        private double[][] deltas;
+        private double[] scratch;
+        
+        public MlpQNetwork(StateFeaturizer<S> featurizer, int[] hiddenSizes, int actionCount,
+                          double learningRate, int threads) {
+            this.featurizer = featurizer;
+            this.layerSizes = new int[hiddenSizes.length + 2];
+            layerSizes[0] = featurizer.featureCount();
+            System.arraycopy(hiddenSizes, 0, layerSizes, 1, hiddenSizes.length);
+            layerSizes[layerSizes.length - 1] = actionCount;
+            
+            int layers = layerSizes.length - 1;
+            this.weightOffsets = new int[layers];
+            this.biasOffsets = new int[layers];
+            int parameterCount = 0;
+            for (int l = 0; l < layers; l++) {
+                weightOffsets[l] = parameterCount;
+                parameterCount += layerSizes[l] * layerSizes[l + 1];
+                biasOffsets[l] = parameterCount;
+                parameterCount += layerSizes[l + 1];
+            }
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = new double[parameterCount];
+            }
+            this.gradients = new double[parameterCount];
+            this.learningRate = learningRate;
+            this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+            
+            // He initialization for the ReLU layers
+            double[] weights = parameters[online];
+            for (int l = 0; l < layers; l++) {
+                double scale = Math.sqrt(2.0 / layerSizes[l]);
+                for (int i = weightOffsets[l]; i < biasOffsets[l]; i++) {
+                    weights[i] = ThreadLocalRandom.current().nextGaussian() * scale;
+                }
+            }
+            ensureBatchCapacity(1);
+        }
+        
+        @Override
+        public double[] predictQValues(S state) {
+            double[] out = new double[actionCount()];
+            featurizer.writeFeatures(state, activations[0], 0);
+            forward(parameters[online], 1);
+            System.arraycopy(activations[activations.length - 1], 0, out, 0, out.length);
+            return out;
+        }
+        
+        /** Online-network Q-values for a batch, written row-major into out. */
+        public void predictBatch(S[] states, double[] out) {
+            predictBatch(states, out, parameters[online]);
+        }
+        
+        /** Target-network Q-values for a batch, for computing TD targets. */
+        public void predictTargetBatch(S[] states, double[] out) {
+            predictBatch(states, out, parameters[target]);
+        }
+        
+        private void predictBatch(S[] states, double[] out, double[] weights) {
+            int batch = states.length;
+            ensureBatchCapacity(batch);
+            featurize(states);
+            forward(weights, batch);
+            System.arraycopy(activations[activations.length - 1], 0, out, 0, batch * actionCount());
+        }
+        
+        @Override
+        public void train(S[] states, int[] actions, double[] targets) {
+            int batch = states.length;
+            int layers = layerSizes.length - 1;
+            ensureBatchCapacity(batch);
+            featurize(states);
+            double[] weights = parameters[online];
+            forward(weights, batch);
+            
+            // Output delta: clipped TD error on the taken action only, averaged over the batch
+            int actionCount = actionCount();
+            double[] output = activations[layers];
+            double[] delta = deltas[layers];
+            Arrays.fill(delta, 0, batch * actionCount, 0.0);
+            for (int r = 0; r < batch; r++) {
+                int i = r * actionCount + actions[r];
+                double error = Math.max(-1.0, Math.min(1.0, output[i] - targets[r]));
+                delta[i] = error / batch;
+            }
+            
+            for (int l = layers - 1; l >= 0; l--) {
+                int in = layerSizes[l];
+                int out = layerSizes[l + 1];
+                double[] layerDelta = deltas[l + 1];
+                
+                // dW = A^T * delta, db = column sums of delta
+                MatrixKernel.transpose(batch, in, activations[l], 0, scratch);
+                MatrixKernel.gemm(in, out, batch, scratch, 0, layerDelta, 0,
+                                  gradients, weightOffsets[l], false, pool);
+                int biasOffset = biasOffsets[l];
+                Arrays.fill(gradients, biasOffset, biasOffset + out, 0.0);
+                for (int r = 0; r < batch; r++) {
+                    for (int j = 0; j < out; j++) {
+                        gradients[biasOffset + j] += layerDelta[r * out + j];
+                    }
+                }
+                
+                if (l > 0) {
+                    // delta_prev = (delta * W^T) masked by the ReLU derivative
+                    MatrixKernel.transpose(in, out, weights, weightOffsets[l], scratch);
+                    MatrixKernel.gemm(batch, in, out, layerDelta, 0, scratch, 0,
+                                      deltas[l], 0, false, pool);
+                    double[] previous = deltas[l];
+                    double[] activation = activations[l];
+                    for (int i = 0; i < batch * in; i++) {
+                        previous[i] = activation[i] > 0 ? previous[i] : 0.0;
+                    }
+                }
+            }
+            
+            // SGD step into a buffer that is neither online nor target, then publish it
+            int next = freeBuffer();
+            double[] updated = parameters[next];
+            for (int i = 0; i < updated.length; i++) {
+                updated[i] = weights[i] - learningRate * gradients[i];
+            }
+            online = next;
+        }
+        
+        @Override
+        public void updateTargetNetwork() {
+            target = online;
+        }
+        
+        @Override
+        public void close() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        
+        public int actionCount() {
+            return layerSizes[layerSizes.length - 1];
+        }
+        
+        private int freeBuffer() {
+            for (int i = 0; i < parameters.length; i++) {
+                if (i != online && i != target) return i;
+            }
+            throw new IllegalStateException("No free parameter buffer");
+        }
+        
+        private void featurize(S[] states) {
+            int features = layerSizes[0];
+            for (int r = 0; r < states.length; r++) {
+                featurizer.writeFeatures(states[r], activations[0], r * features);
+            }
+        }
+        
+        private void forward(double[] weights, int batch) {
+            int layers = layerSizes.length - 1;
+            for (int l = 0; l < layers; l++) {
+                int in = layerSizes[l];
+                int out = layerSizes[l + 1];
+                double[] next = activations[l + 1];
+                MatrixKernel.gemm(batch, out, in, activations[l], 0, weights, weightOffsets[l],
+                                  next, 0, false, pool);
+                
+                int biasOffset = biasOffsets[l];
+                boolean hidden = l < layers - 1;
+                for (int r = 0; r < batch; r++) {
+                    for (int j = 0, i = r * out; j < out; j++, i++) {
+                        double z = next[i] + weights[biasOffset + j];
+                        next[i] = hidden ? Math.max(0.0, z) : z;
+                    }
+                }
+            }
+        }
+        
+        private void ensureBatchCapacity(int batch) {
+            if (batch <= batchCapacity) return;
+            
+            int layers = layerSizes.length;
+            activations = new double[layers][];
+            deltas = new double[layers][];
+            int scratchSize = 0;
+            for (int l = 0; l < layers; l++) {
+                activations[l] = new double[batch * layerSizes[l]];
+                deltas[l] = new double[batch * layerSizes[l]];
+                if (l + 1 < layers) {
+                    scratchSize = Math.max(scratchSize, Math.max(
+                        batch * layerSizes[l], layerSizes[l] * layerSizes[l + 1]));
+                }
+            }
+            scratch = new double[scratchSize];
+            batchCapacity = batch;
+        }
+    }
+    
     public static void main(String[] args) {
         // Run demonstration
         demonstrateGridWorld();
+        demonstrateValueIteration();
         
         // Additional RL concepts could be demonstrated here:
         // - SARSA vs Q-learning comparison
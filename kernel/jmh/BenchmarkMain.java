@@ -0,0 +1,24 @@
+package kernel.jmh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of benchmarks.jar: the standard JMH launcher with the GC profiler
+ * on by default, so throughput and allocation regressions show up in the same run.
+ * Passing any -prof option replaces the default.
+ */
+public class BenchmarkMain {
+    
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-prof")) {
+            options.add(0, "-prof");
+            options.add(1, "gc");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,93 @@
+package kernel.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.BulkIOExecutor;
+
+/**
+ * Reading 1000 4KB files one after another on the calling thread, the way the
+ * demonstrate methods do their I/O, versus through BulkIOExecutor with 1, 16
+ * and 64 jobs in flight. Files are in the page cache after the first pass, so
+ * this measures per-file overhead more than the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkIOBenchmark {
+    
+    private static final int FILES = 1000;
+    private static final int FILE_SIZE = 4096;
+    
+    /** The executor, sized by the concurrency parameter. */
+    @State(Scope.Benchmark)
+    public static class Executor {
+        @Param({"1", "16", "64"})
+        public int concurrency;
+        
+        private BulkIOExecutor executor;
+        
+        @Setup
+        public void setUp() {
+            executor = new BulkIOExecutor(concurrency);
+        }
+        
+        @TearDown
+        public void tearDown() {
+            executor.close();
+        }
+    }
+    
+    private Path directory;
+    private List<Path> files;
+    private List<BulkIOExecutor.Job> reads;
+    
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bulk-io-bench");
+        files = new ArrayList<>(FILES);
+        reads = new ArrayList<>(FILES);
+        byte[] data = new byte[FILE_SIZE];
+        for (int i = 0; i < FILES; i++) {
+            Path file = directory.resolve("asset_" + i);
+            Files.write(file, data);
+            files.add(file);
+            reads.add(BulkIOExecutor.Job.read(file));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+    
+    @Benchmark
+    public long sequentialReads() throws IOException {
+        long total = 0;
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                total += in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return total;
+    }
+    
+    @Benchmark
+    public long executorReads(Executor executor) throws InterruptedException {
+        return executor.executor.runAll(reads).totalBytes();
+    }
+}
@@ -0,0 +1,100 @@
+package kernel.jmh;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.ConcatenatedFileReader;
+
+/**
+ * Counting the lines of 32 2MB log files read as one text: SequenceInputStream
+ * through InputStreamReader and BufferedReader.readLine, versus
+ * ConcatenatedFileReader's readLine (one String per line) and forEachLine (a
+ * reused view per line).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcatenationBenchmark {
+    
+    private static final int FILES = 32;
+    private static final int FILE_SIZE = 2 << 20;
+    
+    private Path directory;
+    private List<Path> files;
+    
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("concat-bench");
+        files = new ArrayList<>(FILES);
+        for (int f = 0; f < FILES; f++) {
+            Path file = directory.resolve("log_" + f + ".txt");
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int line = 0, size = 0; size < FILE_SIZE; line++) {
+                    String text = "2024-01-01 12:00:00 INFO file " + f + " request " + line + " served\n";
+                    out.write(text);
+                    size += text.length();
+                }
+            }
+            files.add(file);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+    
+    @Benchmark
+    public long sequenceInputStream() throws IOException {
+        List<InputStream> streams = new ArrayList<>(FILES);
+        for (Path file : files) {
+            streams.add(new FileInputStream(file.toFile()));
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new SequenceInputStream(Collections.enumeration(streams)), StandardCharsets.UTF_8))) {
+            long lines = 0;
+            while (reader.readLine() != null) {
+                lines++;
+            }
+            return lines;
+        }
+    }
+    
+    @Benchmark
+    public long concatenatedReadLine() throws IOException {
+        try (ConcatenatedFileReader reader = new ConcatenatedFileReader(files)) {
+            long lines = 0;
+            while (reader.readLine() != null) {
+                lines++;
+            }
+            return lines;
+        }
+    }
+    
+    @Benchmark
+    public long concatenatedForEachLine() throws IOException {
+        try (ConcatenatedFileReader reader = new ConcatenatedFileReader(files)) {
+            return reader.forEachLine(line -> { });
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package kernel.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.ConfigFileHandler;
+
+/**
+ * Hot-path configuration reads: a shared Properties table (synchronized
+ * Hashtable) with the int parsed on every call, against ConfigFileHandler's
+ * snapshot lookup and its cached typed getter. The contended variants run
+ * four threads against the same instance. The score is time per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+    
+    private Path file;
+    private Properties properties;
+    private ConfigFileHandler handler;
+    
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("bench", ".config");
+        Files.delete(file);
+        handler = new ConfigFileHandler(file.toString(), false);
+        properties = new Properties();
+        handler.snapshot().asMap().forEach(properties::setProperty);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        handler.close();
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public String propertiesGet() {
+        return properties.getProperty("server.host");
+    }
+    
+    @Benchmark
+    public String snapshotGet() {
+        return handler.getProperty("server.host");
+    }
+    
+    @Benchmark
+    public int propertiesParseInt() {
+        return Integer.parseInt(properties.getProperty("server.port"));
+    }
+    
+    @Benchmark
+    public int snapshotGetInt() {
+        return handler.getInt("server.port", 0);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public int propertiesParseIntContended() {
+        return Integer.parseInt(properties.getProperty("server.port"));
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public int snapshotGetIntContended() {
+        return handler.getInt("server.port", 0);
+    }
+}
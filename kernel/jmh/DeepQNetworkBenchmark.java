@@ -0,0 +1,79 @@
+package kernel.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.MlpQNetwork;
+import kernel.ReinforcementLearning.StateFeaturizer;
+
+/**
+ * MlpQNetwork training throughput on a 1024 -> 256 -> 256 -> 4 network fed one-hot
+ * 32x32 grid states, by batch size and worker threads. The score is train() calls
+ * per second; the "samples" counter is the same rate in samples, the number to
+ * compare across batch sizes. The target network is refreshed every 100 calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeepQNetworkBenchmark {
+    
+    @Param({"1", "2", "4"})
+    public int threads;
+    
+    @Param({"32", "128", "512"})
+    public int batchSize;
+    
+    /** Samples trained, reported as a rate alongside the call rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Samples {
+        public long samples;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            samples = 0;
+        }
+    }
+    
+    private MlpQNetwork<GridState> network;
+    private GridState[] states;
+    private int[] actions;
+    private double[] targets;
+    private int calls;
+    
+    @Setup
+    public void setUp() {
+        GridStateEncoder encoder = new GridStateEncoder(32, 32);
+        network = new MlpQNetwork<>(StateFeaturizer.oneHot(encoder), new int[] {256, 256}, 4, 0.01, threads);
+        Random random = new Random(42);
+        states = new GridState[batchSize];
+        actions = new int[batchSize];
+        targets = new double[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            states[i] = encoder.decode(random.nextInt(encoder.size()));
+            actions[i] = random.nextInt(4);
+            targets[i] = -1 + 11 * random.nextDouble();
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        network.close();
+    }
+    
+    @Benchmark
+    public void train(Samples counter) {
+        network.train(states, actions, targets);
+        if (++calls % 100 == 0) {
+            network.updateTargetNetwork();
+        }
+        counter.samples += batchSize;
+    }
+}
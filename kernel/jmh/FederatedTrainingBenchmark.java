@@ -0,0 +1,88 @@
+package kernel.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QLearning;
+
+/**
+ * Wall-clock time to train a fresh dense table on a 24x24 grid until greedy
+ * rollouts average TARGET_REWARD: the serial trainQLearning episode loop versus
+ * trainQLearningFederated with max(2, cores) workers merging every 50 episodes.
+ * Both are evaluated every CHUNK episodes. One measurement is one full run; the
+ * "episodes" counter totals the episodes of the measured runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FederatedTrainingBenchmark {
+    
+    private static final int SIZE = 24;
+    private static final double TARGET_REWARD = 6.0;
+    private static final int CHUNK = 500;
+    private static final int MAX_EPISODES = 200_000;
+    private static final int MAX_STEPS = 300;
+    
+    @Param({"serial", "federated"})
+    public String trainer;
+    
+    /** Episodes the runs of one iteration needed to reach the target. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Episodes {
+        public long episodes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            episodes = 0;
+        }
+    }
+    
+    private GridWorld evaluation;
+    private GridWorld environment;
+    private IndexEncoder<GridState> states;
+    private IndexEncoder<GridAction> actions;
+    private int workers;
+    
+    @Setup
+    public void setUp() {
+        evaluation = GridWorlds.create(SIZE);
+        environment = GridWorlds.create(SIZE);
+        states = evaluation.stateEncoder();
+        actions = IndexEncoder.ofEnum(GridAction.class);
+        workers = Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+    
+    @Benchmark
+    public QLearning<GridState, GridAction> trainToTarget(Episodes counter) {
+        QLearning<GridState, GridAction> qLearning = new QLearning<>(
+            new DenseQTable<>(states, actions, 0.0), 0.1, 0.9, 1.0, 0.999, 0.05);
+        int episodes = 0;
+        while (episodes < MAX_EPISODES
+                && ReinforcementLearning.evaluateGreedy(qLearning.getQTable(), evaluation, 200, MAX_STEPS)
+                   < TARGET_REWARD) {
+            if ("federated".equals(trainer)) {
+                ReinforcementLearning.trainQLearningFederated(qLearning, () -> GridWorlds.create(SIZE),
+                    workers, 50, 0.5, CHUNK, MAX_STEPS);
+            } else {
+                for (int i = 0; i < CHUNK; i++) {
+                    ReinforcementLearning.runEpisode(qLearning, environment, MAX_STEPS);
+                    qLearning.decayExploration();
+                }
+            }
+            episodes += CHUNK;
+        }
+        counter.episodes += episodes;
+        return qLearning;
+    }
+}
@@ -0,0 +1,25 @@
+package kernel.jmh;
+
+import java.util.Set;
+
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+
+/** The grid world shared by the RL benchmarks: 32x32 with three obstacles. */
+final class GridWorlds {
+    
+    static final int SIZE = 32;
+    
+    private GridWorlds() {}
+    
+    static GridWorld create() {
+        return create(SIZE);
+    }
+    
+    /** The same obstacles on a size x size grid, start and goal in opposite corners. */
+    static GridWorld create(int size) {
+        return new GridWorld(size, size, new GridState(0, 0), new GridState(size - 1, size - 1),
+            Set.of(new GridState(5, 5), new GridState(10, 12), new GridState(20, 7)),
+            10.0, -5.0, -0.1);
+    }
+}
@@ -0,0 +1,157 @@
+package kernel.jmh;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample;
+import kernel.IOStreamExample.FastObjectInput;
+import kernel.IOStreamExample.FastObjectOutput;
+import kernel.IOStreamExample.Person;
+
+/**
+ * The in-memory IOStreamExample paths: DataOutputStream primitives, GZIP
+ * compression and Person serialization, through ObjectOutputStream and through
+ * FastObjectOutput, singly and in batches of 1000. They run against byte-array streams so
+ * they measure the stream code rather than the disk; file copies are in
+ * FileCopyBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOStreamBenchmark {
+    
+    private byte[] text;
+    private ByteArrayOutputStream bytes;
+    private DataOutputStream dataOut;
+    
+    private static final int BATCH = 1000;
+    
+    private Person person;
+    private byte[] serializedPerson;
+    private byte[] fastSerializedPerson;
+    private Person[] people;
+    private byte[] serializedPeople;
+    private byte[] fastSerializedPeople;
+    
+    @Setup
+    public void setUp() throws IOException {
+        // Same repetitive text demonstrateCompressionStreams compresses
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append(String.format(
+                "Line %04d: This is some repetitive content for compression testing.%n", i));
+        }
+        text = builder.toString().getBytes(StandardCharsets.UTF_8);
+        
+        bytes = new ByteArrayOutputStream(1 << 16);
+        dataOut = new DataOutputStream(bytes);
+        
+        person = new Person("Alice", 30, "secret123", new Date(0));
+        serializedPerson = serialize(person);
+        fastSerializedPerson = fastSerialize(person);
+        people = new Person[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            people[i] = new Person("Person " + i, 20 + i % 50, "secret", new Date(i * 86_400_000L));
+        }
+        serializedPeople = serialize((Object[]) people);
+        fastSerializedPeople = fastSerialize((Object[]) people);
+    }
+    
+    @Benchmark
+    public int dataStreamPrimitives() throws IOException {
+        bytes.reset();
+        IOStreamExample.writePrimitives(dataOut);
+        dataOut.flush();
+        return bytes.size();
+    }
+    
+    @Benchmark
+    public int gzipText() throws IOException {
+        bytes.reset();
+        IOStreamExample.gzip(new ByteArrayInputStream(text), bytes);
+        return bytes.size();
+    }
+    
+    @Benchmark
+    public byte[] serializePerson() throws IOException {
+        return serialize(person);
+    }
+    
+    @Benchmark
+    public Object deserializePerson() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedPerson))) {
+            return ois.readObject();
+        }
+    }
+    
+    @Benchmark
+    public byte[] fastSerializePerson() throws IOException {
+        return fastSerialize(person);
+    }
+    
+    @Benchmark
+    public Object fastDeserializePerson() throws IOException {
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(fastSerializedPerson), Person.class)) {
+            return in.readObject();
+        }
+    }
+    
+    @Benchmark
+    public byte[] serializePersonBatch() throws IOException {
+        return serialize((Object[]) people);
+    }
+    
+    @Benchmark
+    public int deserializePersonBatch() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedPeople))) {
+            int read = 0;
+            for (int i = 0; i < BATCH; i++) {
+                read += ois.readObject() != null ? 1 : 0;
+            }
+            return read;
+        }
+    }
+    
+    @Benchmark
+    public byte[] fastSerializePersonBatch() throws IOException {
+        return fastSerialize((Object[]) people);
+    }
+    
+    @Benchmark
+    public int fastDeserializePersonBatch() throws IOException {
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(fastSerializedPeople), Person.class)) {
+            int read = 0;
+            for (int i = 0; i < BATCH; i++) {
+                read += in.readObject() != null ? 1 : 0;
+            }
+            return read;
+        }
+    }
+    
+    private static byte[] serialize(Object... values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            for (Object value : values) {
+                oos.writeObject(value);
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] fastSerialize(Object... values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (FastObjectOutput fast = new FastObjectOutput(out)) {
+            for (Object value : values) {
+                fast.writeObject(value);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package kernel.jmh;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample;
+import kernel.IOStreamExample.IndexedCompressedOutputStream;
+import kernel.IOStreamExample.IndexedCompressedReader;
+
+/**
+ * Reading three lines from the middle of 64MB of log-style text: skipping
+ * through a gzip stream versus seeking with the indexed container's block
+ * index. Also a full scan of the container, sequential and on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class IndexedCompressionBenchmark {
+    
+    private static final int INPUT_SIZE = 64 << 20;
+    
+    private Path directory;
+    private Path gzipFile;
+    private Path indexedFile;
+    private IndexedCompressedReader reader;
+    private long middleLine;
+    private ForkJoinPool sequential;
+    
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("indexed-bench");
+        Path text = directory.resolve("log.txt");
+        Random random = new Random(42);
+        long lines = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(text, StandardCharsets.US_ASCII)) {
+            for (long size = 0; size < INPUT_SIZE; lines++) {
+                String line = String.format("2024-01-01 12:%02d:%02d INFO request %d served in %d ms%n",
+                    lines % 60, lines % 59, lines, random.nextInt(500));
+                out.write(line);
+                size += line.length();
+            }
+        }
+        middleLine = lines / 2;
+        
+        gzipFile = directory.resolve("log.gz");
+        try (InputStream in = Files.newInputStream(text)) {
+            IOStreamExample.gzip(in, Files.newOutputStream(gzipFile));
+        }
+        indexedFile = directory.resolve("log.icz");
+        try (InputStream in = Files.newInputStream(text);
+             OutputStream out = new IndexedCompressedOutputStream(Files.newOutputStream(indexedFile))) {
+            in.transferTo(out);
+        }
+        Files.delete(text);
+        reader = new IndexedCompressedReader(indexedFile);
+        sequential = new ForkJoinPool(1);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        sequential.shutdown();
+        Files.delete(gzipFile);
+        Files.delete(indexedFile);
+        Files.delete(directory);
+    }
+    
+    @Benchmark
+    public List<String> gzipSkipToLine() throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(gzipFile), 64 * 1024),
+                StandardCharsets.US_ASCII))) {
+            return in.lines().skip(middleLine).limit(3).toList();
+        }
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> indexedSeekToLine() throws IOException {
+        return reader.readLines(middleLine, 3);
+    }
+    
+    @Benchmark
+    public long indexedScanSequential() throws IOException {
+        return drain(reader.openStream(sequential));
+    }
+    
+    @Benchmark
+    public long indexedScanParallel() throws IOException {
+        return drain(reader.openStream(ForkJoinPool.commonPool()));
+    }
+    
+    private static long drain(InputStream in) throws IOException {
+        try (in) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                total += n;
+            }
+            return total;
+        }
+    }
+}
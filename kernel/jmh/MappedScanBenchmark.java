@@ -0,0 +1,73 @@
+package kernel.jmh;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.MappedLineScanner;
+
+/**
+ * Counting the ERROR lines of a 256MB log file with Files.lines and
+ * String.contains, versus MappedLineScanner's byte views, sequential and
+ * parallel. The parallel score scales with the cores the fork-join pool has.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MappedScanBenchmark {
+    
+    private static final long FILE_SIZE = 256L << 20;
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "WARN", "ERROR"};
+    private static final byte[] ERROR = "ERROR".getBytes(StandardCharsets.US_ASCII);
+    
+    private Path file;
+    private MappedLineScanner scanner;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mapped-scan-bench", ".log");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long size = 0, line = 0; size < FILE_SIZE; line++) {
+                String text = "2024-01-01 12:00:00 " + LEVELS[random.nextInt(LEVELS.length)]
+                    + " request " + line + " served in " + random.nextInt(500) + " ms\n";
+                out.write(text);
+                size += text.length();
+            }
+        }
+        scanner = new MappedLineScanner(file);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        scanner.close();
+        Files.delete(file);
+    }
+    
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.filter(line -> line.contains("ERROR")).count();
+        }
+    }
+    
+    @Benchmark
+    public long mappedSequential() {
+        return scanner.lines().filter(line -> line.contains(ERROR)).count();
+    }
+    
+    @Benchmark
+    public long mappedParallel() {
+        return scanner.lines().parallel().filter(line -> line.contains(ERROR)).count();
+    }
+}
@@ -0,0 +1,92 @@
+package kernel.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.NStepQLearning;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.WatkinsQLambda;
+
+/**
+ * Wall-clock time for a fresh learner on a 24x24 grid to reach an average greedy
+ * reward of TARGET_REWARD, evaluated every CHUNK episodes: one-step Q-learning,
+ * 4- and 16-step Q-learning, and Watkins Q(0.9). One measurement is one full run;
+ * the "episodes" counter totals the episodes of the measured runs, the number that
+ * shows how much faster multi-step returns propagate the goal reward.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MultiStepLearnerBenchmark {
+    
+    private static final int SIZE = 24;
+    private static final double TARGET_REWARD = 6.0;
+    private static final int CHUNK = 100;
+    private static final int MAX_EPISODES = 100_000;
+    private static final int MAX_STEPS = 300;
+    
+    @Param({"one-step", "4-step", "16-step", "watkins"})
+    public String learner;
+    
+    /** Episodes the runs of one iteration needed to reach the target. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Episodes {
+        public long episodes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            episodes = 0;
+        }
+    }
+    
+    private GridWorld evaluation;
+    private GridWorld environment;
+    private IndexEncoder<GridState> states;
+    private IndexEncoder<GridAction> actions;
+    
+    @Setup
+    public void setUp() {
+        evaluation = GridWorlds.create(SIZE);
+        environment = GridWorlds.create(SIZE);
+        states = evaluation.stateEncoder();
+        actions = IndexEncoder.ofEnum(GridAction.class);
+    }
+    
+    private QLearning<GridState, GridAction> newLearner() {
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(states, actions, 0.0);
+        switch (learner) {
+            case "4-step": return new NStepQLearning<>(table, 0.1, 0.9, 4, 1.0, 0.999, 0.05);
+            case "16-step": return new NStepQLearning<>(table, 0.1, 0.9, 16, 1.0, 0.999, 0.05);
+            case "watkins": return new WatkinsQLambda<>(table, 0.1, 0.9, 0.9, 1.0, 0.999, 0.05);
+            default: return new QLearning<>(table, 0.1, 0.9, 1.0, 0.999, 0.05);
+        }
+    }
+    
+    @Benchmark
+    public QLearning<GridState, GridAction> trainToTarget(Episodes counter) {
+        QLearning<GridState, GridAction> qLearning = newLearner();
+        int episodes = 0;
+        while (episodes < MAX_EPISODES
+                && ReinforcementLearning.evaluateGreedy(qLearning.getQTable(), evaluation, 200, MAX_STEPS)
+                   < TARGET_REWARD) {
+            for (int i = 0; i < CHUNK; i++) {
+                ReinforcementLearning.runEpisode(qLearning, environment, MAX_STEPS);
+                qLearning.decayExploration();
+            }
+            episodes += CHUNK;
+        }
+        counter.episodes += episodes;
+        return qLearning;
+    }
+}
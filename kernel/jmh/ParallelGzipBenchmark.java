@@ -0,0 +1,83 @@
+package kernel.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample;
+import kernel.IOStreamExample.ParallelGZIPOutputStream;
+
+/**
+ * 16MB of log-style text through GZIPOutputStream (IOStreamExample.gzip) and
+ * through ParallelGZIPOutputStream on 1, 2, 4 and 8 pool threads. The score
+ * is time per 16MB; scaling needs as many cores as pool threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ParallelGzipBenchmark {
+    
+    private static final int INPUT_SIZE = 16 << 20;
+    
+    /** The compression pool, sized by the threads parameter. */
+    @State(Scope.Thread)
+    public static class Pool {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+        
+        private ForkJoinPool pool;
+        
+        @Setup
+        public void setUp() {
+            pool = new ForkJoinPool(threads);
+        }
+        
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+    
+    private byte[] input;
+    private ByteArrayOutputStream compressed;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(INPUT_SIZE + 128);
+        for (int line = 0; text.length() < INPUT_SIZE; line++) {
+            text.append(String.format("2024-01-01 12:%02d:%02d INFO request %d served in %d ms%n",
+                line % 60, line % 59, line, random.nextInt(500)));
+        }
+        input = text.substring(0, INPUT_SIZE).getBytes(StandardCharsets.US_ASCII);
+        compressed = new ByteArrayOutputStream(INPUT_SIZE / 4);
+    }
+    
+    @Benchmark
+    public int gzipStream() throws IOException {
+        compressed.reset();
+        IOStreamExample.gzip(new ByteArrayInputStream(input), compressed);
+        return compressed.size();
+    }
+    
+    @Benchmark
+    public int parallelGzip(Pool pool) throws IOException {
+        compressed.reset();
+        try (ParallelGZIPOutputStream gzos = new ParallelGZIPOutputStream(compressed,
+                Deflater.DEFAULT_COMPRESSION,
+                ParallelGZIPOutputStream.DEFAULT_BLOCK_SIZE, pool.pool)) {
+            gzos.write(input);
+        }
+        return compressed.size();
+    }
+}
@@ -0,0 +1,52 @@
+package kernel.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.ConcurrentDenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.TrainingResult;
+
+/**
+ * trainQLearningParallel on the benchmark grid world with 1, 2 and 4 training
+ * threads sharing one ConcurrentDenseQTable. Each invocation trains a fresh table
+ * for EPISODES episodes, so the score is time per episode; speedup over one thread
+ * needs as many cores as threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelTrainingBenchmark {
+    
+    private static final int EPISODES = 2_000;
+    private static final int MAX_STEPS = 200;
+    
+    @Param({"1", "2", "4"})
+    public int threads;
+    
+    private IndexEncoder<GridState> states;
+    private IndexEncoder<GridAction> actions;
+    
+    @Setup
+    public void setUp() {
+        states = GridWorlds.create().stateEncoder();
+        actions = IndexEncoder.ofEnum(GridAction.class);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EPISODES)
+    public TrainingResult<GridState, GridAction> train() {
+        QLearning<GridState, GridAction> qLearning = new QLearning<>(
+            new ConcurrentDenseQTable<>(states, actions, 0.0), 0.1, 0.9, 1.0, 0.999, 0.05);
+        return ReinforcementLearning.trainQLearningParallel(
+            qLearning, GridWorlds::create, threads, EPISODES, MAX_STEPS);
+    }
+}
@@ -0,0 +1,72 @@
+package kernel.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.RingBufferPipe;
+
+/**
+ * 16MB from a writer thread to the benchmark thread in 256-byte writes, through
+ * PipedOutputStream/PipedInputStream and through RingBufferPipe with each wait
+ * strategy. spin assumes a core per thread; on fewer cores it mostly measures
+ * the scheduler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PipeBenchmark {
+    
+    private static final int TOTAL = 16 << 20;
+    private static final int WRITE_SIZE = 256;
+    
+    @Param({"piped", "park", "yield", "spin"})
+    public String pipe;
+    
+    private final byte[] chunk = new byte[WRITE_SIZE];
+    private final byte[] readBuffer = new byte[8192];
+    
+    @Benchmark
+    public long transfer() throws Exception {
+        OutputStream out;
+        InputStream in;
+        if (pipe.equals("piped")) {
+            PipedInputStream pipedIn = new PipedInputStream();
+            out = new PipedOutputStream(pipedIn);
+            in = pipedIn;
+        } else {
+            RingBufferPipe ring = new RingBufferPipe(RingBufferPipe.DEFAULT_CAPACITY,
+                RingBufferPipe.WaitStrategy.valueOf(pipe.toUpperCase()), false);
+            out = ring.newOutputStream();
+            in = ring.getInputStream();
+        }
+        
+        Thread writer = new Thread(() -> {
+            try (out) {
+                for (int written = 0; written < TOTAL; written += WRITE_SIZE) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+        long total = 0;
+        try (in) {
+            for (int n; (n = in.read(readBuffer)) > 0; ) {
+                total += n;
+            }
+        }
+        writer.join();
+        return total;
+    }
+}
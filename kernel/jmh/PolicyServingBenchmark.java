@@ -0,0 +1,134 @@
+package kernel.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.ConcurrentDenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.Policy;
+import kernel.ReinforcementLearning.PolicyServer;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.TrainingListener;
+import kernel.ReinforcementLearning.TrainingMetrics;
+
+/**
+ * Greedy action queries against a table that a background thread keeps training:
+ * the live greedy policy reading the ConcurrentDenseQTable, PolicyServer answering
+ * from the latest frozen policy (republished every 20 episodes), and its batch
+ * call over BATCH states. The contended variants run four callers against the
+ * same server. The score is time per answered query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyServingBenchmark {
+    
+    private static final int QUERIES = 4096;
+    private static final int BATCH = 256;
+    private static final int MAX_STEPS = 300;
+    
+    private PolicyServer<GridState, GridAction> server;
+    private Policy<GridState, GridAction> live;
+    private GridState[] queries;
+    private Thread trainer;
+    private volatile boolean training;
+    
+    @Setup
+    public void setUp() {
+        GridWorld environment = GridWorlds.create();
+        ConcurrentDenseQTable<GridState, GridAction> table = new ConcurrentDenseQTable<>(
+            environment.stateEncoder(), IndexEncoder.ofEnum(GridAction.class), 0.0);
+        QLearning<GridState, GridAction> qLearning = new QLearning<>(table, 0.1, 0.9, 0.3, 1.0, 0.3);
+        ReinforcementLearning.trainQLearning(qLearning, environment, 2_000, MAX_STEPS,
+            TrainingListener.none(), TrainingMetrics.DISABLED);
+        
+        server = new PolicyServer<>(table, environment::getAvailableActions);
+        live = qLearning.createGreedyPolicy(environment::getAvailableActions);
+        Random random = new Random(42);
+        queries = new GridState[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = table.getStateEncoder().decode(random.nextInt(table.getStateEncoder().size()));
+        }
+        
+        // Training continues on its own environment for the whole trial
+        GridWorld trainingEnvironment = GridWorlds.create();
+        training = true;
+        trainer = new Thread(() -> {
+            TrainingListener<GridState, GridAction> publisher = server.publishEvery(20);
+            for (int episode = 0; training; episode++) {
+                ReinforcementLearning.runEpisode(qLearning, trainingEnvironment, MAX_STEPS);
+                publisher.onEpisodeEnd(episode, 0);
+            }
+        }, "trainer");
+        trainer.setDaemon(true);
+        trainer.start();
+    }
+    
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        training = false;
+        trainer.join();
+    }
+    
+    /** Each caller walks the query states from its own offset. */
+    @State(Scope.Thread)
+    public static class Caller {
+        final GridState[] batch = new GridState[BATCH];
+        final GridAction[] out = new GridAction[BATCH];
+        int cursor = new Random().nextInt(QUERIES);
+    }
+    
+    private GridState next(Caller caller) {
+        return queries[caller.cursor++ & (QUERIES - 1)];
+    }
+    
+    private GridAction[] batch(Caller caller) {
+        int offset = (caller.cursor += BATCH) & (QUERIES - 1) & -BATCH;
+        System.arraycopy(queries, offset, caller.batch, 0, BATCH);
+        return server.chooseActions(caller.batch, caller.out);
+    }
+    
+    @Benchmark
+    public GridAction liveGreedy(Caller caller) {
+        return live.chooseAction(next(caller));
+    }
+    
+    @Benchmark
+    public GridAction frozen(Caller caller) {
+        return server.chooseAction(next(caller));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public GridAction[] frozenBatch(Caller caller) {
+        return batch(caller);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public GridAction liveGreedyContended(Caller caller) {
+        return live.chooseAction(next(caller));
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public GridAction frozenContended(Caller caller) {
+        return server.chooseAction(next(caller));
+    }
+    
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH)
+    public GridAction[] frozenBatchContended(Caller caller) {
+        return batch(caller);
+    }
+}
@@ -0,0 +1,105 @@
+package kernel.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.QTable;
+import kernel.ReinforcementLearning.StepResult;
+import kernel.ReinforcementLearning.TrainingMetrics;
+
+/**
+ * One QLearning.update on recorded transitions, and one full trainQLearning episode
+ * (ReinforcementLearning.runEpisode) on the benchmark grid world, with and without
+ * TrainingMetrics.
+ *
+ * The episode benchmark keeps exploration fixed at 0.1, so once warm-up has trained
+ * the table the measured episodes are near-greedy walks of stable length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QLearningBenchmark {
+    
+    private static final int TRANSITIONS = 4096;
+    private static final int MAX_STEPS = 200;
+    
+    @Param({"hashed", "dense"})
+    public String table;
+    
+    private GridWorld environment;
+    private QLearning<GridState, GridAction> qLearning;
+    private final TrainingMetrics metrics = new TrainingMetrics(1024);
+    
+    private GridState[] fromStates;
+    private GridAction[] takenActions;
+    private double[] rewards;
+    private GridState[] toStates;
+    private List<GridAction>[] nextActions;
+    private int cursor;
+    
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        environment = GridWorlds.create();
+        QTable<GridState, GridAction> qTable = "dense".equals(table)
+            ? new DenseQTable<>(environment.stateEncoder(), IndexEncoder.ofEnum(GridAction.class), 0.0)
+            : new QTable<>(0.0);
+        qLearning = new QLearning<>(qTable, 0.1, 0.9, 0.1, 1.0, 0.1);
+        
+        // Record a random walk so update() sees realistic, reproducible transitions
+        fromStates = new GridState[TRANSITIONS];
+        takenActions = new GridAction[TRANSITIONS];
+        rewards = new double[TRANSITIONS];
+        toStates = new GridState[TRANSITIONS];
+        nextActions = (List<GridAction>[]) new List<?>[TRANSITIONS];
+        environment.reset();
+        GridState state = environment.getCurrentState();
+        for (int i = 0; i < TRANSITIONS; i++) {
+            List<GridAction> available = environment.getAvailableActions(state);
+            GridAction action = available.get(i % available.size());
+            StepResult<GridState> result = environment.takeAction(action);
+            fromStates[i] = state;
+            takenActions[i] = action;
+            rewards[i] = result.reward;
+            toStates[i] = result.nextState;
+            nextActions[i] = environment.getAvailableActions(result.nextState);
+            state = result.nextState;
+            if (result.isTerminal) {
+                environment.reset();
+                state = environment.getCurrentState();
+            }
+        }
+    }
+    
+    @Benchmark
+    public void update() {
+        int i = cursor++ & (TRANSITIONS - 1);
+        qLearning.update(fromStates[i], takenActions[i], rewards[i], toStates[i], nextActions[i]);
+    }
+    
+    @Benchmark
+    public double trainEpisode() {
+        double totalReward = ReinforcementLearning.runEpisode(qLearning, environment, MAX_STEPS);
+        qLearning.decayExploration();
+        return totalReward;
+    }
+    
+    @Benchmark
+    public double trainEpisodeWithMetrics() {
+        double totalReward = ReinforcementLearning.runEpisode(qLearning, environment, MAX_STEPS, metrics);
+        qLearning.decayExploration();
+        return totalReward;
+    }
+}
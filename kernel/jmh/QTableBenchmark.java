@@ -0,0 +1,65 @@
+package kernel.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QTable;
+
+/**
+ * QTable.getQValue / setQValue over every (state, action) pair of a 32x32 grid,
+ * for the hashed table and the dense one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QTableBenchmark {
+    
+    @Param({"hashed", "dense"})
+    public String table;
+    
+    private QTable<GridState, GridAction> qTable;
+    private GridState[] states;
+    private GridAction[] actions;
+    private int cursor;
+    
+    @Setup
+    public void setUp() {
+        GridWorld environment = GridWorlds.create();
+        qTable = "dense".equals(table)
+            ? new DenseQTable<>(environment.stateEncoder(), IndexEncoder.ofEnum(GridAction.class), 0.0)
+            : new QTable<>(0.0);
+        
+        int cells = GridWorlds.SIZE * GridWorlds.SIZE;
+        states = new GridState[cells];
+        for (int i = 0; i < cells; i++) {
+            states[i] = new GridState(i % GridWorlds.SIZE, i / GridWorlds.SIZE);
+        }
+        actions = GridAction.values();
+        for (GridState state : states) {
+            for (GridAction action : actions) {
+                qTable.setQValue(state, action, state.hashCode() * 1e-3 + action.ordinal());
+            }
+        }
+    }
+    
+    @Benchmark
+    public double getQValue() {
+        int i = cursor++;
+        return qTable.getQValue(states[(i >>> 2) % states.length], actions[i & 3]);
+    }
+    
+    @Benchmark
+    public void setQValue() {
+        int i = cursor++;
+        qTable.setQValue(states[(i >>> 2) % states.length], actions[i & 3], i);
+    }
+}
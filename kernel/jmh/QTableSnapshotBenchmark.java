@@ -0,0 +1,144 @@
+package kernel.jmh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.MappedQTable;
+import kernel.ReinforcementLearning.QTableCheckpointer;
+
+/**
+ * Warm-starting a 10M-entry DenseQTable (2,500,000 grid states x 4 actions):
+ * ObjectOutputStream write and read versus MappedQTable save and open, and open
+ * followed by 1,000 random lookups that page values in. Each is one SingleShotTime
+ * call; after the first iteration the files are in the page cache, so open and
+ * read measure the warm-cache path. episodeEnd samples the training-thread stall
+ * of QTableCheckpointer.onEpisodeEnd while checkpoints of the same table are
+ * copied and saved back to back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QTableSnapshotBenchmark {
+    
+    private static final int LOOKUPS = 1_000;
+    
+    private GridStateEncoder states;
+    private IndexEncoder<GridAction> actions;
+    private DenseQTable<GridState, GridAction> table;
+    private Path directory;
+    private Path serialized;
+    private Path snapshot;
+    private final GridAction[] gridActions = GridAction.values();
+    private final Random random = new Random(42);
+    
+    @Setup
+    public void setUp() throws IOException {
+        states = new GridStateEncoder(2500, 1000);
+        actions = IndexEncoder.ofEnum(GridAction.class);
+        table = new DenseQTable<>(states, actions, 0.0);
+        for (int i = 0; i < table.getEntryCount(); i++) {
+            table.setQValue(states.decode(i / gridActions.length), gridActions[i % gridActions.length],
+                            Math.sin(i));
+        }
+        directory = Files.createTempDirectory("qtable-snapshot-bench");
+        serialized = directory.resolve("qtable.ser");
+        snapshot = directory.resolve("qtable.qtbl");
+        objectStreamWrite();
+        mappedSave();
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+    
+    @Benchmark
+    public void objectStreamWrite() throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(serialized)))) {
+            out.writeObject(table);
+        }
+    }
+    
+    @Benchmark
+    public Object objectStreamRead() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(serialized)))) {
+            return in.readObject();
+        }
+    }
+    
+    @Benchmark
+    public void mappedSave() throws IOException {
+        MappedQTable.save(table, snapshot);
+    }
+    
+    @Benchmark
+    public MappedQTable<GridState, GridAction> mappedOpen() throws IOException {
+        return MappedQTable.open(snapshot, states, actions);
+    }
+    
+    @Benchmark
+    public double mappedOpenFirstLookups() throws IOException {
+        MappedQTable<GridState, GridAction> mapped = MappedQTable.open(snapshot, states, actions);
+        double sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += mapped.getQValue(states.decode(random.nextInt(states.size())), randomAction());
+        }
+        return sum;
+    }
+    
+    private GridAction randomAction() {
+        return gridActions[random.nextInt(gridActions.length)];
+    }
+    
+    /** A checkpointer that starts a new checkpoint at every episode end it can. */
+    @State(Scope.Thread)
+    public static class Checkpointing {
+        QTableCheckpointer<GridState, GridAction> checkpointer;
+        int episode;
+        
+        @Setup(Level.Iteration)
+        public void start(QTableSnapshotBenchmark benchmark) {
+            checkpointer = new QTableCheckpointer<>(benchmark.table,
+                benchmark.directory.resolve("checkpoint.qtbl"), 1);
+        }
+        
+        @TearDown(Level.Iteration)
+        public void stop() throws IOException {
+            checkpointer.close();
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void episodeEnd(Checkpointing checkpointing) {
+        int episode = checkpointing.episode++;
+        table.setQValue(states.decode(random.nextInt(states.size())), randomAction(), episode);
+        checkpointing.checkpointer.onEpisodeEnd(episode, 0);
+    }
+}
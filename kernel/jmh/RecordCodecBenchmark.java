@@ -0,0 +1,143 @@
+package kernel.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.IOStreamExample.FieldType;
+import kernel.IOStreamExample.RecordCodec;
+import kernel.IOStreamExample.RecordSchema;
+
+/**
+ * 10,000 log-event records encoded and decoded field by field through
+ * DataOutputStream/DataInputStream, and whole-record through RecordCodec into
+ * one reusable heap ByteBuffer. The score is time per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordCodecBenchmark {
+    
+    private static final int RECORDS = 10_000;
+    private static final String[] MESSAGES = {
+        "request served", "cache miss", "retrying upstream call", "connection reset by peer"
+    };
+    
+    private final RecordCodec codec = new RecordCodec(new RecordSchema()
+        .field("id", FieldType.VARLONG)
+        .field("timestamp", FieldType.LONG)
+        .field("level", FieldType.BYTE)
+        .field("latencyMs", FieldType.VARINT)
+        .field("score", FieldType.DOUBLE)
+        .field("message", FieldType.STRING));
+    
+    private long[] ids;
+    private long[] timestamps;
+    private byte[] levels;
+    private int[] latencies;
+    private double[] scores;
+    private String[] messages;
+    
+    private ByteArrayOutputStream bytes;
+    private DataOutputStream dataOut;
+    private byte[] dataEncoded;
+    private RecordCodec.Record record;
+    private ByteBuffer buffer;
+    private ByteBuffer codecEncoded;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        ids = new long[RECORDS];
+        timestamps = new long[RECORDS];
+        levels = new byte[RECORDS];
+        latencies = new int[RECORDS];
+        scores = new double[RECORDS];
+        messages = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            ids[i] = 1_000_000L + i;
+            timestamps[i] = 1_700_000_000_000L + i * 17L;
+            levels[i] = (byte) random.nextInt(4);
+            latencies[i] = random.nextInt(500);
+            scores[i] = random.nextDouble();
+            messages[i] = MESSAGES[random.nextInt(MESSAGES.length)];
+        }
+        
+        bytes = new ByteArrayOutputStream(RECORDS * 64);
+        dataOut = new DataOutputStream(bytes);
+        writeDataStream();
+        dataEncoded = bytes.toByteArray();
+        
+        record = codec.newRecord();
+        buffer = ByteBuffer.allocate(RECORDS * 64);
+        encodeCodec();
+        codecEncoded = ByteBuffer.allocate(buffer.position()).put(buffer.flip());
+    }
+    
+    @Benchmark
+    public int dataStreamEncode() throws IOException {
+        bytes.reset();
+        writeDataStream();
+        return bytes.size();
+    }
+    
+    @Benchmark
+    public long dataStreamDecode() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(dataEncoded));
+        long checksum = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            checksum += in.readLong() + in.readLong() + in.readByte() + in.readInt()
+                + (long) in.readDouble() + in.readUTF().length();
+        }
+        return checksum;
+    }
+    
+    @Benchmark
+    public int codecEncode() {
+        buffer.clear();
+        encodeCodec();
+        return buffer.position();
+    }
+    
+    @Benchmark
+    public long codecDecode() {
+        ByteBuffer in = codecEncoded.clear();
+        long checksum = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            codec.decode(in, record);
+            checksum += record.getLong(0) + record.getLong(1) + record.getByte(2) + record.getInt(3)
+                + (long) record.getDouble(4) + record.getString(5).length();
+        }
+        return checksum;
+    }
+    
+    private void writeDataStream() throws IOException {
+        for (int i = 0; i < RECORDS; i++) {
+            dataOut.writeLong(ids[i]);
+            dataOut.writeLong(timestamps[i]);
+            dataOut.writeByte(levels[i]);
+            dataOut.writeInt(latencies[i]);
+            dataOut.writeDouble(scores[i]);
+            dataOut.writeUTF(messages[i]);
+        }
+        dataOut.flush();
+    }
+    
+    private void encodeCodec() {
+        for (int i = 0; i < RECORDS; i++) {
+            record.setLong(0, ids[i]).setLong(1, timestamps[i]).setByte(2, levels[i])
+                .setInt(3, latencies[i]).setDouble(4, scores[i]).setString(5, messages[i]);
+            codec.encode(record, buffer);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package kernel.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.RolloutReader;
+import kernel.ReinforcementLearning.RolloutRecorder;
+import kernel.ReinforcementLearning.TrainingListener;
+import kernel.ReinforcementLearning.TrainingMetrics;
+import kernel.ReinforcementLearning.TrainingResult;
+
+/**
+ * The cost of recording every training step with RolloutRecorder, and of reading
+ * a recording back. train and trainRecorded run EPISODES episodes of a fresh
+ * learner at fixed exploration, so both see the same episode-length distribution;
+ * the recorded run includes closing the file, and its "steps" and "bytes" counters
+ * give the encoded size per step. scan visits every step of a SCAN_EPISODES
+ * recording through the mapped RolloutReader; its "steps" counter is steps per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RolloutBenchmark {
+    
+    private static final int EPISODES = 1_000;
+    private static final int SCAN_EPISODES = 20_000;
+    private static final int MAX_STEPS = 1_000;
+    
+    /** Steps and file bytes written by the recorded runs of one iteration. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recorded {
+        public long steps;
+        public long bytes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+            bytes = 0;
+        }
+    }
+    
+    /** Steps visited by scan, reported as a rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Scanned {
+        public long steps;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            steps = 0;
+        }
+    }
+    
+    private GridWorld environment;
+    private IndexEncoder<GridState> states;
+    private IndexEncoder<GridAction> actions;
+    private Path recording;
+    private Path scanned;
+    private RolloutReader reader;
+    private double checksum;
+    
+    @Setup
+    public void setUp() throws IOException {
+        environment = GridWorlds.create();
+        states = environment.stateEncoder();
+        actions = IndexEncoder.ofEnum(GridAction.class);
+        recording = Files.createTempFile("rollout-bench", ".rlr");
+        scanned = Files.createTempFile("rollout-scan-bench", ".rlr");
+        try (RolloutRecorder<GridState, GridAction> recorder = new RolloutRecorder<>(scanned, states, actions)) {
+            ReinforcementLearning.trainQLearning(newLearner(), environment, SCAN_EPISODES, MAX_STEPS,
+                recorder, TrainingMetrics.DISABLED);
+        }
+        reader = RolloutReader.open(scanned);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        Files.deleteIfExists(recording);
+        Files.deleteIfExists(scanned);
+    }
+    
+    private QLearning<GridState, GridAction> newLearner() {
+        return new QLearning<>(new DenseQTable<>(states, actions, 0.0), 0.1, 0.9, 0.2, 1.0, 0.2);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EPISODES)
+    public TrainingResult<GridState, GridAction> train() {
+        return ReinforcementLearning.trainQLearning(newLearner(), environment, EPISODES, MAX_STEPS,
+            TrainingListener.none(), TrainingMetrics.DISABLED);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(EPISODES)
+    public TrainingResult<GridState, GridAction> trainRecorded(Recorded counters) throws IOException {
+        RolloutRecorder<GridState, GridAction> recorder = new RolloutRecorder<>(recording, states, actions);
+        TrainingResult<GridState, GridAction> result;
+        try (recorder) {
+            result = ReinforcementLearning.trainQLearning(newLearner(), environment, EPISODES, MAX_STEPS,
+                recorder, TrainingMetrics.DISABLED);
+        }
+        counters.steps += recorder.getRecordedSteps();
+        counters.bytes += Files.size(recording);
+        return result;
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public double scan(Scanned counter) throws IOException {
+        counter.steps += reader.forEach((episode, state, action, reward, nextState, terminal) ->
+            checksum += reward + nextState);
+        return checksum;
+    }
+}
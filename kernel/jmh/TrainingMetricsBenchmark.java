@@ -0,0 +1,69 @@
+package kernel.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.MetricsSnapshot;
+import kernel.ReinforcementLearning.TrainingMetrics;
+
+/**
+ * The recording and export paths of TrainingMetrics on their own: recordStep and
+ * recordEpisode as the training thread calls them, and snapshot() plus the JSON and
+ * Prometheus renderings as a scraper would. The per-episode cost of metrics inside
+ * a real training loop is QLearningBenchmark.trainEpisodeWithMetrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingMetricsBenchmark {
+    
+    private static final int VALUES = 4096;
+    
+    private final TrainingMetrics metrics = new TrainingMetrics(1024);
+    private long[] nanos;
+    private int cursor;
+    
+    @Setup
+    public void setUp() {
+        // Latencies spread over several histogram octaves, like real step timings
+        nanos = new long[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            nanos[i] = 50 + (i * 7919L) % 20_000;
+        }
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordStep(nanos[i & (VALUES - 1)], nanos[(i * 31) & (VALUES - 1)]);
+            metrics.recordEpisode(20 + i % 180, i % 10 - 1.5, 0.1);
+        }
+    }
+    
+    @Benchmark
+    public void recordStep() {
+        int i = cursor++ & (VALUES - 1);
+        metrics.recordStep(nanos[i], nanos[VALUES - 1 - i]);
+    }
+    
+    @Benchmark
+    public void recordEpisode() {
+        int i = cursor++ & (VALUES - 1);
+        metrics.recordEpisode(20 + i % 180, i % 10 - 1.5, 0.1);
+    }
+    
+    @Benchmark
+    public MetricsSnapshot snapshot() {
+        return metrics.snapshot();
+    }
+    
+    @Benchmark
+    public String snapshotToJsonLine() {
+        return metrics.snapshot().toJsonLine();
+    }
+    
+    @Benchmark
+    public String snapshotToPrometheusText() {
+        return metrics.snapshot().toPrometheusText();
+    }
+}
@@ -0,0 +1,78 @@
+package kernel.jmh;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.GridPlanner;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.PlanningResult;
+
+/**
+ * GridPlanner.plan to a residual of 1e-4 on a 500x500 grid with 5% random
+ * obstacles and the goal at the centre, for each planning method. One measurement
+ * is one full plan on a pool of every core. The "sweeps" and "backups" counters
+ * total the work over the measured plans; divide by the sample count for one plan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValueIterationBenchmark {
+    
+    private static final int SIZE = 500;
+    private static final double THETA = 1e-4;
+    private static final int MAX_SWEEPS = 10_000;
+    
+    @Param({"SYNCHRONOUS", "GAUSS_SEIDEL", "PRIORITIZED_SWEEPING"})
+    public GridPlanner.Method method;
+    
+    /** Work done by the plans of one iteration. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Work {
+        public long sweeps;
+        public long backups;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            sweeps = 0;
+            backups = 0;
+        }
+    }
+    
+    private GridPlanner planner;
+    
+    @Setup
+    public void setUp() {
+        Set<GridState> obstacles = new HashSet<>();
+        Random random = new Random(42);
+        while (obstacles.size() < SIZE * SIZE / 20) {
+            obstacles.add(new GridState(random.nextInt(SIZE), random.nextInt(SIZE)));
+        }
+        GridState goal = new GridState(SIZE / 2, SIZE / 2);
+        obstacles.remove(goal);
+        GridWorld world = new GridWorld(SIZE, SIZE, new GridState(0, 0), goal,
+            obstacles, 10.0, -5.0, -0.1);
+        planner = new GridPlanner(world, 0.9, Runtime.getRuntime().availableProcessors());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        planner.close();
+    }
+    
+    @Benchmark
+    public PlanningResult plan(Work work) {
+        PlanningResult result = planner.plan(method, THETA, MAX_SWEEPS);
+        work.sweeps += result.sweeps;
+        work.backups += result.backups;
+        return result;
+    }
+}
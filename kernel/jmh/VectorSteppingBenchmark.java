@@ -0,0 +1,91 @@
+package kernel.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.StepResult;
+import kernel.ReinforcementLearning.VectorGridWorld;
+import kernel.ReinforcementLearning.VectorStepResult;
+
+/**
+ * Stepping M agents through a 64x64 grid once: M GridWorld instances each taking
+ * one takeAction, versus one VectorGridWorld.step over all M. Both draw actions
+ * from the same precomputed random batches. The score is calls per second; the
+ * "agentSteps" counter is the same rate per agent, the number to compare across M.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorSteppingBenchmark {
+    
+    private static final int SIZE = 64;
+    private static final int BATCHES = 16;
+    
+    @Param({"1", "64", "4096"})
+    public int agents;
+    
+    /** Agent steps taken, reported as a rate alongside the call rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class AgentSteps {
+        public long agentSteps;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            agentSteps = 0;
+        }
+    }
+    
+    private GridWorld[] worlds;
+    private VectorGridWorld vector;
+    private int[][] actionBatches;
+    private GridAction[][] gridActionBatches;
+    private int cursor;
+    
+    @Setup
+    public void setUp() {
+        worlds = new GridWorld[agents];
+        for (int i = 0; i < agents; i++) {
+            worlds[i] = GridWorlds.create(SIZE);
+        }
+        vector = new VectorGridWorld(GridWorlds.create(SIZE), agents);
+        Random random = new Random(42);
+        GridAction[] values = GridAction.values();
+        actionBatches = new int[BATCHES][agents];
+        gridActionBatches = new GridAction[BATCHES][agents];
+        for (int b = 0; b < BATCHES; b++) {
+            for (int i = 0; i < agents; i++) {
+                actionBatches[b][i] = random.nextInt(values.length);
+                gridActionBatches[b][i] = values[actionBatches[b][i]];
+            }
+        }
+    }
+    
+    @Benchmark
+    public double scalar(AgentSteps counter) {
+        GridAction[] actions = gridActionBatches[cursor++ & (BATCHES - 1)];
+        double rewards = 0;
+        for (int i = 0; i < agents; i++) {
+            StepResult<?> result = worlds[i].takeAction(actions[i]);
+            rewards += result.reward;
+            if (result.isTerminal) {
+                worlds[i].reset();
+            }
+        }
+        counter.agentSteps += agents;
+        return rewards;
+    }
+    
+    @Benchmark
+    public VectorStepResult vector(AgentSteps counter) {
+        counter.agentSteps += agents;
+        return vector.step(actionBatches[cursor++ & (BATCHES - 1)]);
+    }
+}
@@ -0,0 +1,114 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.ReinforcementLearning.ConcurrentDenseQTable;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QTable;
+
+/** ConcurrentDenseQTable blends under contention and its concurrently built touched list. */
+class ConcurrentDenseQTableTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(16, 16);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    private static final int THREADS = 4;
+    
+    private static void runConcurrently(int threads, ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(id);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+    
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+    
+    @Test
+    void concurrentBlendsOfOneEntryAreNeverLost() throws InterruptedException {
+        ConcurrentDenseQTable<GridState, GridAction> table = new ConcurrentDenseQTable<>(STATES, ACTIONS, 0.0);
+        GridState state = new GridState(3, 4);
+        int blendsPerThread = 20_000;
+        double rate = 1e-4;
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < blendsPerThread; i++) {
+                table.blendQValue(state, GridAction.UP, 1.0, rate);
+            }
+        });
+        
+        // Every blend applies the same step to the latest value, so order does not matter
+        double expected = 0.0;
+        for (int i = 0; i < THREADS * blendsPerThread; i++) {
+            expected += rate * (1.0 - expected);
+        }
+        assertEquals(expected, table.getQValue(state, GridAction.UP));
+    }
+    
+    @Test
+    void statesWrittenConcurrentlyAreAllMergedOnce() throws InterruptedException {
+        ConcurrentDenseQTable<GridState, GridAction> source = new ConcurrentDenseQTable<>(STATES, ACTIONS, 0.0);
+        // Every thread writes every state, so the threads race to append each one
+        runConcurrently(THREADS, thread -> {
+            for (int s = 0; s < STATES.size(); s++) {
+                int index = (s + thread * 37) % STATES.size();
+                source.setQValue(STATES.decode(index), GridAction.values()[thread % 4], index);
+            }
+        });
+        
+        DenseQTable<GridState, GridAction> target = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        target.mergeTouched(source, 1.0);
+        for (int s = 0; s < STATES.size(); s++) {
+            for (int t = 0; t < THREADS; t++) {
+                assertEquals(s, target.getQValue(STATES.decode(s), GridAction.values()[t % 4]));
+            }
+        }
+        
+        // The touched list was consumed: an unchanged source merges nothing
+        DenseQTable<GridState, GridAction> second = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        second.mergeTouched(source, 1.0);
+        assertEquals(0.0, second.getQValue(STATES.decode(5), GridAction.UP));
+    }
+    
+    @Test
+    void aCopyIsConcurrentAndIndependent() {
+        ConcurrentDenseQTable<GridState, GridAction> table = new ConcurrentDenseQTable<>(STATES, ACTIONS, -1.0);
+        table.setQValue(new GridState(1, 1), GridAction.LEFT, 2.0);
+        QTable<GridState, GridAction> copy = table.copy();
+        assertTrue(copy.supportsConcurrentUpdates());
+        copy.setQValue(new GridState(1, 1), GridAction.LEFT, 5.0);
+        assertEquals(2.0, table.getQValue(new GridState(1, 1), GridAction.LEFT));
+        assertEquals(5.0, copy.getQValue(new GridState(1, 1), GridAction.LEFT));
+        assertEquals(-1.0, copy.getQValue(new GridState(2, 2), GridAction.LEFT));
+    }
+}
@@ -0,0 +1,105 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QTable;
+
+/** DenseQTable reads and writes, and the semantics of merge and mergeTouched. */
+class DenseQTableTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(4, 4);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    
+    private static DenseQTable<GridState, GridAction> table() {
+        return new DenseQTable<>(STATES, ACTIONS, 0.0);
+    }
+    
+    @Test
+    void onlyWrittenEntriesAreVisible() {
+        DenseQTable<GridState, GridAction> table = table();
+        table.setQValue(new GridState(1, 2), GridAction.LEFT, 3.5);
+        assertEquals(3.5, table.getQValue(new GridState(1, 2), GridAction.LEFT));
+        assertEquals(0.0, table.getQValue(new GridState(1, 2), GridAction.UP));
+        assertEquals(Map.of(GridAction.LEFT, 3.5), table.getActionValues(new GridState(1, 2)));
+        assertEquals(Map.of(), table.getActionValues(new GridState(0, 0)));
+        // Outside the encoded space reads the default
+        assertEquals(0.0, table.getQValue(new GridState(9, 9), GridAction.UP));
+    }
+    
+    @Test
+    void mergingACopyChangesTheTargetAndLeavesTheSourceAlone() {
+        DenseQTable<GridState, GridAction> source = table();
+        source.setQValue(new GridState(0, 0), GridAction.UP, 10.0);
+        source.setQValue(new GridState(3, 3), GridAction.RIGHT, -4.0);
+        QTable<GridState, GridAction> copy = source.copy();
+        
+        DenseQTable<GridState, GridAction> target = table();
+        target.setQValue(new GridState(0, 0), GridAction.UP, 2.0);
+        target.merge(copy, 0.5);
+        
+        assertEquals(6.0, target.getQValue(new GridState(0, 0), GridAction.UP));
+        assertEquals(-2.0, target.getQValue(new GridState(3, 3), GridAction.RIGHT));
+        assertEquals(10.0, copy.getQValue(new GridState(0, 0), GridAction.UP));
+        assertEquals(-4.0, copy.getQValue(new GridState(3, 3), GridAction.RIGHT));
+    }
+    
+    @Test
+    void oneSourceMergesIntoEveryTarget() {
+        DenseQTable<GridState, GridAction> source = table();
+        source.setQValue(new GridState(2, 1), GridAction.DOWN, 8.0);
+        DenseQTable<GridState, GridAction> first = table();
+        DenseQTable<GridState, GridAction> second = table();
+        first.merge(source, 0.25);
+        second.merge(source, 0.25);
+        assertEquals(2.0, first.getQValue(new GridState(2, 1), GridAction.DOWN));
+        assertEquals(2.0, second.getQValue(new GridState(2, 1), GridAction.DOWN));
+        // Merging twice blends twice
+        first.merge(source, 0.25);
+        assertEquals(3.5, first.getQValue(new GridState(2, 1), GridAction.DOWN));
+    }
+    
+    @Test
+    void mergeMatchesTheHashedTable() {
+        DenseQTable<GridState, GridAction> dense = table();
+        QTable<GridState, GridAction> hashed = new QTable<>(0.0);
+        for (QTable<GridState, GridAction> table : List.of(dense, hashed)) {
+            table.setQValue(new GridState(1, 1), GridAction.UP, 1.0);
+        }
+        DenseQTable<GridState, GridAction> other = table();
+        other.setQValue(new GridState(1, 1), GridAction.UP, 5.0);
+        other.setQValue(new GridState(2, 2), GridAction.LEFT, 7.0);
+        dense.merge(other, 0.5);
+        hashed.merge(other, 0.5);
+        assertEquals(hashed.getActionValues(new GridState(1, 1)), dense.getActionValues(new GridState(1, 1)));
+        assertEquals(hashed.getActionValues(new GridState(2, 2)), dense.getActionValues(new GridState(2, 2)));
+    }
+    
+    @Test
+    void mergeTouchedBlendsOnlyNewWritesOnce() {
+        DenseQTable<GridState, GridAction> source = table();
+        source.setQValue(new GridState(0, 1), GridAction.UP, 4.0);
+        DenseQTable<GridState, GridAction> target = table();
+        target.mergeTouched(source, 0.5);
+        assertEquals(2.0, target.getQValue(new GridState(0, 1), GridAction.UP));
+        
+        // Nothing new was written, so a second incremental merge is a no-op
+        target.mergeTouched(source, 0.5);
+        assertEquals(2.0, target.getQValue(new GridState(0, 1), GridAction.UP));
+        
+        source.setQValue(new GridState(3, 0), GridAction.DOWN, 6.0);
+        target.mergeTouched(source, 0.5);
+        assertEquals(2.0, target.getQValue(new GridState(0, 1), GridAction.UP));
+        assertEquals(3.0, target.getQValue(new GridState(3, 0), GridAction.DOWN));
+        assertEquals(4.0, source.getQValue(new GridState(0, 1), GridAction.UP));
+    }
+}
@@ -0,0 +1,108 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.IOStreamExample.FastObjectInput;
+import kernel.IOStreamExample.FastObjectOutput;
+import kernel.IOStreamExample.Person;
+
+/** FastObjectOutput / FastObjectInput round trips through FastSerializer, and the class allowlist. */
+class FastObjectStreamTest {
+    
+    public record Point(int x, int y) implements Serializable {}
+    
+    public record Sample(boolean flag, byte b, char c, short s, int i, long l, float f, double d,
+                         String name, Date when, Point point) implements Serializable {}
+    
+    @Test
+    void personRoundTripDropsTransientFields() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FastObjectOutput out = new FastObjectOutput(bytes)) {
+            for (int i = 0; i < 100; i++) {
+                out.writeObject(person(i, "secret"));
+            }
+        }
+        
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(bytes.toByteArray()), Person.class)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(in.hasMore());
+                // Person has no equals; its toString shows every field, and the password comes back null
+                assertEquals(person(i, null).toString(), in.readObject(Person.class).toString());
+            }
+            assertFalse(in.hasMore());
+        }
+    }
+    
+    private static Person person(int i, String password) {
+        return new Person(i % 10 == 0 ? null : "Person " + i, 20 + i, password,
+                          i % 7 == 0 ? null : new Date(i * 86_400_000L));
+    }
+    
+    @Test
+    void recordsWithEveryFieldKind() throws IOException {
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            samples.add(new Sample(i % 2 == 0, (byte) i, (char) (i * 31), (short) -i, i * 1_000_003,
+                                   (long) i << 40, i / 3f, -i / 7.0, i % 5 == 0 ? null : "naïve " + i,
+                                   i % 3 == 0 ? null : new Date(i), i % 4 == 0 ? null : new Point(i, -i)));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FastObjectOutput out = new FastObjectOutput(bytes)) {
+            for (Sample sample : samples) {
+                out.writeObject(sample);
+            }
+            out.writeObject(null);
+        }
+        
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(bytes.toByteArray()),
+                                                      Sample.class, Point.class)) {
+            for (Sample sample : samples) {
+                assertEquals(sample, in.readObject(Sample.class));
+            }
+            assertNull(in.readObject());
+            assertFalse(in.hasMore());
+        }
+    }
+    
+    @Test
+    void writesReachTheStreamBeforeClose() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FastObjectOutput out = new FastObjectOutput(bytes)) {
+            for (int i = 0; i < 10_000; i++) {
+                out.writeObject(new Point(i, i));
+            }
+            assertTrue(bytes.size() > 0, "nothing drained after 10,000 objects");
+        }
+    }
+    
+    @Test
+    void classesOutsideTheAllowlistAreRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FastObjectOutput out = new FastObjectOutput(bytes)) {
+            out.writeObject(new Sample(true, (byte) 1, 'c', (short) 2, 3, 4L, 5f, 6.0, "n", null, new Point(1, 2)));
+        }
+        
+        // The outer class is listed but the nested one is not
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(bytes.toByteArray()), Sample.class)) {
+            assertThrows(InvalidClassException.class, in::readObject);
+        }
+        try (FastObjectInput in = new FastObjectInput(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThrows(InvalidClassException.class, in::readObject);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.ReinforcementLearning;
+import kernel.ReinforcementLearning.ConcurrentDenseQTable;
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridWorld;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.QLearning;
+import kernel.ReinforcementLearning.QTable;
+import kernel.ReinforcementLearning.TrainingResult;
+
+/** trainQLearningFederated's row sync and blend, and trainQLearningParallel on a shared table. */
+class FederatedTrainingTest {
+    
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    
+    private static GridWorld grid(int size) {
+        return new GridWorld(size, size, new GridState(0, 0), new GridState(size - 1, size - 1),
+                             Set.of(), 10.0, -5.0, -0.1);
+    }
+    
+    // One step from (0, 0) to the goal at (1, 0), RIGHT being the only move on the grid
+    private static GridWorld oneStep() {
+        return new GridWorld(2, 1, new GridState(0, 0), new GridState(1, 0), Set.of(), 10.0, -5.0, -0.1);
+    }
+    
+    private static QLearning<GridState, GridAction> learner(QTable<GridState, GridAction> table,
+                                                           double learningRate) {
+        return new QLearning<>(table, learningRate, 0.9, 1.0, 0.995, 0.05);
+    }
+    
+    @Test
+    void everyDeliveryBlendsIntoTheGlobalTableWithTheMergeRatio() {
+        for (QTable<GridState, GridAction> table : new QTable[] {
+                new DenseQTable<>(oneStep().stateEncoder(), ACTIONS, 0.0), new QTable<>(0.0)}) {
+            // A learning rate of 1 makes the worker's value 10 after every round
+            QLearning<GridState, GridAction> learner = learner(table, 1.0);
+            TrainingResult<GridState, GridAction> result = ReinforcementLearning.trainQLearningFederated(
+                learner, FederatedTrainingTest::oneStep, 1, 1, 0.5, 3, 10);
+            assertSame(table, result.trainedQTable);
+            assertEquals(3, result.episodeRewards.size());
+            assertEquals(8.75, table.getQValue(new GridState(0, 0), GridAction.RIGHT), 1e-12);
+        }
+    }
+    
+    @Test
+    void federatedWorkersLearnTheGrid() {
+        int size = 5;
+        GridWorld environment = grid(size);
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(environment.stateEncoder(), ACTIONS, 0.0);
+        ReinforcementLearning.trainQLearningFederated(learner(table, 0.2), () -> grid(size),
+                                                      3, 25, 0.5, 3_000, 100);
+        // The longest greedy path is 8 moves: 10 for the goal less at most 0.7 in steps
+        assertTrue(ReinforcementLearning.evaluateGreedy(table, environment, 200, 100) > 9.0);
+    }
+    
+    @Test
+    void parallelWorkersLearnTheGridOnASharedTable() {
+        int size = 5;
+        GridWorld environment = grid(size);
+        ConcurrentDenseQTable<GridState, GridAction> table =
+            new ConcurrentDenseQTable<>(environment.stateEncoder(), ACTIONS, 0.0);
+        TrainingResult<GridState, GridAction> result = ReinforcementLearning.trainQLearningParallel(
+            learner(table, 0.2), () -> grid(size), 3, 3_000, 100);
+        assertSame(table, result.trainedQTable);
+        assertTrue(ReinforcementLearning.evaluateGreedy(table, environment, 200, 100) > 9.0);
+    }
+    
+    @Test
+    void parallelTrainingNeedsAConcurrentTable() {
+        QLearning<GridState, GridAction> learner = learner(new QTable<>(0.0), 0.2);
+        assertThrows(IllegalArgumentException.class,
+            () -> ReinforcementLearning.trainQLearningParallel(learner, () -> grid(3), 2, 10, 10));
+    }
+}
@@ -0,0 +1,113 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import kernel.IOStreamExample.IndexedCompressedOutputStream;
+import kernel.IOStreamExample.IndexedCompressedReader;
+
+/**
+ * Line and byte-range seeks in an indexed compressed file whose small chunks
+ * force lines to start, end and span across chunk boundaries.
+ */
+class IndexedCompressedReaderTest {
+    
+    private static final int CHUNK_SIZE = 256;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void everyLineSeeksAcrossChunks() throws IOException {
+        List<String> lines = lines(2_000, false);
+        try (IndexedCompressedReader reader = write(String.join("\n", lines) + "\n")) {
+            assertTrue(reader.chunkCount() > 100, "expected many chunks, got " + reader.chunkCount());
+            assertEquals(lines.size(), reader.lineCount());
+            for (int first = 0; first < lines.size(); first++) {
+                assertEquals(lines.subList(first, Math.min(lines.size(), first + 3)),
+                             reader.readLines(first, 3), "lines from " + first);
+            }
+            assertEquals(lines, reader.readLines(0, lines.size() + 10));
+            assertEquals(List.of(), reader.readLines(lines.size(), 1));
+        }
+    }
+    
+    @Test
+    void linesLongerThanAChunk() throws IOException {
+        List<String> lines = lines(300, true);
+        try (IndexedCompressedReader reader = write(String.join("\n", lines) + "\n")) {
+            assertEquals(lines.size(), reader.lineCount());
+            for (int first = 0; first < lines.size(); first++) {
+                assertEquals(lines.subList(first, Math.min(lines.size(), first + 2)),
+                             reader.readLines(first, 2), "lines from " + first);
+            }
+        }
+    }
+    
+    @Test
+    void lastLineWithoutNewline() throws IOException {
+        List<String> lines = lines(500, true);
+        try (IndexedCompressedReader reader = write(String.join("\n", lines))) {
+            assertEquals(lines.size(), reader.lineCount());
+            assertEquals(lines.subList(lines.size() - 2, lines.size()), reader.readLines(lines.size() - 2, 5));
+        }
+    }
+    
+    @Test
+    void byteRangesAcrossChunks() throws IOException {
+        byte[] data = (String.join("\n", lines(1_000, true)) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (IndexedCompressedReader reader = write(new String(data, StandardCharsets.UTF_8))) {
+            assertEquals(data.length, reader.size());
+            Random random = new Random(42);
+            for (int i = 0; i < 500; i++) {
+                int offset = random.nextInt(data.length);
+                int length = random.nextInt(4 * CHUNK_SIZE);
+                int end = Math.min(data.length, offset + length);
+                assertArrayEquals(Arrays.copyOfRange(data, offset, end), reader.readRange(offset, length),
+                                  "range " + offset + "+" + length);
+            }
+        }
+    }
+    
+    private IndexedCompressedReader write(String content) throws IOException {
+        Path file = directory.resolve("lines.icz");
+        try (OutputStream out = new IndexedCompressedOutputStream(
+                Files.newOutputStream(file), CHUNK_SIZE, Deflater.DEFAULT_COMPRESSION)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return new IndexedCompressedReader(file);
+    }
+    
+    // Lines of up to 90 characters, some empty and some multi-byte; withLongLines makes
+    // every tenth line several chunks long
+    private static List<String> lines(int count, boolean withLongLines) {
+        Random random = new Random(count);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder line = new StringBuilder().append(i).append(':');
+            int length = withLongLines && i % 10 == 9
+                ? 3 * CHUNK_SIZE + random.nextInt(CHUNK_SIZE)
+                : random.nextInt(90);
+            for (int c = 0; c < length; c++) {
+                line.append(random.nextInt(20) == 0 ? 'é' : (char) ('a' + random.nextInt(26)));
+            }
+            lines.add(i % 37 == 0 ? "" : line.toString());
+        }
+        return lines;
+    }
+}
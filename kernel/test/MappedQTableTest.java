@@ -0,0 +1,125 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.MappedQTable;
+import kernel.ReinforcementLearning.QTable;
+
+/** MappedQTable snapshots: save and open round trips, copy-on-write, and rejected files. */
+class MappedQTableTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(10, 10);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    
+    @TempDir
+    Path directory;
+    
+    private static DenseQTable<GridState, GridAction> trained() {
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(STATES, ACTIONS, -0.5);
+        for (int s = 0; s < STATES.size(); s += 3) {
+            table.setQValue(STATES.decode(s), GridAction.values()[s % 4], s * 1.25);
+        }
+        return table;
+    }
+    
+    private static void assertSameValues(QTable<GridState, GridAction> expected,
+                                         QTable<GridState, GridAction> actual) {
+        assertEquals(expected.getDefaultValue(), actual.getDefaultValue());
+        for (int s = 0; s < STATES.size(); s++) {
+            GridState state = STATES.decode(s);
+            assertEquals(expected.getActionValues(state), actual.getActionValues(state), "state " + state);
+            for (GridAction action : GridAction.values()) {
+                assertEquals(expected.getQValue(state, action), actual.getQValue(state, action));
+            }
+        }
+    }
+    
+    @Test
+    void aSavedTableOpensWithTheSameValues() throws IOException {
+        DenseQTable<GridState, GridAction> table = trained();
+        Path path = directory.resolve("table.qt");
+        MappedQTable.save(table, path);
+        MappedQTable<GridState, GridAction> mapped = MappedQTable.open(path, STATES, ACTIONS);
+        assertSameValues(table, mapped);
+        
+        // Saving the mapped table gives the same snapshot again
+        Path again = directory.resolve("again.qt");
+        MappedQTable.save(mapped, again);
+        assertEquals(-1, Files.mismatch(path, again));
+    }
+    
+    @Test
+    void writesToAnOpenedTableLeaveTheFileAlone() throws IOException {
+        Path path = directory.resolve("table.qt");
+        MappedQTable.save(trained(), path);
+        byte[] before = Files.readAllBytes(path);
+        
+        MappedQTable<GridState, GridAction> mapped = MappedQTable.open(path, STATES, ACTIONS);
+        mapped.setQValue(new GridState(1, 1), GridAction.DOWN, 42.0);
+        mapped.blendQValue(new GridState(0, 0), GridAction.UP, 8.0, 0.5);
+        assertEquals(42.0, mapped.getQValue(new GridState(1, 1), GridAction.DOWN));
+        assertEquals(4.0, mapped.getQValue(new GridState(0, 0), GridAction.UP));
+        
+        assertEquals(0, Arrays.compare(before, Files.readAllBytes(path)));
+        assertSameValues(trained(), MappedQTable.open(path, STATES, ACTIONS));
+        
+        // The copy is a heap table with the updated values
+        QTable<GridState, GridAction> copy = mapped.copy();
+        assertFalse(copy instanceof MappedQTable);
+        assertEquals(Map.of(GridAction.DOWN, 42.0), copy.getActionValues(new GridState(1, 1)));
+    }
+    
+    @Test
+    void aReadOnlySnapshotCopiesRowsOnWrite() throws IOException {
+        Path path = directory.resolve("table.qt");
+        MappedQTable.save(trained(), path);
+        path.toFile().setWritable(false);
+        assumeFalse(Files.isWritable(path), "the file stays writable (running as root?)");
+        
+        MappedQTable<GridState, GridAction> mapped = MappedQTable.open(path, STATES, ACTIONS);
+        assertSameValues(trained(), mapped);
+        mapped.setQValue(new GridState(3, 0), GridAction.LEFT, 7.0);
+        assertEquals(7.0, mapped.getQValue(new GridState(3, 0), GridAction.LEFT));
+        // The rest of the copied row is still the snapshot's
+        assertEquals(3 * 1.25, mapped.getQValue(new GridState(3, 0), GridAction.values()[3]));
+        assertSameValues(trained(), MappedQTable.open(path, STATES, ACTIONS));
+    }
+    
+    @Test
+    void aSnapshotOfAnotherShapeIsRejected() throws IOException {
+        Path path = directory.resolve("table.qt");
+        MappedQTable.save(trained(), path);
+        assertThrows(IOException.class, () -> MappedQTable.open(path, new GridStateEncoder(5, 5), ACTIONS));
+    }
+    
+    @Test
+    void truncatedAndForeignFilesAreRejected() throws IOException {
+        Path path = directory.resolve("table.qt");
+        MappedQTable.save(trained(), path);
+        byte[] bytes = Files.readAllBytes(path);
+        
+        Path truncated = Files.write(directory.resolve("truncated.qt"), Arrays.copyOf(bytes, bytes.length - 8));
+        assertThrows(IOException.class, () -> MappedQTable.open(truncated, STATES, ACTIONS));
+        
+        bytes[0] ^= 1;
+        Path foreign = Files.write(directory.resolve("foreign.qt"), bytes);
+        assertThrows(IOException.class, () -> MappedQTable.open(foreign, STATES, ACTIONS));
+    }
+}
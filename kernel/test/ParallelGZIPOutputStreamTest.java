@@ -0,0 +1,114 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import kernel.IOStreamExample.ParallelGZIPOutputStream;
+
+/** ParallelGZIPOutputStream output must be one gzip member that GZIPInputStream reads back unchanged. */
+class ParallelGZIPOutputStreamTest {
+    
+    private static final int BLOCK_SIZE = 4096;
+    
+    private static ForkJoinPool pool;
+    
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+    
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+    
+    @Test
+    void emptyInput() throws IOException {
+        assertArrayEquals(new byte[0], gunzip(gzip(new byte[0], BLOCK_SIZE)));
+    }
+    
+    @Test
+    void singleShortBlock() throws IOException {
+        byte[] data = "hello, gzip\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(data, gunzip(gzip(data, BLOCK_SIZE)));
+    }
+    
+    @Test
+    void exactMultipleOfBlockSize() throws IOException {
+        byte[] data = text(8 * BLOCK_SIZE);
+        assertArrayEquals(data, gunzip(gzip(data, BLOCK_SIZE)));
+    }
+    
+    @Test
+    void manyBlocksOfTextAndNoise() throws IOException {
+        // Repetitive text whose matches reach back across block boundaries, then incompressible bytes
+        byte[] text = text(100 * BLOCK_SIZE + 123);
+        byte[] noise = new byte[20 * BLOCK_SIZE + 7];
+        new Random(42).nextBytes(noise);
+        byte[] data = new byte[text.length + noise.length];
+        System.arraycopy(text, 0, data, 0, text.length);
+        System.arraycopy(noise, 0, data, text.length, noise.length);
+        assertArrayEquals(data, gunzip(gzip(data, BLOCK_SIZE)));
+    }
+    
+    @Test
+    void mixedWriteSizes() throws IOException {
+        byte[] data = text(30 * BLOCK_SIZE);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Random random = new Random(7);
+        try (OutputStream out = new ParallelGZIPOutputStream(compressed, Deflater.DEFAULT_COMPRESSION,
+                                                             BLOCK_SIZE, pool)) {
+            for (int off = 0; off < data.length; ) {
+                if (random.nextInt(4) == 0) {
+                    out.write(data[off++]);
+                } else {
+                    int len = Math.min(data.length - off, random.nextInt(3 * BLOCK_SIZE));
+                    out.write(data, off, len);
+                    off += len;
+                }
+                if (random.nextInt(50) == 0) {
+                    out.flush();
+                }
+            }
+        }
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+    
+    private static byte[] gzip(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGZIPOutputStream(compressed, Deflater.DEFAULT_COMPRESSION,
+                                                             blockSize, pool)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+    
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+    
+    private static byte[] text(int length) {
+        StringBuilder text = new StringBuilder(length + 64);
+        Random random = new Random(length);
+        for (int line = 0; text.length() < length; line++) {
+            text.append("2024-01-01 INFO request ").append(line)
+                .append(" served in ").append(random.nextInt(500)).append(" ms\n");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,99 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.ReinforcementLearning.DenseQTable;
+import kernel.ReinforcementLearning.FrozenPolicy;
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.PolicyServer;
+import kernel.ReinforcementLearning.QTable;
+
+/** FrozenPolicy snapshots and PolicyServer's versioned hot swap. */
+class PolicyServerTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(4, 4);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    private static final GridState CORNER = new GridState(0, 0);
+    private static final GridState MIDDLE = new GridState(2, 1);
+    
+    // The corner has no actions, so it freezes to null
+    private static List<GridAction> available(GridState state) {
+        return state.equals(CORNER) ? List.of() : List.of(GridAction.values());
+    }
+    
+    @Test
+    void aFrozenPolicyIgnoresLaterWrites() {
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        table.setQValue(MIDDLE, GridAction.LEFT, 1.0);
+        FrozenPolicy<GridState, GridAction> policy = FrozenPolicy.freeze(table, PolicyServerTest::available);
+        
+        table.setQValue(MIDDLE, GridAction.DOWN, 5.0);
+        assertEquals(GridAction.LEFT, policy.chooseAction(MIDDLE));
+        assertEquals(table.getBestAction(new GridState(3, 3), available(new GridState(3, 3))),
+                     policy.chooseAction(new GridState(3, 3)));
+        assertNull(policy.chooseAction(CORNER));
+        assertNull(policy.chooseAction(new GridState(9, 9)));
+        
+        int[] indices = {STATES.encode(MIDDLE), STATES.encode(CORNER)};
+        assertArrayEquals(new int[] {ACTIONS.encode(GridAction.LEFT), -1}, policy.chooseActions(indices, new int[2]));
+    }
+    
+    @Test
+    void aHashedTableFreezesLikeADenseOne() {
+        QTable<GridState, GridAction> hashed = new QTable<>(0.0);
+        DenseQTable<GridState, GridAction> dense = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        for (QTable<GridState, GridAction> table : List.of(hashed, dense)) {
+            table.setQValue(MIDDLE, GridAction.UP, 2.0);
+            table.setQValue(new GridState(1, 3), GridAction.RIGHT, -1.0);
+        }
+        FrozenPolicy<GridState, GridAction> fromHashed =
+            FrozenPolicy.freeze(hashed, STATES, ACTIONS, PolicyServerTest::available, 0);
+        FrozenPolicy<GridState, GridAction> fromDense = FrozenPolicy.freeze(dense, PolicyServerTest::available);
+        for (int s = 0; s < STATES.size(); s++) {
+            assertEquals(fromDense.chooseAction(STATES.decode(s)), fromHashed.chooseAction(STATES.decode(s)));
+        }
+    }
+    
+    @Test
+    void publishSwapsInANewerVersion() {
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        table.setQValue(MIDDLE, GridAction.UP, 1.0);
+        PolicyServer<GridState, GridAction> server = new PolicyServer<>(table, PolicyServerTest::available);
+        FrozenPolicy<GridState, GridAction> first = server.current();
+        assertEquals(0, first.version);
+        assertEquals(GridAction.UP, server.chooseAction(MIDDLE));
+        
+        table.setQValue(MIDDLE, GridAction.RIGHT, 3.0);
+        assertEquals(GridAction.UP, server.chooseAction(MIDDLE));
+        FrozenPolicy<GridState, GridAction> second = server.publish();
+        assertEquals(1, second.version);
+        assertSame(second, server.current());
+        assertEquals(GridAction.RIGHT, server.chooseAction(MIDDLE));
+        // A policy held from before the swap keeps answering from its version
+        assertEquals(GridAction.UP, first.chooseAction(MIDDLE));
+        
+        GridState[] states = {MIDDLE, CORNER};
+        assertArrayEquals(new GridAction[] {GridAction.RIGHT, null}, server.chooseActions(states, new GridAction[2]));
+    }
+    
+    @Test
+    void publishEveryRepublishesOnItsInterval() {
+        DenseQTable<GridState, GridAction> table = new DenseQTable<>(STATES, ACTIONS, 0.0);
+        PolicyServer<GridState, GridAction> server = new PolicyServer<>(table, PolicyServerTest::available);
+        var listener = server.publishEvery(3);
+        for (int episode = 0; episode < 7; episode++) {
+            listener.onEpisodeEnd(episode, 0);
+        }
+        assertEquals(2, server.current().version);
+    }
+}
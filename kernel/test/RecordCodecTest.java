@@ -0,0 +1,154 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.IOStreamExample.FieldType;
+import kernel.IOStreamExample.RecordCodec;
+import kernel.IOStreamExample.RecordCodec.Record;
+import kernel.IOStreamExample.RecordSchema;
+
+/** RecordCodec round trips of every field type, in a buffer and through channel writers and readers. */
+class RecordCodecTest {
+    
+    private static final RecordSchema SCHEMA = new RecordSchema()
+        .field("flag", FieldType.BOOLEAN)
+        .field("b", FieldType.BYTE)
+        .field("c", FieldType.CHAR)
+        .field("s", FieldType.SHORT)
+        .field("i", FieldType.INT)
+        .field("l", FieldType.LONG)
+        .field("f", FieldType.FLOAT)
+        .field("d", FieldType.DOUBLE)
+        .field("vi", FieldType.VARINT)
+        .field("vl", FieldType.VARLONG)
+        .field("name", FieldType.STRING);
+    
+    private static final String[] NAMES = {"", "ascii", "naïve café", "日本語", "emoji 😀", null};
+    
+    private final RecordCodec codec = new RecordCodec(SCHEMA);
+    
+    @Test
+    void bufferRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            codec.encode(fill(codec.newRecord(), random, i), buffer);
+        }
+        buffer.flip();
+        
+        random = new Random(42);
+        Record decoded = codec.newRecord();
+        for (int i = 0; i < 500; i++) {
+            assertRecordEquals(fill(codec.newRecord(), random, i), codec.decode(buffer, decoded), i);
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+    
+    @Test
+    void extremeValues() {
+        Record record = codec.newRecord()
+            .setBoolean(0, true).setByte(1, Byte.MIN_VALUE).setChar(2, Character.MAX_VALUE)
+            .setShort(3, Short.MIN_VALUE).setInt(4, Integer.MIN_VALUE).setLong(5, Long.MAX_VALUE)
+            .setFloat(6, Float.NaN).setDouble(7, Double.NEGATIVE_INFINITY)
+            .setInt(8, Integer.MIN_VALUE).setLong(9, Long.MIN_VALUE).setString(10, "x".repeat(100_000));
+        ByteBuffer buffer = ByteBuffer.allocate(200_000);
+        codec.encode(record, buffer);
+        buffer.flip();
+        assertRecordEquals(record, codec.decode(buffer, codec.newRecord()), 0);
+    }
+    
+    @Test
+    void nullAndEmptyStringsStayDistinct() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(codec.newRecord().setString(10, null), buffer);
+        codec.encode(codec.newRecord().setString(10, ""), buffer);
+        buffer.flip();
+        assertNull(codec.decode(buffer, codec.newRecord()).getString(10));
+        assertEquals("", codec.decode(buffer, codec.newRecord()).getString(10));
+    }
+    
+    @Test
+    void partialRecordsLeaveThePositionUnchanged() {
+        Record record = fill(codec.newRecord(), new Random(1), 1).setString(10, "a longer string value");
+        ByteBuffer full = ByteBuffer.allocate(256);
+        codec.encode(record, full);
+        int size = full.position();
+        
+        ByteBuffer small = ByteBuffer.allocate(size - 1);
+        assertThrows(BufferOverflowException.class, () -> codec.encode(record, small));
+        assertEquals(0, small.position());
+        
+        ByteBuffer truncated = ByteBuffer.wrap(full.array(), 0, size - 1);
+        assertThrows(BufferUnderflowException.class, () -> codec.decode(truncated, codec.newRecord()));
+        assertEquals(0, truncated.position());
+    }
+    
+    @Test
+    void channelRoundTripWithSmallBuffers() throws IOException {
+        // 32-byte buffers: records straddle refills and long strings outgrow the buffer
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Random random = new Random(7);
+        try (RecordCodec.Writer writer = codec.newWriter(Channels.newChannel(bytes), 32)) {
+            for (int i = 0; i < 1_000; i++) {
+                writer.write(fill(codec.newRecord(), random, i));
+            }
+        }
+        
+        random = new Random(7);
+        Record decoded = codec.newRecord();
+        try (RecordCodec.Reader reader = codec.newReader(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 32)) {
+            for (int i = 0; i < 1_000; i++) {
+                assertTrue(reader.read(decoded), "record " + i);
+                assertRecordEquals(fill(codec.newRecord(), random, i), decoded, i);
+            }
+            assertFalse(reader.read(decoded));
+        }
+    }
+    
+    private static Record fill(Record record, Random random, int i) {
+        return record
+            .setBoolean(0, random.nextBoolean())
+            .setByte(1, (byte) random.nextInt())
+            .setChar(2, (char) random.nextInt(Character.MAX_VALUE + 1))
+            .setShort(3, (short) random.nextInt())
+            .setInt(4, random.nextInt())
+            .setLong(5, random.nextLong())
+            .setFloat(6, random.nextFloat() * 1e6f - 5e5f)
+            .setDouble(7, random.nextGaussian())
+            .setInt(8, random.nextInt() >> random.nextInt(32))
+            .setLong(9, random.nextLong() >> random.nextInt(64))
+            .setString(10, i % 50 == 49 ? "long " + "z".repeat(100 + i) : NAMES[i % NAMES.length]);
+    }
+    
+    private static void assertRecordEquals(Record expected, Record actual, int i) {
+        assertEquals(expected.getBoolean(0), actual.getBoolean(0), "flag of " + i);
+        assertEquals(expected.getByte(1), actual.getByte(1), "b of " + i);
+        assertEquals(expected.getChar(2), actual.getChar(2), "c of " + i);
+        assertEquals(expected.getShort(3), actual.getShort(3), "s of " + i);
+        assertEquals(expected.getInt(4), actual.getInt(4), "i of " + i);
+        assertEquals(expected.getLong(5), actual.getLong(5), "l of " + i);
+        assertEquals(Float.floatToRawIntBits(expected.getFloat(6)),
+                     Float.floatToRawIntBits(actual.getFloat(6)), "f of " + i);
+        assertEquals(Double.doubleToRawLongBits(expected.getDouble(7)),
+                     Double.doubleToRawLongBits(actual.getDouble(7)), "d of " + i);
+        assertEquals(expected.getInt(8), actual.getInt(8), "vi of " + i);
+        assertEquals(expected.getLong(9), actual.getLong(9), "vl of " + i);
+        assertEquals(expected.getString(10), actual.getString(10), "name of " + i);
+    }
+}
@@ -0,0 +1,122 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.ReplayBatch;
+import kernel.ReinforcementLearning.ReplayBuffer;
+
+/** ReplayBuffer storage and wrap-around, and prioritized sampling through the sum tree. */
+class ReplayBufferTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(8, 8);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    
+    private static void add(ReplayBuffer<GridState, GridAction> buffer, int x, double reward) {
+        buffer.add(new GridState(x, 0), GridAction.RIGHT, reward, new GridState(x + 1, 0), x == 6);
+    }
+    
+    @Test
+    void sampledTransitionsDecodeToWhatWasAdded() {
+        ReplayBuffer<GridState, GridAction> buffer = new ReplayBuffer<>(STATES, ACTIONS, 8, 16);
+        assertFalse(buffer.isPrioritized());
+        for (int x = 0; x < 7; x++) {
+            add(buffer, x, x * 0.5);
+        }
+        ReplayBatch batch = buffer.sampleUniform(16);
+        assertEquals(16, batch.size);
+        for (int i = 0; i < batch.size; i++) {
+            GridState state = buffer.decodeState(batch.states[i]);
+            assertEquals(batch.slots[i], state.x);
+            assertEquals(GridAction.RIGHT, buffer.decodeAction(batch.actions[i]));
+            assertEquals(state.x * 0.5, batch.rewards[i]);
+            assertEquals(new GridState(state.x + 1, 0), buffer.decodeState(batch.nextStates[i]));
+            assertEquals(state.x == 6, batch.isTerminal[i]);
+            assertEquals(1.0, batch.weights[i]);
+        }
+    }
+    
+    @Test
+    void theOldestTransitionsAreOverwrittenOnceFull() {
+        ReplayBuffer<GridState, GridAction> buffer = new ReplayBuffer<>(STATES, ACTIONS, 4, 64);
+        for (int x = 0; x < 6; x++) {
+            add(buffer, x, x);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(4, buffer.capacity());
+        ReplayBatch batch = buffer.sampleUniform(64);
+        for (int i = 0; i < batch.size; i++) {
+            // Slots 0 and 1 now hold the fifth and sixth transitions
+            double reward = batch.rewards[i];
+            assertTrue(reward >= 2, "sampled an overwritten transition: " + reward);
+            assertEquals(batch.slots[i], (int) reward % 4);
+        }
+    }
+    
+    @Test
+    void prioritizedSamplesFollowThePriorities() {
+        // alpha 1 samples in proportion to priority; beta 1 fully corrects for it
+        ReplayBuffer<GridState, GridAction> buffer = new ReplayBuffer<>(STATES, ACTIONS, 4, 8, 1.0, 1.0);
+        assertTrue(buffer.isPrioritized());
+        for (int x = 0; x < 4; x++) {
+            add(buffer, x, 0);
+        }
+        for (int slot = 0; slot < 4; slot++) {
+            buffer.updatePriority(slot, slot + 1); // priorities 1, 2, 3, 4 of a total of 10
+        }
+        
+        int[] counts = new int[4];
+        int batches = 5_000;
+        for (int b = 0; b < batches; b++) {
+            ReplayBatch batch = buffer.samplePrioritized(8);
+            for (int i = 0; i < batch.size; i++) {
+                counts[batch.slots[i]]++;
+                // Importance weight is proportional to 1 / priority, scaled to a maximum of 1
+                for (int j = 0; j < batch.size; j++) {
+                    assertEquals((double) (batch.slots[j] + 1) / (batch.slots[i] + 1),
+                                 batch.weights[i] / batch.weights[j], 1e-5);
+                }
+                assertTrue(batch.weights[i] <= 1.0);
+            }
+        }
+        for (int slot = 0; slot < 4; slot++) {
+            double share = (double) counts[slot] / (batches * 8);
+            assertEquals((slot + 1) / 10.0, share, 0.01, "share of slot " + slot);
+        }
+    }
+    
+    @Test
+    void newTransitionsTakeTheHighestPrioritySeen() {
+        ReplayBuffer<GridState, GridAction> buffer = new ReplayBuffer<>(STATES, ACTIONS, 4, 4, 1.0, 0.0);
+        add(buffer, 0, 0);
+        buffer.updatePriority(0, 1.0);
+        add(buffer, 1, 0); // priority 1
+        buffer.updatePriority(0, 9.0);
+        add(buffer, 2, 0); // priority 9, as slot 0; the tree total is 19
+        
+        int[] counts = new int[3];
+        int batches = 10_000;
+        for (int b = 0; b < batches; b++) {
+            ReplayBatch batch = buffer.samplePrioritized(1);
+            counts[batch.slots[0]]++;
+        }
+        assertEquals(9 / 19.0, (double) counts[0] / batches, 0.02);
+        assertEquals(1 / 19.0, (double) counts[1] / batches, 0.02);
+        assertEquals(9 / 19.0, (double) counts[2] / batches, 0.02);
+    }
+    
+    @Test
+    void prioritizedSamplingNeedsAlpha() {
+        ReplayBuffer<GridState, GridAction> buffer = new ReplayBuffer<>(STATES, ACTIONS, 4, 4);
+        add(buffer, 0, 0);
+        assertThrows(IllegalStateException.class, () -> buffer.samplePrioritized(1));
+    }
+}
@@ -0,0 +1,180 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import kernel.IOStreamExample.RingBufferPipe;
+import kernel.IOStreamExample.RingBufferPipe.WaitStrategy;
+
+/**
+ * RingBufferPipe with several producers on a small ring: every frame written in
+ * one write call must arrive whole, and each producer's frames in order.
+ */
+class RingBufferPipeTest {
+    
+    private static final int PRODUCERS = 4;
+    private static final int FRAMES = 5_000;
+    private static final int CAPACITY = 1024;
+    
+    // SPIN is left out: with fewer cores than threads a spinning reader starves the writers
+    @ParameterizedTest
+    @EnumSource(value = WaitStrategy.class, names = {"YIELD", "PARK"})
+    @Timeout(60)
+    void framesFromSeveralProducersArriveWholeAndInOrder(WaitStrategy waitStrategy) throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(CAPACITY, waitStrategy, true);
+        List<OutputStream> writers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            writers.add(pipe.newOutputStream());
+        }
+        InputStream reader = pipe.getInputStream();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                producers.add(executor.submit(() -> {
+                    try (OutputStream out = writers.get(producer)) {
+                        for (int seq = 0; seq < FRAMES; seq++) {
+                            out.write(frame(producer, seq));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            
+            int[] nextSeq = new int[PRODUCERS];
+            try (DataInputStream in = new DataInputStream(reader)) {
+                for (int frames = 0; frames < PRODUCERS * FRAMES; frames++) {
+                    int length = in.readInt();
+                    int producer = in.readInt();
+                    int seq = in.readInt();
+                    byte[] payload = new byte[length - 2 * Integer.BYTES];
+                    in.readFully(payload);
+                    assertEquals(nextSeq[producer]++, seq, "sequence of producer " + producer);
+                    assertArrayEquals(frame(producer, seq), ByteBuffer.allocate(Integer.BYTES + length)
+                        .putInt(length).putInt(producer).putInt(seq).put(payload).array());
+                }
+                assertEquals(-1, in.read());
+            }
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+            for (int p = 0; p < PRODUCERS; p++) {
+                assertEquals(FRAMES, nextSeq[p], "frames of producer " + p);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    @Timeout(60)
+    void aWriterInterruptedWhileWaitingItsTurnStillPublishes() throws Exception {
+        // first claims the whole ring and spends a while copying 32MB in; second, with
+        // its interrupt already pending, claims behind it and must wait its turn. The
+        // interrupt may not abort that wait: second's claim would never be published.
+        int size = 32 << 20;
+        RingBufferPipe pipe = new RingBufferPipe(2 * size, WaitStrategy.PARK, true);
+        OutputStream first = pipe.newOutputStream();
+        OutputStream second = pipe.newOutputStream();
+        InputStream reader = pipe.getInputStream();
+        byte[] large = new byte[size];
+        Arrays.fill(large, (byte) 1);
+        
+        Thread firstWriter = new Thread(() -> {
+            try (first) {
+                first.write(large);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        AtomicReference<Throwable> secondFailure = new AtomicReference<>();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread secondWriter = new Thread(() -> {
+            try (second) {
+                Thread.currentThread().interrupt();
+                second.write(frame(1, 1));
+                stillInterrupted.set(Thread.interrupted());
+            } catch (Throwable e) {
+                secondFailure.set(e);
+            }
+        });
+        firstWriter.start();
+        Thread.sleep(1);
+        secondWriter.start();
+        
+        byte[] received = reader.readAllBytes();
+        firstWriter.join();
+        secondWriter.join();
+        assertNull(secondFailure.get());
+        assertTrue(stillInterrupted.get(), "the interrupt is re-asserted after publishing");
+        assertEquals(size + frame(1, 1).length, received.length);
+    }
+    
+    @Test
+    @Timeout(60)
+    void singleByteWritesArePublishedOnFlushAndClose() throws Exception {
+        RingBufferPipe pipe = new RingBufferPipe(64, WaitStrategy.PARK, false);
+        DataOutputStream out = new DataOutputStream(pipe.newOutputStream());
+        DataInputStream in = new DataInputStream(pipe.getInputStream());
+        Thread writer = new Thread(() -> {
+            try (out) {
+                for (int i = 0; i < 10_000; i++) {
+                    out.writeInt(i);
+                    if (i % 100 == 0) out.flush();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, in.readInt());
+        }
+        assertThrows(EOFException.class, in::readInt);
+        writer.join();
+    }
+    
+    @Test
+    void singleProducerPipeRejectsASecondWriter() {
+        RingBufferPipe pipe = new RingBufferPipe(64, WaitStrategy.PARK, false);
+        pipe.newOutputStream();
+        assertThrows(IllegalStateException.class, pipe::newOutputStream);
+    }
+    
+    // [length][producer][seq][payload]: 12 to ~300 bytes, so frames wrap the 1KB ring at every offset
+    private static byte[] frame(int producer, int seq) {
+        int payload = (seq * 37 + producer * 11) % 289;
+        ByteBuffer frame = ByteBuffer.allocate(3 * Integer.BYTES + payload)
+            .putInt(2 * Integer.BYTES + payload).putInt(producer).putInt(seq);
+        for (int i = 0; i < payload; i++) {
+            frame.put((byte) (producer * 31 + seq + i));
+        }
+        return frame.array();
+    }
+}
@@ -0,0 +1,139 @@
+package kernel.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import kernel.ReinforcementLearning.GridAction;
+import kernel.ReinforcementLearning.GridState;
+import kernel.ReinforcementLearning.GridStateEncoder;
+import kernel.ReinforcementLearning.IndexEncoder;
+import kernel.ReinforcementLearning.RolloutReader;
+import kernel.ReinforcementLearning.RolloutRecorder;
+import kernel.ReinforcementLearning.StepResult;
+
+/** RolloutRecorder files read back step for step, across block boundaries and reward changes. */
+class RolloutRecorderTest {
+    
+    private static final GridStateEncoder STATES = new GridStateEncoder(8, 8);
+    private static final IndexEncoder<GridAction> ACTIONS = IndexEncoder.ofEnum(GridAction.class);
+    
+    @TempDir
+    Path directory;
+    
+    private record Step(int episode, int state, int action, double reward, int nextState, boolean terminal) {}
+    
+    // Rewards that defeat an XOR-of-bits encoding: sign and exponent changes, -0.0 and NaN
+    private static final double[] REWARDS = {-0.1, -0.1, 10.0, -1.0, 0.0, -0.0, 1e300, -1e-300, Double.NaN};
+    
+    private static List<Step> record(Path path, int steps, int blockSteps) throws IOException {
+        List<Step> expected = new ArrayList<>();
+        Random random = new Random(7);
+        // A free block for every full one, so a slow writer never makes the recorder drop steps
+        int queueBlocks = steps / blockSteps + 1;
+        try (RolloutRecorder<GridState, GridAction> recorder =
+                 new RolloutRecorder<>(path, STATES, ACTIONS, blockSteps, queueBlocks)) {
+            int episode = 0;
+            for (int i = 0; i < steps; i++) {
+                GridState state = STATES.decode(random.nextInt(STATES.size()));
+                GridState next = STATES.decode(random.nextInt(STATES.size()));
+                GridAction action = GridAction.values()[random.nextInt(GridAction.values().length)];
+                double reward = REWARDS[random.nextInt(REWARDS.length)];
+                boolean terminal = random.nextInt(10) == 0;
+                recorder.onStep(state, action, new StepResult<>(next, reward, terminal));
+                expected.add(new Step(episode, STATES.encode(state), ACTIONS.encode(action),
+                                      reward, STATES.encode(next), terminal));
+                if (terminal) {
+                    recorder.onEpisodeEnd(episode++, 0);
+                }
+            }
+            assertEquals(steps, recorder.getRecordedSteps());
+            assertEquals(0, recorder.getDroppedSteps());
+        }
+        return expected;
+    }
+    
+    private static List<Step> read(Path path) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        try (RolloutReader reader = RolloutReader.open(path)) {
+            assertEquals(STATES.size(), reader.getStateCount());
+            assertEquals(ACTIONS.size(), reader.getActionCount());
+            long count = reader.forEach((episode, state, action, reward, nextState, terminal) ->
+                steps.add(new Step(episode, state, action, reward, nextState, terminal)));
+            assertEquals(steps.size(), count);
+        }
+        return steps;
+    }
+    
+    @Test
+    void stepsReadBackExactlyAcrossBlocks() throws IOException {
+        Path path = directory.resolve("steps.rlr");
+        List<Step> expected = record(path, 1_000, 64);
+        List<Step> actual = read(path);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Step want = expected.get(i);
+            Step got = actual.get(i);
+            assertEquals(want.episode(), got.episode(), "episode of step " + i);
+            assertEquals(want.state(), got.state(), "state of step " + i);
+            assertEquals(want.action(), got.action(), "action of step " + i);
+            assertEquals(Double.doubleToRawLongBits(want.reward()), Double.doubleToRawLongBits(got.reward()),
+                         "reward of step " + i);
+            assertEquals(want.nextState(), got.nextState(), "next state of step " + i);
+            assertEquals(want.terminal(), got.terminal(), "terminal of step " + i);
+        }
+    }
+    
+    @Test
+    void episodeRewardsSumEachEpisode() throws IOException {
+        Path path = directory.resolve("episodes.rlr");
+        try (RolloutRecorder<GridState, GridAction> recorder =
+                 new RolloutRecorder<>(path, STATES, ACTIONS, 3, 2)) {
+            GridState state = new GridState(0, 0);
+            recorder.onStep(state, GridAction.UP, new StepResult<>(state, -1.0, false));
+            recorder.onStep(state, GridAction.UP, new StepResult<>(state, -1.0, false));
+            recorder.onStep(state, GridAction.UP, new StepResult<>(state, 10.0, true));
+            recorder.onEpisodeEnd(0, 8.0);
+            recorder.onStep(state, GridAction.DOWN, new StepResult<>(state, -5.0, true));
+            recorder.onEpisodeEnd(1, -5.0);
+        }
+        try (RolloutReader reader = RolloutReader.open(path)) {
+            assertArrayEquals(new double[] {8.0, -5.0}, reader.episodeRewards());
+        }
+    }
+    
+    @Test
+    void repeatedRewardsCostOneBytePerStep() throws IOException {
+        Path same = directory.resolve("same.rlr");
+        Path varied = directory.resolve("varied.rlr");
+        int steps = 1_000;
+        for (Path path : List.of(same, varied)) {
+            try (RolloutRecorder<GridState, GridAction> recorder =
+                     new RolloutRecorder<>(path, STATES, ACTIONS, steps, 1)) {
+                GridState state = new GridState(0, 0);
+                for (int i = 0; i < steps; i++) {
+                    double reward = path == same ? -0.1 : (i % 2 == 0 ? -0.1 : 10.0);
+                    recorder.onStep(state, GridAction.UP, new StepResult<>(state, reward, false));
+                }
+            }
+        }
+        // Alternating rewards store a raw double per step; a repeated one just its tag
+        assertEquals((long) (steps - 1) * Double.BYTES, Files.size(varied) - Files.size(same));
+    }
+    
+    @Test
+    void aFileWithoutTheMagicIsRejected() throws IOException {
+        Path path = Files.write(directory.resolve("bogus.rlr"), new byte[32]);
+        assertThrows(IOException.class, () -> RolloutReader.open(path));
+    }
+}